@@ -0,0 +1,970 @@
+package io.github.merykitty.inlinestring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread safe open addressing map keyed by {@link InlineString}, with the
+ * same interface as {@link FastStringMap}.
+ *
+ * <p>The map is split into segments selected by the high bits of the hash
+ * of a key, each segment is a linear probing table guarded by its own lock.
+ * Reads never lock, they load the table of the segment and its slots with
+ * acquire semantics, so they see every write completed before they start.
+ * Writes lock only the segment of the key, writers to different segments
+ * never wait for each other. A segment that runs out of space is resized
+ * by the thread holding its lock, while the other segments stay available
+ * to readers and writers.
+ *
+ * <p>Removed entries are kept in the table with a {@code null} value until
+ * the next resize of their segment, so that a reader never misses an entry
+ * moved by a concurrent writer. A removed slot is reused by the next
+ * insertion probing through it.
+ *
+ * <p>{@link #computeIfAbsent}, {@link #computeIfPresent}, {@link #compute}
+ * and {@link #merge} are atomic, the function is called at most once while
+ * holding the lock of the segment, and so should be short and must not
+ * update this map.
+ *
+ * <p>The views returned by {@link #keySet}, {@link #values} and
+ * {@link #entrySet} are weakly consistent, as those of
+ * {@link java.util.concurrent.ConcurrentHashMap}. Their iterators walk the
+ * segments one after the other without locking, never throw
+ * {@link java.util.ConcurrentModificationException}, return every entry
+ * present during the whole iteration and may or may not return the entries
+ * updated concurrently.
+ *
+ * <p>This map does not permit {@code null} values.
+ */
+public class ConcurrentFastStringMap<V> implements ConcurrentMap<InlineString.ref, V> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+    private static final int LOAD_FACTOR_SHIFT = 1;
+    private static final int MIN_SEGMENT_CAPACITY = 1 << 2;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Node[].class);
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    private KeySet keySet;
+    private Values values;
+    private EntrySet entrySet;
+
+    /**
+     * Creates a map able to hold {@code initialCapacity} entries without
+     * resizing, with {@code concurrencyLevel} segments rounded up to a power
+     * of 2.
+     *
+     * @param   initialCapacity
+     *          The expected number of entries
+     * @param   concurrencyLevel
+     *          The expected number of concurrent writers
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentFastStringMap(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        int segmentCount = computeCapacity(Math.min(concurrencyLevel, MAX_SEGMENTS));
+        int segmentCapacity = computeCapacity(Math.max(
+                ((initialCapacity + segmentCount - 1) / segmentCount) << LOAD_FACTOR_SHIFT,
+                MIN_SEGMENT_CAPACITY));
+        segments = (Segment<V>[]) new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+        segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    public ConcurrentFastStringMap(int initialCapacity) {
+        this(initialCapacity, Runtime.getRuntime().availableProcessors() << 2);
+    }
+
+    public ConcurrentFastStringMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of entries in this map. The result is only a
+     * snapshot if the map is updated concurrently.
+     *
+     * @return  the number of entries in this map
+     */
+    @Override
+    public int size() {
+        long size = 0;
+        for (var segment : segments) {
+            size += segment.count;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (var segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsKeyInline(InlineString key) {
+        return getValue(hash(key), key) != null;
+    }
+
+    public boolean containsKeyInline(HashedInlineString key) {
+        return getValue(spread(key.hash()), key.string()) != null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (key instanceof InlineString k) {
+            return containsKeyInline(k);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (var segment : segments) {
+            var tab = segment.table;
+            for (int i = 0; i < tab.length; i++) {
+                var node = slot(tab, i);
+                if (node != null && value.equals(node.value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public V getInline(InlineString key) {
+        return getValue(hash(key), key);
+    }
+
+    public V getInline(HashedInlineString key) {
+        return getValue(spread(key.hash()), key.string());
+    }
+
+    private V getValue(int h, InlineString key) {
+        var tab = segmentFor(h).table;
+        int mask = tab.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            var node = slot(tab, i);
+            if (node == null) {
+                return null;
+            } else if (h == node.hash && key.equals(node.key)) {
+                return node.value;
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key instanceof InlineString k) {
+            return getInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    public V putInline(InlineString key, V value) {
+        return putValue(hash(key), key, value, false);
+    }
+
+    public V putInline(HashedInlineString key, V value) {
+        return putValue(spread(key.hash()), key.string(), value, false);
+    }
+
+    public V putIfAbsentInline(InlineString key, V value) {
+        return putValue(hash(key), key, value, true);
+    }
+
+    public V putIfAbsentInline(HashedInlineString key, V value) {
+        return putValue(spread(key.hash()), key.string(), value, true);
+    }
+
+    private V putValue(int h, InlineString key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node != null && node.value != null) {
+                V result = node.value;
+                if (!onlyIfAbsent) {
+                    node.value = value;
+                }
+                return result;
+            }
+            segment.insert(node, h, key, value);
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V put(InlineString.ref key, V value) {
+        return putInline(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(InlineString.ref key, V value) {
+        return putIfAbsentInline(key, value);
+    }
+
+    public V removeInline(InlineString key) {
+        return removeValue(hash(key), key, null);
+    }
+
+    public V removeInline(HashedInlineString key) {
+        return removeValue(spread(key.hash()), key.string(), null);
+    }
+
+    // Remove the entry of the key, if expected is not null only if it is
+    // mapped to an equal value
+    private V removeValue(int h, InlineString key, Object expected) {
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node == null || node.value == null
+                    || (expected != null && !expected.equals(node.value))) {
+                return null;
+            }
+            V result = node.value;
+            segment.erase(node);
+            return result;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key instanceof InlineString k) {
+            return removeInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (value == null) {
+            return false;
+        } else if (key instanceof InlineString k) {
+            return removeValue(hash(k), k, value) != null;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean replace(InlineString.ref key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        int h = hash(key);
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node != null && oldValue.equals(node.value)) {
+                node.value = newValue;
+                return true;
+            }
+            return false;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V replace(InlineString.ref key, V value) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node != null && node.value != null) {
+                V result = node.value;
+                node.value = value;
+                return result;
+            }
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends InlineString.ref, ? extends V> m) {
+        for (var entry : m.entrySet()) {
+            var key = entry.getKey();
+            putValue(hash(key), key, entry.getValue(), false);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (var segment : segments) {
+            segment.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a weakly consistent {@link Set} view of the keys contained in
+     * this map. The set supports element removal, but not the {@code add}
+     * or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    @Override
+    public Set<InlineString.ref> keySet() {
+        var ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    /**
+     * Returns a weakly consistent {@link Collection} view of the values
+     * contained in this map. The collection supports element removal, but
+     * not the {@code add} or {@code addAll} operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    @Override
+    public Collection<V> values() {
+        var vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    /**
+     * Returns a weakly consistent {@link Set} view of the mappings contained
+     * in this map. The set supports element removal, but not the
+     * {@code add} or {@code addAll} operations. {@code setValue} on an
+     * entry of the set puts the new value in the map.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    @Override
+    public Set<Entry<InlineString.ref, V>> entrySet() {
+        var es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    public V getOrDefaultInline(InlineString key, V defaultValue) {
+        return getOrDefaultValue(hash(key), key, defaultValue);
+    }
+
+    public V getOrDefaultInline(HashedInlineString key, V defaultValue) {
+        return getOrDefaultValue(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    private V getOrDefaultValue(int h, InlineString key, V defaultValue) {
+        V value = getValue(h, key);
+        if (value != null) {
+            return value;
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        if (key instanceof InlineString k) {
+            return getOrDefaultInline(k, defaultValue);
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    /**
+     * Performs the given action for each entry in this map. The iteration
+     * does not lock the map, it sees every entry present during the whole
+     * iteration and may or may not see the concurrent updates.
+     */
+    @Override
+    public void forEach(BiConsumer<? super InlineString.ref, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (var segment : segments) {
+            var tab = segment.table;
+            for (int i = 0; i < tab.length; i++) {
+                var node = slot(tab, i);
+                V value;
+                if (node != null && (value = node.value) != null) {
+                    action.accept(node.key, value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super InlineString.ref, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        for (var segment : segments) {
+            segment.lock();
+            try {
+                var tab = segment.table;
+                for (int i = 0; i < tab.length; i++) {
+                    var node = slot(tab, i);
+                    if (node != null && node.value != null) {
+                        node.value = Objects.requireNonNull(function.apply(node.key, node.value));
+                    }
+                }
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(InlineString.ref key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        int h = hash(key);
+        // Most calls find the key, look it up without locking first
+        V value = getValue(h, key);
+        if (value != null) {
+            return value;
+        }
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node != null && node.value != null) {
+                return node.value;
+            }
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                segment.insert(node, h, key, value);
+            }
+            return value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V computeIfPresent(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        int h = hash(key);
+        if (getValue(h, key) == null) {
+            return null;
+        }
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node == null || node.value == null) {
+                return null;
+            }
+            V value = remappingFunction.apply(key, node.value);
+            if (value != null) {
+                node.value = value;
+            } else {
+                segment.erase(node);
+            }
+            return value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V compute(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        int h = hash(key);
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            V oldValue = node != null ? node.value : null;
+            V value = remappingFunction.apply(key, oldValue);
+            if (oldValue != null) {
+                if (value != null) {
+                    node.value = value;
+                } else {
+                    segment.erase(node);
+                }
+            } else if (value != null) {
+                segment.insert(node, h, key, value);
+            }
+            return value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V merge(InlineString.ref key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        int h = hash(key);
+        var segment = segmentFor(h);
+        segment.lock();
+        try {
+            var node = segment.find(h, key);
+            if (node == null || node.value == null) {
+                segment.insert(node, h, key, value);
+                return value;
+            }
+            V nValue = remappingFunction.apply(node.value, value);
+            if (nValue != null) {
+                node.value = nValue;
+            } else {
+                segment.erase(node);
+            }
+            return nValue;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<InlineString.ref> {
+        @Override
+        public int size() {
+            return ConcurrentFastStringMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentFastStringMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentFastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<InlineString.ref> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return ConcurrentFastStringMap.this.remove(o) != null;
+        }
+
+        @Override
+        public Spliterator<InlineString.ref> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public int size() {
+            return ConcurrentFastStringMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentFastStringMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentFastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.CONCURRENT | Spliterator.NONNULL);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<InlineString.ref, V>> {
+        @Override
+        public int size() {
+            return ConcurrentFastStringMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentFastStringMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentFastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<InlineString.ref, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                V value = getInline(k);
+                return value != null && value.equals(e.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && ConcurrentFastStringMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        @Override
+        public Spliterator<Entry<InlineString.ref, V>> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    // An entry handed out by the views, it keeps the value read by the
+    // iterator, setValue puts the new value in the map
+    private static final class MapEntry<V> implements Map.Entry<InlineString.ref, V> {
+        private final ConcurrentFastStringMap<V> map;
+        private final InlineString key;
+        private V value;
+
+        MapEntry(ConcurrentFastStringMap<V> map, InlineString key, V value) {
+            this.map = map;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public InlineString.ref getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            V result = this.value;
+            this.value = value;
+            map.putInline(key, value);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && key.equals(e.getKey())
+                    && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key.toString() + "=" + value;
+        }
+    }
+
+    // Walks the segments in order, reading the table of each one when it
+    // gets to it. A resize publishes a new table but leaves the old one
+    // untouched, and the slots of the live entries of a table are never
+    // overwritten, so going on over the old table still visits every entry
+    // present during the whole iteration. The value of an entry is read once
+    // when the iterator moves to it, so an entry removed after that is still
+    // returned
+    private abstract class SegmentIterator {
+        private int segmentIndex = -1;
+        private Node<V>[] tab;
+        private int index;
+        private Node<V> nextNode;
+        private V nextValue;
+        // The key and the value of the last returned entry
+        private InlineString lastKey;
+        V lastValue;
+        private boolean hasLast;
+
+        SegmentIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (true) {
+                if (tab != null) {
+                    while (index < tab.length) {
+                        var node = slot(tab, index++);
+                        V value;
+                        if (node != null && (value = node.value) != null) {
+                            nextNode = node;
+                            nextValue = value;
+                            return;
+                        }
+                    }
+                }
+                if (++segmentIndex >= segments.length) {
+                    nextNode = null;
+                    nextValue = null;
+                    return;
+                }
+                tab = segments[segmentIndex].table;
+                index = 0;
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextNode != null;
+        }
+
+        // Return the node of the next entry, the value read with it is put
+        // in lastValue
+        final Node<V> nextNode() {
+            var node = nextNode;
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            lastValue = nextValue;
+            lastKey = node.key;
+            hasLast = true;
+            advance();
+            return node;
+        }
+
+        public final void remove() {
+            if (!hasLast) {
+                throw new IllegalStateException();
+            }
+            hasLast = false;
+            removeInline(lastKey);
+        }
+    }
+
+    private final class KeyIterator extends SegmentIterator implements Iterator<InlineString.ref> {
+        @Override
+        public InlineString.ref next() {
+            return nextNode().key;
+        }
+    }
+
+    private final class ValueIterator extends SegmentIterator implements Iterator<V> {
+        @Override
+        public V next() {
+            nextNode();
+            return lastValue;
+        }
+    }
+
+    private final class EntryIterator extends SegmentIterator implements Iterator<Entry<InlineString.ref, V>> {
+        @Override
+        public Entry<InlineString.ref, V> next() {
+            var node = nextNode();
+            return new MapEntry<>(ConcurrentFastStringMap.this, node.key, lastValue);
+        }
+    }
+
+    // An entry, a null value marks a removed entry. The node is shared
+    // between the old and the new table during a resize so that updates of
+    // the value are seen by the readers of both
+    private static final class Node<V> {
+        final int hash;
+        final InlineString key;
+        volatile V value;
+
+        Node(int hash, InlineString key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // A linear probing table, only modified while holding the lock. Slots
+    // are filled with release stores and never emptied, a resize builds a
+    // new table and publishes it when it is complete
+    @SuppressWarnings("serial")
+    private static final class Segment<V> extends ReentrantLock {
+        volatile Node<V>[] table;
+        // The number of live entries
+        volatile int count;
+        // The number of filled slots, including the removed entries
+        int used;
+
+        @SuppressWarnings("unchecked")
+        Segment(int capacity) {
+            table = (Node<V>[]) new Node[capacity];
+        }
+
+        // The node of the key, live or removed, or null if there is none
+        Node<V> find(int h, InlineString key) {
+            var tab = table;
+            int mask = tab.length - 1;
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                var node = tab[i];
+                if (node == null) {
+                    return null;
+                } else if (h == node.hash && key.equals(node.key)) {
+                    return node;
+                }
+            }
+        }
+
+        // Insert a key known to be absent, node is the removed node of the
+        // key returned by find, if any
+        void insert(Node<V> node, int h, InlineString key, V value) {
+            if (node != null) {
+                node.value = value;
+                count++;
+                return;
+            }
+            if ((used + 1) > table.length >> LOAD_FACTOR_SHIFT) {
+                resize();
+            }
+            var tab = table;
+            int mask = tab.length - 1;
+            int i = h & mask;
+            while (true) {
+                var temp = tab[i];
+                if (temp == null) {
+                    used++;
+                    break;
+                } else if (temp.value == null) {
+                    // Reuse the slot of a removed entry, the readers probing
+                    // for its key skip the new node just as they would skip
+                    // the removed one
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            SLOT.setRelease(tab, i, new Node<>(h, key, value));
+            count++;
+        }
+
+        void erase(Node<V> node) {
+            node.value = null;
+            count--;
+        }
+
+        // Drop the removed entries, and double the capacity if the live ones
+        // still fill more than half of the load factor
+        @SuppressWarnings("unchecked")
+        private void resize() {
+            var oldTable = table;
+            int nCapacity = oldTable.length;
+            if ((count + 1) > nCapacity >> (LOAD_FACTOR_SHIFT + 1)) {
+                nCapacity <<= 1;
+                if (nCapacity < 0) {
+                    throw new OutOfMemoryError("Too many elements");
+                }
+            }
+            var nTable = (Node<V>[]) new Node[nCapacity];
+            int mask = nCapacity - 1;
+            int nUsed = 0;
+            for (var node : oldTable) {
+                if (node != null && node.value != null) {
+                    int i = node.hash & mask;
+                    while (nTable[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    nTable[i] = node;
+                    nUsed++;
+                }
+            }
+            used = nUsed;
+            // Publish the complete table, the volatile store orders the
+            // plain stores above before it
+            table = nTable;
+        }
+
+        @SuppressWarnings("unchecked")
+        void clear() {
+            table = (Node<V>[]) new Node[MIN_SEGMENT_CAPACITY];
+            used = 0;
+            count = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V> slot(Node<V>[] tab, int i) {
+        return (Node<V>) SLOT.getAcquire(tab, i);
+    }
+
+    private Segment<V> segmentFor(int h) {
+        // The high bits select the segment, the low ones the slot in it
+        return segments[segmentShift == Integer.SIZE ? 0 : h >>> segmentShift];
+    }
+
+    private static int hash(InlineString key) {
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // Get the lowest power of 2 larger than the input
+    private static int computeCapacity(int requestedCapacity) {
+        requestedCapacity--;
+        for (int i = 0; i < 32; i++) {
+            if (requestedCapacity >>> i == 0) {
+                return 1 << i;
+            }
+        }
+        // can't reach here, due to an int contains only 32 bit
+        throw new AssertionError();
+    }
+}
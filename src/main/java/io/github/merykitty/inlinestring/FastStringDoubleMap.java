@@ -0,0 +1,94 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Objects;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A map from {@link InlineString} to {@code double}, laid out as
+ * {@link FastStringMap} but with the values stored directly in the slots
+ * of the table, so that neither a get nor a put allocates or follows a
+ * pointer to a boxed value.
+ *
+ * <p>Since the values are primitives, the methods returning the previous
+ * value of a key return {@code 0.0} if the key was absent, use
+ * {@link #containsKey(InlineString)} to tell the two cases apart.
+ */
+public class FastStringDoubleMap extends FastStringPrimitiveMap {
+    public FastStringDoubleMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public FastStringDoubleMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the value of the specified key, or {@code defaultValue} if the
+     * map does not contain the key.
+     */
+    public double getOrDefault(InlineString key, double defaultValue) {
+        return fromBits(getBits(hash(key), key, toBits(defaultValue)));
+    }
+
+    public double getOrDefault(HashedInlineString key, double defaultValue) {
+        return fromBits(getBits(spread(key.hash()), key.string(), toBits(defaultValue)));
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @return  the previous value of the key, or {@code 0.0} if there was none
+     */
+    public double put(InlineString key, double value) {
+        return fromBits(putBits(hash(key), key, toBits(value), false));
+    }
+
+    public double put(HashedInlineString key, double value) {
+        return fromBits(putBits(spread(key.hash()), key.string(), toBits(value), false));
+    }
+
+    /**
+     * Adds the specified increment to the value of the specified key, a key
+     * absent from the map is considered to have the value {@code 0.0}.
+     *
+     * @return  the previous value of the key, or {@code 0.0} if there was none
+     */
+    public double addTo(InlineString key, double increment) {
+        return fromBits(putBits(hash(key), key, toBits(increment), true));
+    }
+
+    public double addTo(HashedInlineString key, double increment) {
+        return fromBits(putBits(spread(key.hash()), key.string(), toBits(increment), true));
+    }
+
+    /**
+     * Removes the specified key from the map.
+     *
+     * @return  the previous value of the key, or {@code 0.0} if there was none
+     */
+    public double remove(InlineString key) {
+        return fromBits(removeBits(hash(key), key));
+    }
+
+    public double remove(HashedInlineString key) {
+        return fromBits(removeBits(spread(key.hash()), key.string()));
+    }
+
+    public void forEach(ObjDoubleConsumer<? super InlineString.ref> action) {
+        Objects.requireNonNull(action);
+        forEachBits((key, bits) -> action.accept(key, fromBits(bits)));
+    }
+
+    @Override
+    long add(long bits, long increment) {
+        return toBits(fromBits(bits) + fromBits(increment));
+    }
+
+    private static long toBits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private static double fromBits(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from {@link InlineString} to {@code int}, laid out as
+ * {@link FastStringMap} but with the values stored directly in the slots
+ * of the table, so that neither a get nor a put allocates or follows a
+ * pointer to a boxed value.
+ *
+ * <p>Since the values are primitives, the methods returning the previous
+ * value of a key return {@code 0} if the key was absent, use
+ * {@link #containsKey(InlineString)} to tell the two cases apart.
+ */
+public class FastStringIntMap extends FastStringPrimitiveMap {
+    public FastStringIntMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public FastStringIntMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the value of the specified key, or {@code defaultValue} if the
+     * map does not contain the key.
+     */
+    public int getOrDefault(InlineString key, int defaultValue) {
+        return (int) getBits(hash(key), key, defaultValue);
+    }
+
+    public int getOrDefault(HashedInlineString key, int defaultValue) {
+        return (int) getBits(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public int put(InlineString key, int value) {
+        return (int) putBits(hash(key), key, value, false);
+    }
+
+    public int put(HashedInlineString key, int value) {
+        return (int) putBits(spread(key.hash()), key.string(), value, false);
+    }
+
+    /**
+     * Adds the specified increment to the value of the specified key, a key
+     * absent from the map is considered to have the value {@code 0}.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public int addTo(InlineString key, int increment) {
+        return (int) putBits(hash(key), key, increment, true);
+    }
+
+    public int addTo(HashedInlineString key, int increment) {
+        return (int) putBits(spread(key.hash()), key.string(), increment, true);
+    }
+
+    /**
+     * Removes the specified key from the map.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public int remove(InlineString key) {
+        return (int) removeBits(hash(key), key);
+    }
+
+    public int remove(HashedInlineString key) {
+        return (int) removeBits(spread(key.hash()), key.string());
+    }
+
+    public void forEach(ObjIntConsumer<? super InlineString.ref> action) {
+        Objects.requireNonNull(action);
+        forEachBits((key, bits) -> action.accept(key, (int) bits));
+    }
+
+    @Override
+    long add(long bits, long increment) {
+        return (int) bits + (int) increment;
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A map from {@link InlineString} to {@code long}, laid out as
+ * {@link FastStringMap} but with the values stored directly in the slots
+ * of the table, so that neither a get nor a put allocates or follows a
+ * pointer to a boxed value.
+ *
+ * <p>Since the values are primitives, the methods returning the previous
+ * value of a key return {@code 0} if the key was absent, use
+ * {@link #containsKey(InlineString)} to tell the two cases apart.
+ */
+public class FastStringLongMap extends FastStringPrimitiveMap {
+    public FastStringLongMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public FastStringLongMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the value of the specified key, or {@code defaultValue} if the
+     * map does not contain the key.
+     */
+    public long getOrDefault(InlineString key, long defaultValue) {
+        return getBits(hash(key), key, defaultValue);
+    }
+
+    public long getOrDefault(HashedInlineString key, long defaultValue) {
+        return getBits(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public long put(InlineString key, long value) {
+        return putBits(hash(key), key, value, false);
+    }
+
+    public long put(HashedInlineString key, long value) {
+        return putBits(spread(key.hash()), key.string(), value, false);
+    }
+
+    /**
+     * Adds the specified increment to the value of the specified key, a key
+     * absent from the map is considered to have the value {@code 0}.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public long addTo(InlineString key, long increment) {
+        return putBits(hash(key), key, increment, true);
+    }
+
+    public long addTo(HashedInlineString key, long increment) {
+        return putBits(spread(key.hash()), key.string(), increment, true);
+    }
+
+    /**
+     * Removes the specified key from the map.
+     *
+     * @return  the previous value of the key, or {@code 0} if there was none
+     */
+    public long remove(InlineString key) {
+        return removeBits(hash(key), key);
+    }
+
+    public long remove(HashedInlineString key) {
+        return removeBits(spread(key.hash()), key.string());
+    }
+
+    public void forEach(ObjLongConsumer<? super InlineString.ref> action) {
+        Objects.requireNonNull(action);
+        forEachBits((key, bits) -> action.accept(key, bits));
+    }
+
+    @Override
+    long add(long bits, long increment) {
+        return bits + increment;
+    }
+}
@@ -1,23 +1,72 @@
 package io.github.merykitty.inlinestring;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class FastStringMap<V> implements Map<InlineString.ref, V>{
     private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
     private static final int LOAD_FACTOR_SHIFT = 1;
+    // The number of slots moved to the new table by each lookup during an
+    // incremental resize, it must be large enough for the resize to be over
+    // before the next one is triggered
+    private static final int TRANSFER_STRIDE = 8;
+    // The number of keys of a batch operation whose slots are loaded before
+    // any of them is compared
+    private static final int BATCH_GROUP_SIZE = 16;
 
     private Node<V>[] table;
     private int size;
+    // The number of deleted slots, they are only reclaimed by a rehash
+    private int deleted;
+    // The number of structural modifications, for the fail-fast iterators
+    // and spliterators of the views
+    private int modCount;
+
+    private final boolean incrementalResize;
+    // The table being emptied into table by an incremental resize, or null
+    // if there is none
+    private Node<V>[] oldTable;
+    // The index of the next slot of oldTable to move
+    private int transferIndex;
+
+    private KeySet keySet;
+    private Values values;
+    private EntrySet entrySet;
 
-    @SuppressWarnings("unchecked")
     public FastStringMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Creates a map with the specified initial capacity and resize mode.
+     *
+     * <p>In the incremental resize mode, a resize only allocates the new
+     * table, the entries of the old one are then moved to it a few slots at
+     * a time by each following lookup, which keeps the latency of every
+     * operation low even for very large maps. The operations visiting the
+     * whole map, such as iteration, move all the remaining entries at once.
+     *
+     * @param   initialCapacity
+     *          The initial number of slots, a power of 2
+     * @param   incrementalResize
+     *          Whether to resize incrementally
+     */
+    @SuppressWarnings("unchecked")
+    public FastStringMap(int initialCapacity, boolean incrementalResize) {
         table = (Node<V>[]) new Node[initialCapacity];
+        this.incrementalResize = incrementalResize;
     }
 
     public FastStringMap() {
@@ -38,6 +87,14 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         return getNode(hash(key), key).hasValue();
     }
 
+    public boolean containsKeyInline(HashedInlineString key) {
+        return getNode(spread(key.hash()), key.string()).hasValue();
+    }
+
+    public boolean containsKeyInline(InlineStringSlice key) {
+        return getSliceNode(spread(key.hashCode()), key).hasValue();
+    }
+
     @Override
     public boolean containsKey(Object key) {
         if (key instanceof InlineString k) {
@@ -49,11 +106,50 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
 
     @Override
     public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        finishResize();
+        for (int i = 0, j = 0; j < size && i < table.length; i++) {
+            var temp = table[i];
+            if (temp.inserted() && !temp.deleted()) {
+                if (value.equals(temp.value())) {
+                    return true;
+                }
+                j++;
+            }
+        }
         return false;
     }
 
     public V getInline(InlineString key) {
-        var node = getNode(hash(key), key);
+        return getValue(hash(key), key);
+    }
+
+    public V getInline(HashedInlineString key) {
+        return getValue(spread(key.hash()), key.string());
+    }
+
+    /**
+     * Returns the value to which the key equal to the characters of the
+     * specified slice is mapped, the slice is compared to the keys in place
+     * so that it does not need to be materialized.
+     *
+     * @param   key
+     *          The slice whose characters are looked up
+     * @return  the value mapped to the key, or {@code null} if there is none
+     */
+    public V getInline(InlineStringSlice key) {
+        var node = getSliceNode(spread(key.hashCode()), key);
+        if (node.hasValue()) {
+            return node.node().value();
+        } else {
+            return null;
+        }
+    }
+
+    private V getValue(int h, InlineString key) {
+        var node = getNode(h, key);
         if (node.hasValue()) {
             return node.node().value();
         } else {
@@ -71,17 +167,21 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
     }
 
     public V putInline(InlineString key, V value) {
-        if (table.length >> LOAD_FACTOR_SHIFT < (size + 1)) {
-            grow(table.length << 1);
-        }
-        int h = hash(key);
-        var node = putNode(h, key);
+        return putValue(hash(key), key, value);
+    }
+
+    public V putInline(HashedInlineString key, V value) {
+        return putValue(spread(key.hash()), key.string(), value);
+    }
+
+    private V putValue(int h, InlineString key, V value) {
+        var node = putNodeReserving(h, key);
         V result;
         if (node.hasValue()) {
             result = node.node().value();
         } else {
             result = null;
-            size++;
+            addNode(node.index());
         }
         table[node.index()] = new Node<>(h, key, Objects.requireNonNull(value));
         return result;
@@ -93,12 +193,18 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
     }
 
     public V removeInline(InlineString key) {
-        var node = getNode(hash(key), key);
+        return removeValue(hash(key), key);
+    }
+
+    public V removeInline(HashedInlineString key) {
+        return removeValue(spread(key.hash()), key.string());
+    }
+
+    private V removeValue(int h, InlineString key) {
+        var node = getNode(h, key);
         if (node.hasValue()) {
-            var temp = node.node();
-            table[node.index()] = temp.delete();
-            size--;
-            return temp.value();
+            removeNode(node.index());
+            return node.node().value();
         } else {
             return null;
         }
@@ -118,20 +224,23 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         int estimatedSize = size + m.size();
         int nCapacity = computeCapacity(estimatedSize << LOAD_FACTOR_SHIFT);
         if (nCapacity > table.length) {
-            grow(nCapacity);
+            resize(nCapacity);
+        } else if (deleted > table.length >> 2) {
+            resize(size > table.length >> (LOAD_FACTOR_SHIFT + 1) ? table.length << 1 : table.length);
         }
         if (m instanceof FastStringMap) {
             // Fast path, not need to recompute hash
             @SuppressWarnings("unchecked")
             var im = (FastStringMap<? extends V>) m;
+            im.finishResize();
             for (int i = 0; i < im.table.length; i++) {
                 var temp = im.table[i];
                 if (temp.inserted() && !temp.deleted()) {
                     var node = putNode(temp.hash(), temp.key());
-                    table[node.index()] = new Node<>(temp.hash(), temp.key(), temp.value());
                     if (!node.hasValue()) {
-                        size++;
+                        addNode(node.index());
                     }
+                    table[node.index()] = new Node<>(temp.hash(), temp.key(), temp.value());
                 }
             }
         } else {
@@ -139,9 +248,145 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
                 var key = entry.getKey();
                 int h = hash(key);
                 var node = putNode(h, key);
-                table[node.index()] = new Node<>(h, key, Objects.requireNonNull(entry.getValue()));
+                var value = Objects.requireNonNull(entry.getValue());
                 if (!node.hasValue()) {
-                    size++;
+                    addNode(node.index());
+                }
+                table[node.index()] = new Node<>(h, key, value);
+            }
+        }
+    }
+
+    /**
+     * Looks up a batch of keys, {@code out[i]} is set to the value of
+     * {@code keys[i]}, or to {@code null} if the map does not contain it.
+     *
+     * <p>The keys are processed in groups, the home slots of all the keys of
+     * a group are loaded before any of them is compared, so that their cache
+     * misses overlap instead of being paid one after another. This is much
+     * faster than a call to {@link #getInline(InlineString)} for each key
+     * when the table does not fit in the cache.
+     *
+     * @param   keys
+     *          The keys to look up
+     * @param   out
+     *          The array receiving the values, at least as long as keys
+     * @return  the number of keys found
+     */
+    @SuppressWarnings("unchecked")
+    public int getAll(InlineString[] keys, V[] out) {
+        Objects.checkFromIndexSize(0, keys.length, out.length);
+        int found = 0;
+        if (oldTable != null) {
+            // The slots of an incremental resize move with each lookup
+            for (int i = 0; i < keys.length; i++) {
+                var value = getInline(keys[i]);
+                if (value != null) {
+                    found++;
+                }
+                out[i] = value;
+            }
+            return found;
+        }
+        var tab = table;
+        int mask = tab.length - 1;
+        int[] hashes = new int[BATCH_GROUP_SIZE];
+        var homes = (Node<V>[]) new Node[BATCH_GROUP_SIZE];
+        for (int start = 0; start < keys.length; start += BATCH_GROUP_SIZE) {
+            int count = Math.min(BATCH_GROUP_SIZE, keys.length - start);
+            for (int j = 0; j < count; j++) {
+                int h = hash(keys[start + j]);
+                hashes[j] = h;
+                homes[j] = tab[h & mask];
+            }
+            for (int j = 0; j < count; j++) {
+                var key = keys[start + j];
+                int h = hashes[j];
+                int i = h & mask;
+                var temp = homes[j];
+                V value = null;
+                while (temp.inserted()) {
+                    if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
+                        value = temp.value();
+                        found++;
+                        break;
+                    }
+                    i = (i + 1) & mask;
+                    temp = tab[i];
+                }
+                out[start + j] = value;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Associates {@code values[i]} with {@code keys[i]} for each index of
+     * {@code keys}, the keys are processed in groups as in
+     * {@link #getAll(InlineString[], Object[])}.
+     *
+     * @param   keys
+     *          The keys to insert
+     * @param   values
+     *          The values to insert, at least as long as keys
+     */
+    @SuppressWarnings("unchecked")
+    public void putAll(InlineString[] keys, V[] values) {
+        Objects.checkFromIndexSize(0, keys.length, values.length);
+        // Make room for the whole batch first so that the table is not
+        // resized in the middle of a group
+        int estimatedSize = size + keys.length;
+        int nCapacity = computeCapacity(estimatedSize << LOAD_FACTOR_SHIFT);
+        if (nCapacity > table.length) {
+            resize(nCapacity);
+        } else if (deleted > table.length >> 2) {
+            resize(size > table.length >> (LOAD_FACTOR_SHIFT + 1) ? table.length << 1 : table.length);
+        }
+        if (oldTable != null) {
+            for (int i = 0; i < keys.length; i++) {
+                putInline(keys[i], values[i]);
+            }
+            return;
+        }
+        var tab = table;
+        int mask = tab.length - 1;
+        int[] hashes = new int[BATCH_GROUP_SIZE];
+        var homes = (Node<V>[]) new Node[BATCH_GROUP_SIZE];
+        for (int start = 0; start < keys.length; start += BATCH_GROUP_SIZE) {
+            int count = Math.min(BATCH_GROUP_SIZE, keys.length - start);
+            for (int j = 0; j < count; j++) {
+                int h = hash(keys[start + j]);
+                hashes[j] = h;
+                homes[j] = tab[h & mask];
+            }
+            for (int j = 0; j < count; j++) {
+                var key = keys[start + j];
+                var value = Objects.requireNonNull(values[start + j]);
+                int h = hashes[j];
+                int i = h & mask;
+                // Nothing is removed or moved during the batch so a live slot
+                // keeps its key, but an empty or deleted one may have been
+                // filled by a previous key of the group
+                var temp = homes[j];
+                if (!temp.inserted() || temp.deleted()) {
+                    temp = tab[i];
+                }
+                int firstDeleted = -1;
+                while (true) {
+                    if (!temp.inserted()) {
+                        int index = firstDeleted == -1 ? i : firstDeleted;
+                        addNode(index);
+                        tab[index] = new Node<>(h, key, value);
+                        break;
+                    } else if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
+                        tab[i] = new Node<>(h, key, value);
+                        break;
+                    }
+                    if (temp.deleted() && firstDeleted == -1) {
+                        firstDeleted = i;
+                    }
+                    i = (i + 1) & mask;
+                    temp = tab[i];
                 }
             }
         }
@@ -151,26 +396,128 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
     @SuppressWarnings("unchecked")
     public void clear() {
         size = 0;
+        deleted = 0;
+        oldTable = null;
+        modCount++;
         table = (Node<V>[]) new Node[DEFAULT_INITIAL_CAPACITY];
     }
 
+    /**
+     * Returns the number of slots of the table backing this map, including
+     * the empty and the deleted ones.
+     *
+     * @return  the capacity of this map
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns the number of slots of the table holding a removed entry that
+     * has not been reclaimed yet.
+     *
+     * @return  the number of deleted slots
+     */
+    public int deletedCount() {
+        return deleted;
+    }
+
+    /**
+     * Shrinks the table backing this map to the smallest capacity able to
+     * hold the current entries, reclaiming all the deleted slots. This is
+     * useful after a large part of the entries have been removed, since the
+     * table never shrinks on its own.
+     *
+     * @return  the number of slots released, which is {@code 0} if the
+     *          table is already as small as possible
+     */
+    public int trimToSize() {
+        int oldCapacity = table.length;
+        int nCapacity = computeCapacity((size + 1) << LOAD_FACTOR_SHIFT);
+        if (nCapacity < oldCapacity || deleted > 0) {
+            resize(Math.min(nCapacity, oldCapacity));
+            finishResize();
+        }
+        return oldCapacity - table.length;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map. The set
+     * is backed by the table of the map, so changes to the map are reflected
+     * in the set, and vice-versa. The set supports element removal, but not
+     * the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
     @Override
     public Set<InlineString.ref> keySet() {
-        return null;
+        var ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
     }
 
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the table of the map, so changes to the
+     * map are reflected in the collection, and vice-versa. The collection
+     * supports element removal, but not the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a view of the values contained in this map
+     */
     @Override
     public Collection<V> values() {
-        return null;
+        var vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
     }
 
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map. The
+     * set is backed by the table of the map, so changes to the map are
+     * reflected in the set, and vice-versa, including through
+     * {@code setValue} on the entries of the set. The set supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     *
+     * <p>The spliterators of the views split the range of the table, so
+     * parallel streams over them work on the map directly without copying.
+     *
+     * @return a set view of the mappings contained in this map
+     */
     @Override
     public Set<Entry<InlineString.ref, V>> entrySet() {
-        return null;
+        var es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
     }
 
     public V getOrDefaultInline(InlineString key, V defaultValue) {
-        int h = hash(key);
+        return getOrDefaultValue(hash(key), key, defaultValue);
+    }
+
+    public V getOrDefaultInline(HashedInlineString key, V defaultValue) {
+        return getOrDefaultValue(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    public V getOrDefaultInline(InlineStringSlice key, V defaultValue) {
+        var node = getSliceNode(spread(key.hashCode()), key);
+        if (node.hasValue()) {
+            return node.node().value();
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    private V getOrDefaultValue(int h, InlineString key, V defaultValue) {
         var node = getNode(h, key);
         if (node.hasValue()) {
             return node.node().value();
@@ -190,6 +537,7 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
 
     @Override
     public void forEach(BiConsumer<? super InlineString.ref, ? super V> action) {
+        finishResize();
         for (int i = 0, j = 0; j < size && i < table.length; i++) {
             var temp = table[i];
             if (temp.inserted() && !temp.deleted()) {
@@ -201,6 +549,7 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
 
     @Override
     public void replaceAll(BiFunction<? super InlineString.ref, ? super V, ? extends V> function) {
+        finishResize();
         for (int i = 0, j = 0; j < size && i < table.length; i++) {
             var temp = table[i];
             if (temp.inserted() && !temp.deleted()) {
@@ -211,44 +560,663 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         }
     }
 
+    public V putIfAbsentInline(InlineString key, V value) {
+        return putIfAbsentValue(hash(key), key, value);
+    }
+
+    public V putIfAbsentInline(HashedInlineString key, V value) {
+        return putIfAbsentValue(spread(key.hash()), key.string(), value);
+    }
+
+    private V putIfAbsentValue(int h, InlineString key, V value) {
+        Objects.requireNonNull(value);
+        var node = putNodeReserving(h, key);
+        if (node.hasValue()) {
+            return node.node().value();
+        }
+        addNode(node.index());
+        table[node.index()] = new Node<>(h, key, value);
+        return null;
+    }
+
     @Override
     public V putIfAbsent(InlineString.ref key, V value) {
-        return Map.super.putIfAbsent(key, value);
+        return putIfAbsentInline(key, value);
     }
 
     @Override
     public boolean remove(Object key, Object value) {
-        return Map.super.remove(key, value);
+        if (value == null) {
+            return false;
+        } else if (key instanceof InlineString k) {
+            return removeValue(hash(k), k, value);
+        } else {
+            return false;
+        }
+    }
+
+    private boolean removeValue(int h, InlineString key, Object value) {
+        var node = getNode(h, key);
+        if (node.hasValue() && value.equals(node.node().value())) {
+            removeNode(node.index());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean replaceInline(InlineString key, V oldValue, V newValue) {
+        return replaceValue(hash(key), key, oldValue, newValue);
+    }
+
+    public boolean replaceInline(HashedInlineString key, V oldValue, V newValue) {
+        return replaceValue(spread(key.hash()), key.string(), oldValue, newValue);
+    }
+
+    private boolean replaceValue(int h, InlineString key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue);
+        var node = getNode(h, key);
+        if (node.hasValue() && node.node().value().equals(oldValue)) {
+            table[node.index()] = new Node<>(h, key, newValue);
+            return true;
+        } else {
+            return false;
+        }
     }
 
     @Override
     public boolean replace(InlineString.ref key, V oldValue, V newValue) {
-        return Map.super.replace(key, oldValue, newValue);
+        return replaceInline(key, oldValue, newValue);
+    }
+
+    public V replaceInline(InlineString key, V value) {
+        return replaceValue(hash(key), key, value);
+    }
+
+    public V replaceInline(HashedInlineString key, V value) {
+        return replaceValue(spread(key.hash()), key.string(), value);
+    }
+
+    private V replaceValue(int h, InlineString key, V value) {
+        Objects.requireNonNull(value);
+        var node = getNode(h, key);
+        if (node.hasValue()) {
+            table[node.index()] = new Node<>(h, key, value);
+            return node.node().value();
+        } else {
+            return null;
+        }
     }
 
     @Override
     public V replace(InlineString.ref key, V value) {
-        return Map.super.replace(key, value);
+        return replaceInline(key, value);
+    }
+
+    public V computeIfAbsentInline(InlineString key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        return computeIfAbsentValue(hash(key), key, mappingFunction);
+    }
+
+    public V computeIfAbsentInline(HashedInlineString key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        return computeIfAbsentValue(spread(key.hash()), key.string(), mappingFunction);
+    }
+
+    private V computeIfAbsentValue(int h, InlineString key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        var node = putNodeReserving(h, key);
+        if (node.hasValue()) {
+            return node.node().value();
+        }
+        int mc = modCount;
+        V value = mappingFunction.apply(key);
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (value != null) {
+            insertNode(node.index(), h, key, value);
+        }
+        return value;
     }
 
     @Override
     public V computeIfAbsent(InlineString.ref key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
-        return Map.super.computeIfAbsent(key, mappingFunction);
+        return computeIfAbsentInline(key, mappingFunction);
+    }
+
+    public V computeIfPresentInline(InlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return computeIfPresentValue(hash(key), key, remappingFunction);
+    }
+
+    public V computeIfPresentInline(HashedInlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return computeIfPresentValue(spread(key.hash()), key.string(), remappingFunction);
+    }
+
+    private V computeIfPresentValue(int h, InlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        var node = getNode(h, key);
+        if (!node.hasValue()) {
+            return null;
+        }
+        int mc = modCount;
+        V value = remappingFunction.apply(key, node.node().value());
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (value != null) {
+            table[node.index()] = new Node<>(h, key, value);
+        } else {
+            removeNode(node.index());
+        }
+        return value;
     }
 
     @Override
     public V computeIfPresent(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
-        return Map.super.computeIfPresent(key, remappingFunction);
+        return computeIfPresentInline(key, remappingFunction);
+    }
+
+    public V computeInline(InlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return computeValue(hash(key), key, remappingFunction);
+    }
+
+    public V computeInline(HashedInlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return computeValue(spread(key.hash()), key.string(), remappingFunction);
+    }
+
+    private V computeValue(int h, InlineString key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        var node = putNodeReserving(h, key);
+        int mc = modCount;
+        V value = remappingFunction.apply(key, node.hasValue() ? node.node().value() : null);
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (node.hasValue()) {
+            if (value != null) {
+                table[node.index()] = new Node<>(h, key, value);
+            } else {
+                removeNode(node.index());
+            }
+        } else if (value != null) {
+            insertNode(node.index(), h, key, value);
+        }
+        return value;
     }
 
     @Override
     public V compute(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
-        return Map.super.compute(key, remappingFunction);
+        return computeInline(key, remappingFunction);
+    }
+
+    public V mergeInline(InlineString key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return mergeValue(hash(key), key, value, remappingFunction);
+    }
+
+    public V mergeInline(HashedInlineString key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return mergeValue(spread(key.hash()), key.string(), value, remappingFunction);
+    }
+
+    private V mergeValue(int h, InlineString key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        var node = putNodeReserving(h, key);
+        if (!node.hasValue()) {
+            addNode(node.index());
+            table[node.index()] = new Node<>(h, key, value);
+            return value;
+        }
+        int mc = modCount;
+        V nValue = remappingFunction.apply(node.node().value(), value);
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (nValue != null) {
+            table[node.index()] = new Node<>(h, key, nValue);
+        } else {
+            removeNode(node.index());
+        }
+        return nValue;
     }
 
     @Override
     public V merge(InlineString.ref key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        return Map.super.merge(key, value, remappingFunction);
+        return mergeInline(key, value, remappingFunction);
+    }
+
+    private final class KeySet extends AbstractSet<InlineString.ref> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            FastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<InlineString.ref> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int oldSize = size;
+            FastStringMap.this.remove(o);
+            return size != oldSize;
+        }
+
+        @Override
+        public Spliterator<InlineString.ref> spliterator() {
+            return new KeySpliterator<>(FastStringMap.this, 0, -1, 0, 0);
+        }
+
+        @Override
+        public void forEach(Consumer<? super InlineString.ref> action) {
+            Objects.requireNonNull(action);
+            finishResize();
+            int mc = modCount;
+            for (int i = 0, j = 0; j < size && i < table.length; i++) {
+                var temp = table[i];
+                if (temp.inserted() && !temp.deleted()) {
+                    action.accept(temp.key());
+                    j++;
+                }
+            }
+            if (modCount != mc) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            FastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(FastStringMap.this, 0, -1, 0, 0);
+        }
+
+        @Override
+        public void forEach(Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            finishResize();
+            int mc = modCount;
+            for (int i = 0, j = 0; j < size && i < table.length; i++) {
+                var temp = table[i];
+                if (temp.inserted() && !temp.deleted()) {
+                    action.accept(temp.value());
+                    j++;
+                }
+            }
+            if (modCount != mc) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<InlineString.ref, V>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            FastStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<InlineString.ref, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                var node = getNode(hash(k), k);
+                return node.hasValue() && node.node().value().equals(e.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                int h = hash(k);
+                var node = getNode(h, k);
+                if (node.hasValue() && node.node().value().equals(e.getValue())) {
+                    removeValue(h, k);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Entry<InlineString.ref, V>> spliterator() {
+            return new EntrySpliterator<>(FastStringMap.this, 0, -1, 0, 0);
+        }
+
+        @Override
+        public void forEach(Consumer<? super Entry<InlineString.ref, V>> action) {
+            Objects.requireNonNull(action);
+            finishResize();
+            int mc = modCount;
+            for (int i = 0, j = 0; j < size && i < table.length; i++) {
+                var temp = table[i];
+                if (temp.inserted() && !temp.deleted()) {
+                    action.accept(new MapEntry<>(FastStringMap.this, temp));
+                    j++;
+                }
+            }
+            if (modCount != mc) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // An entry handed out by the views, setValue writes through to the map
+    // as long as the key is still present
+    private static final class MapEntry<V> implements Map.Entry<InlineString.ref, V> {
+        private final FastStringMap<V> map;
+        private final int hash;
+        private final InlineString key;
+        private V value;
+
+        MapEntry(FastStringMap<V> map, Node<V> node) {
+            this.map = map;
+            this.hash = node.hash();
+            this.key = node.key();
+            this.value = node.value();
+        }
+
+        @Override
+        public InlineString.ref getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            var node = map.getNode(hash, key);
+            if (node.hasValue()) {
+                map.table[node.index()] = new Node<>(hash, key, value);
+            }
+            V result = this.value;
+            this.value = value;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && key.equals(e.getKey())
+                    && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key.toString() + "=" + value;
+        }
+    }
+
+    // Entries are removed by marking their slots deleted, which never moves
+    // the other entries, so the iterators can keep their position in the
+    // table across a removal
+    private abstract class TableIterator {
+        int index;            // next slot to look at
+        int current = -1;     // slot of the last returned entry
+        int expectedModCount;
+
+        TableIterator() {
+            finishResize();
+            expectedModCount = modCount;
+            advance();
+        }
+
+        private void advance() {
+            var tab = table;
+            while (index < tab.length && !(tab[index].inserted() && !tab[index].deleted())) {
+                index++;
+            }
+        }
+
+        public final boolean hasNext() {
+            return index < table.length;
+        }
+
+        final Node<V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= table.length) {
+                throw new NoSuchElementException();
+            }
+            current = index++;
+            advance();
+            return table[current];
+        }
+
+        public final void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            var temp = table[current];
+            current = -1;
+            removeValue(temp.hash(), temp.key());
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends TableIterator implements Iterator<InlineString.ref> {
+        @Override
+        public InlineString.ref next() {
+            return nextNode().key();
+        }
+    }
+
+    private final class ValueIterator extends TableIterator implements Iterator<V> {
+        @Override
+        public V next() {
+            return nextNode().value();
+        }
+    }
+
+    private final class EntryIterator extends TableIterator implements Iterator<Entry<InlineString.ref, V>> {
+        @Override
+        public Entry<InlineString.ref, V> next() {
+            return new MapEntry<>(FastStringMap.this, nextNode());
+        }
+    }
+
+    // Spliterators over a range of the table, a split halves the range. The
+    // root spliterator knows the exact number of entries and reports SIZED,
+    // the ranges obtained by splitting only have an estimate since the
+    // entries are not evenly spread over the table
+    private abstract static class TableSpliterator<V, T> implements Spliterator<T> {
+        final FastStringMap<V> map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(FastStringMap<V> map, int origin, int fence, int est, int expectedModCount) {
+            this.map = map;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                var m = map;
+                m.finishResize();
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.table.length;
+            }
+            return hi;
+        }
+
+        abstract T element(Node<V> node);
+
+        abstract TableSpliterator<V, T> split(int lo, int mid, int est);
+
+        @Override
+        public final TableSpliterator<V, T> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : split(lo, index = mid, est >>>= 1);
+        }
+
+        @Override
+        public final void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            var m = map;
+            var tab = m.table;
+            int i = index;
+            index = hi;
+            if (tab.length >= hi) {
+                for (; i < hi; i++) {
+                    var temp = tab[i];
+                    if (temp.inserted() && !temp.deleted()) {
+                        action.accept(element(temp));
+                    }
+                }
+            }
+            if (m.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public final boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            var m = map;
+            var tab = m.table;
+            if (tab.length >= hi) {
+                while (index < hi) {
+                    var temp = tab[index++];
+                    if (temp.inserted() && !temp.deleted()) {
+                        action.accept(element(temp));
+                        if (m.modCount != expectedModCount) {
+                            throw new ConcurrentModificationException();
+                        }
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public final long estimateSize() {
+            getFence(); // force init
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) | Spliterator.NONNULL;
+        }
+    }
+
+    private static final class KeySpliterator<V> extends TableSpliterator<V, InlineString.ref> {
+        KeySpliterator(FastStringMap<V> map, int origin, int fence, int est, int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        @Override
+        InlineString.ref element(Node<V> node) {
+            return node.key();
+        }
+
+        @Override
+        KeySpliterator<V> split(int lo, int mid, int est) {
+            return new KeySpliterator<>(map, lo, mid, est, expectedModCount);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | Spliterator.DISTINCT;
+        }
+    }
+
+    private static final class ValueSpliterator<V> extends TableSpliterator<V, V> {
+        ValueSpliterator(FastStringMap<V> map, int origin, int fence, int est, int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        @Override
+        V element(Node<V> node) {
+            return node.value();
+        }
+
+        @Override
+        ValueSpliterator<V> split(int lo, int mid, int est) {
+            return new ValueSpliterator<>(map, lo, mid, est, expectedModCount);
+        }
+    }
+
+    private static final class EntrySpliterator<V> extends TableSpliterator<V, Entry<InlineString.ref, V>> {
+        EntrySpliterator(FastStringMap<V> map, int origin, int fence, int est, int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        @Override
+        Entry<InlineString.ref, V> element(Node<V> node) {
+            return new MapEntry<>(map, node);
+        }
+
+        @Override
+        EntrySpliterator<V> split(int lo, int mid, int est) {
+            return new EntrySpliterator<>(map, lo, mid, est, expectedModCount);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | Spliterator.DISTINCT;
+        }
     }
 
     @__primitive__
@@ -282,11 +1250,15 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
     }
 
     private static int hash(InlineString key) {
-        int h = key.hashCode();
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int h) {
         return h ^ (h >>> 16);
     }
 
     private OptionalNode<V> getNode(int h, InlineString key) {
+        helpResize(h, key);
         int i = h & (table.length - 1);
         while (true) {
             var temp = table[i];
@@ -303,14 +1275,44 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         }
     }
 
+    // Look up the key equal to the slice without moving any entry, during an
+    // incremental resize the old table is probed too if the key is not in
+    // the new one, the slots moved from it are marked deleted
+    private OptionalNode<V> getSliceNode(int h, InlineStringSlice key) {
+        var node = probeSlice(table, h, key);
+        var oldTab = oldTable;
+        if (!node.hasValue() && oldTab != null) {
+            node = probeSlice(oldTab, h, key);
+        }
+        return node;
+    }
+
+    private static <V> OptionalNode<V> probeSlice(Node<V>[] tab, int h, InlineStringSlice key) {
+        int i = h & (tab.length - 1);
+        while (true) {
+            var temp = tab[i];
+            if (!temp.inserted()) {
+                return OptionalNode.default;
+            } else if (!temp.deleted() && h == temp.hash() && key.contentEquals(temp.key())) {
+                return new OptionalNode<>(true, i, temp);
+            } else {
+                i++;
+                if (i == tab.length) {
+                    i = 0;
+                }
+            }
+        }
+    }
+
     private OptionalNode<V> putNode(int h, InlineString key) {
+        helpResize(h, key);
         int i = h & (table.length - 1);
         int firstDeleted = -1;
         while (true) {
             var temp = table[i];
             if (!temp.inserted()) {
                 return new OptionalNode<>(false, firstDeleted == -1 ? i : firstDeleted, Node.default);
-            } else if (h == temp.hash() && key.equals(temp.key())) {
+            } else if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
                 return new OptionalNode<>(true, i, temp);
             } else {
                 if (temp.deleted() && firstDeleted == -1) {
@@ -324,13 +1326,13 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         }
     }
 
-    // Put node to a new table, the table is guaranteed to not have any deleted
-    // node or node that equals to the inserted one, use for resize method
+    // Put node to a new table, the table is guaranteed to not have any node
+    // that equals to the inserted one, use for resize method
     private int putNodeEx(int h, InlineString key) {
         int i = h & (table.length - 1);
         while (true) {
             var temp = table[i];
-            if (!temp.inserted()) {
+            if (!temp.inserted() || temp.deleted()) {
                 return i;
             } else {
                 i++;
@@ -353,16 +1355,83 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
         throw new AssertionError();
     }
 
-    // Trusted method, nCapacity is always a power of 2
+    // Find the slot of the key, making room for one more entry first if the
+    // key is absent, so that updating an existing entry never resizes the
+    // table under the iterators
+    private OptionalNode<V> putNodeReserving(int h, InlineString key) {
+        var node = putNode(h, key);
+        if (!node.hasValue() && reserveSlot()) {
+            node = putNode(h, key);
+        }
+        return node;
+    }
+
+    // Make room for one more entry, must be called before a key is inserted,
+    // return whether the table has been replaced
+    private boolean reserveSlot() {
+        if (table.length >> LOAD_FACTOR_SHIFT < (size + 1)) {
+            resize(table.length << 1);
+            return true;
+        } else if (deleted > table.length >> 2) {
+            // Too many deleted slots, the probes for absent keys have to walk
+            // past all of them, rehash to reclaim them. Grow at the same time
+            // if the table is more than half full so that the next growth
+            // does not follow right after
+            resize(size > table.length >> (LOAD_FACTOR_SHIFT + 1) ? table.length << 1 : table.length);
+            return true;
+        }
+        return false;
+    }
+
+    // Fill the empty or deleted slot at index with a new entry
+    private void addNode(int index) {
+        if (table[index].deleted()) {
+            deleted--;
+        }
+        size++;
+        modCount++;
+    }
+
+    // Insert a new entry at the slot found by putNode before calling a user
+    // function, the lookups made by the function during an incremental
+    // resize may have moved another entry there, probe again in that case
+    private void insertNode(int index, int h, InlineString key, V value) {
+        var temp = table[index];
+        if (temp.inserted() && !temp.deleted()) {
+            index = putNode(h, key).index();
+        }
+        addNode(index);
+        table[index] = new Node<>(h, key, value);
+    }
+
+    private void removeNode(int index) {
+        table[index] = table[index].delete();
+        size--;
+        deleted++;
+        modCount++;
+    }
+
+    // Trusted method, nCapacity is always a power of 2 large enough for all
+    // the entries, the deleted slots are dropped
     @SuppressWarnings("unchecked")
-    private void grow(int nCapacity) {
+    private void resize(int nCapacity) {
         if (nCapacity < 0) {
             throw new OutOfMemoryError("Too many elements");
         }
-        var oldTable = table;
+        finishResize();
+        var oldTab = table;
         table = (Node<V>[])new Node[nCapacity];
-        for (int i = 0, j = 0; j < size && i < oldTable.length; i++) {
-            var temp = oldTable[i];
+        deleted = 0;
+        // The entries move to other slots, the positions of the iterators
+        // are not valid anymore
+        modCount++;
+        if (incrementalResize) {
+            oldTable = oldTab;
+            transferIndex = 0;
+            return;
+        }
+        for (int i = 0, j = 0; j < size && i < oldTab.length; i++) {
+            var temp = oldTab[i];
             if (temp.inserted() && !temp.deleted()) {
                 int index = putNodeEx(temp.hash(), temp.key());
                 table[index] = temp;
@@ -370,4 +1439,64 @@ public class FastStringMap<V> implements Map<InlineString.ref, V>{
             }
         }
     }
+
+    // During an incremental resize, move the entry of the key if it is still
+    // in the old table, so that the key only needs to be looked up in the
+    // new table, then move the next TRANSFER_STRIDE slots
+    private void helpResize(int h, InlineString key) {
+        var oldTab = oldTable;
+        if (oldTab == null) {
+            return;
+        }
+        int i = h & (oldTab.length - 1);
+        while (true) {
+            var temp = oldTab[i];
+            if (!temp.inserted()) {
+                break;
+            } else if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
+                transfer(oldTab, i);
+                break;
+            } else {
+                i++;
+                if (i == oldTab.length) {
+                    i = 0;
+                }
+            }
+        }
+        int end = Math.min(transferIndex + TRANSFER_STRIDE, oldTab.length);
+        for (int j = transferIndex; j < end; j++) {
+            transfer(oldTab, j);
+        }
+        transferIndex = end;
+        if (end == oldTab.length) {
+            oldTable = null;
+        }
+    }
+
+    // Move all the remaining entries of an incremental resize, used before
+    // visiting the whole table
+    private void finishResize() {
+        var oldTab = oldTable;
+        if (oldTab == null) {
+            return;
+        }
+        for (int j = transferIndex; j < oldTab.length; j++) {
+            transfer(oldTab, j);
+        }
+        oldTable = null;
+    }
+
+    // Move the entry at index of the old table, the slot is marked deleted
+    // instead of emptied to keep the probe sequences of the old table intact
+    private void transfer(Node<V>[] oldTab, int index) {
+        var temp = oldTab[index];
+        if (temp.inserted() && !temp.deleted()) {
+            int i = putNodeEx(temp.hash(), temp.key());
+            if (table[i].deleted()) {
+                deleted--;
+            }
+            table[i] = temp;
+            oldTab[index] = temp.delete();
+        }
+    }
 }
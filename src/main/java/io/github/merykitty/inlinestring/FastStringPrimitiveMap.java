@@ -0,0 +1,256 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Objects;
+
+/**
+ * The table shared by {@link FastStringIntMap}, {@link FastStringLongMap}
+ * and {@link FastStringDoubleMap}. It is laid out as {@link FastStringMap},
+ * with the value of each entry stored in its slot as the bits of a
+ * {@code long}, which the subclasses convert from and to their value type.
+ *
+ * <p>A removed entry leaves a deleted slot behind so that the probe
+ * sequences going through it stay intact. The deleted slots are counted,
+ * and the table is rehashed before an insertion once they take more than a
+ * quarter of it, so that churn with distinct keys never fills the table
+ * with deleted slots.
+ */
+abstract class FastStringPrimitiveMap {
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+    private static final int LOAD_FACTOR_SHIFT = 1;
+
+    private Node[] table;
+    private int size;
+    // The number of deleted slots, they are only reclaimed by a rehash
+    private int deleted;
+
+    FastStringPrimitiveMap(int initialCapacity) {
+        table = new Node[computeCapacity(Math.max(initialCapacity, 2))];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(InlineString key) {
+        return getNode(hash(key), key).hasValue();
+    }
+
+    public boolean containsKey(HashedInlineString key) {
+        return getNode(spread(key.hash()), key.string()).hasValue();
+    }
+
+    /**
+     * Returns the number of slots of the table backing this map, including
+     * the empty and the deleted ones.
+     *
+     * @return  the capacity of this map
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns the number of slots of the table holding a removed entry that
+     * has not been reclaimed yet.
+     *
+     * @return  the number of deleted slots
+     */
+    public int deletedCount() {
+        return deleted;
+    }
+
+    public void clear() {
+        size = 0;
+        deleted = 0;
+        table = new Node[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    // Return the sum of the values of the specified bits
+    abstract long add(long bits, long increment);
+
+    interface BitsConsumer {
+        void accept(InlineString key, long bits);
+    }
+
+    final long getBits(int h, InlineString key, long defaultBits) {
+        var node = getNode(h, key);
+        if (node.hasValue()) {
+            return node.node().value();
+        } else {
+            return defaultBits;
+        }
+    }
+
+    // Return the previous bits of the key, or 0 if it was absent
+    final long putBits(int h, InlineString key, long bits, boolean add) {
+        var node = putNode(h, key);
+        long result;
+        if (node.hasValue()) {
+            result = node.node().value();
+        } else {
+            if (reserveSlot()) {
+                node = putNode(h, key);
+            }
+            result = 0;
+            if (table[node.index()].deleted()) {
+                deleted--;
+            }
+            size++;
+        }
+        table[node.index()] = new Node(h, key, add ? add(result, bits) : bits);
+        return result;
+    }
+
+    // Return the previous bits of the key, or 0 if it was absent
+    final long removeBits(int h, InlineString key) {
+        var node = getNode(h, key);
+        if (node.hasValue()) {
+            var temp = node.node();
+            table[node.index()] = temp.delete();
+            size--;
+            deleted++;
+            return temp.value();
+        } else {
+            return 0;
+        }
+    }
+
+    final void forEachBits(BitsConsumer action) {
+        Objects.requireNonNull(action);
+        for (int i = 0, j = 0; j < size && i < table.length; i++) {
+            var temp = table[i];
+            if (temp.inserted() && !temp.deleted()) {
+                action.accept(temp.key(), temp.value());
+                j++;
+            }
+        }
+    }
+
+    @__primitive__
+    private record OptionalNode(boolean hasValue, int index, Node node) {}
+
+    @__primitive__
+    private record Node(int hash, InlineString key, long value, boolean inserted, boolean deleted) {
+        Node(int hash, InlineString key, long value) {
+            this(hash, key, value, true, false);
+        }
+
+        Node delete() {
+            return new Node(this.hash, this.key, this.value, this.inserted, true);
+        }
+    }
+
+    static int hash(InlineString key) {
+        return spread(key.hashCode());
+    }
+
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private OptionalNode getNode(int h, InlineString key) {
+        int i = h & (table.length - 1);
+        while (true) {
+            var temp = table[i];
+            if (!temp.inserted()) {
+                return OptionalNode.default;
+            } else if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
+                return new OptionalNode(true, i, temp);
+            } else {
+                i++;
+                if (i == table.length) {
+                    i = 0;
+                }
+            }
+        }
+    }
+
+    private OptionalNode putNode(int h, InlineString key) {
+        int i = h & (table.length - 1);
+        int firstDeleted = -1;
+        while (true) {
+            var temp = table[i];
+            if (!temp.inserted()) {
+                return new OptionalNode(false, firstDeleted == -1 ? i : firstDeleted, Node.default);
+            } else if (!temp.deleted() && h == temp.hash() && key.equals(temp.key())) {
+                return new OptionalNode(true, i, temp);
+            } else {
+                if (temp.deleted() && firstDeleted == -1) {
+                    firstDeleted = i;
+                }
+                i++;
+                if (i == table.length) {
+                    i = 0;
+                }
+            }
+        }
+    }
+
+    // Put node to a new table, the table is guaranteed to not have any deleted
+    // node or node that equals to the inserted one, use for resize method
+    private int putNodeEx(int h) {
+        int i = h & (table.length - 1);
+        while (true) {
+            var temp = table[i];
+            if (!temp.inserted()) {
+                return i;
+            } else {
+                i++;
+                if (i == table.length) {
+                    i = 0;
+                }
+            }
+        }
+    }
+
+    // Get the lowest power of 2 larger than the input
+    private static int computeCapacity(int requestedCapacity) {
+        requestedCapacity--;
+        for (int i = 0; i < 32; i++) {
+            if (requestedCapacity >>> i == 0) {
+                return 1 << i;
+            }
+        }
+        // can't reach here, due to an int contains only 32 bit
+        throw new AssertionError();
+    }
+
+    // Make room for one more entry, must be called before a key is inserted,
+    // return whether the table has been replaced
+    private boolean reserveSlot() {
+        if (table.length >> LOAD_FACTOR_SHIFT < (size + 1)) {
+            resize(table.length << 1);
+            return true;
+        } else if (deleted > table.length >> 2) {
+            // Too many deleted slots, the probes for absent keys have to walk
+            // past all of them, rehash to reclaim them, growing at the same
+            // time if the table is more than half full
+            resize(size > table.length >> (LOAD_FACTOR_SHIFT + 1) ? table.length << 1 : table.length);
+            return true;
+        }
+        return false;
+    }
+
+    // Trusted method, nCapacity is always a power of 2 large enough for all
+    // the entries, the deleted slots are dropped
+    private void resize(int nCapacity) {
+        if (nCapacity < 0) {
+            throw new OutOfMemoryError("Too many elements");
+        }
+        var oldTable = table;
+        table = new Node[nCapacity];
+        deleted = 0;
+        for (int i = 0, j = 0; j < size && i < oldTable.length; i++) {
+            var temp = oldTable[i];
+            if (temp.inserted() && !temp.deleted()) {
+                int index = putNodeEx(temp.hash());
+                table[index] = temp;
+                j++;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.merykitty.inlinestring;
+
+/**
+ * An {@link InlineString} that carries its hash code along with it.
+ *
+ * <p>The hash code is computed once at construction, lookups in
+ * {@link FastStringMap} and {@link InlineStringHashMap} using a
+ * {@code HashedInlineString} key therefore only need to compare the key
+ * bytes of the candidate entries instead of rescanning the whole key to
+ * compute its hash.
+ *
+ * <p>Two {@code HashedInlineString}s are equal if and only if the strings
+ * they wrap are equal.
+ *
+ * @see InlineString#hashed()
+ */
+@__primitive__
+public class HashedInlineString {
+    private final InlineString string;
+    private final int hash;
+
+    /**
+     * Wraps the specified string, computing its hash code eagerly.
+     *
+     * @param   string
+     *          The string to be wrapped
+     */
+    public HashedInlineString(InlineString string) {
+        this.string = string;
+        this.hash = string.hashCode();
+    }
+
+    /**
+     * Returns the wrapped string.
+     *
+     * @return  the wrapped string
+     */
+    public InlineString string() {
+        return string;
+    }
+
+    /**
+     * Returns the hash code of the wrapped string, this is the same as
+     * {@code string().hashCode()}.
+     *
+     * @return  the precomputed hash code
+     */
+    public int hash() {
+        return hash;
+    }
+
+    /**
+     * Compares this object to the specified object. The result is
+     * {@code true} if and only if the argument is a
+     * {@code HashedInlineString} wrapping a string equal to the one wrapped
+     * by this object.
+     *
+     * @param   anObject
+     *          The object to compare this {@code HashedInlineString} against
+     *
+     * @return  {@code true} if the given object wraps an equal string,
+     *          {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object anObject) {
+        if (anObject instanceof HashedInlineString other) {
+            return this.hash == other.hash && this.string.equals(other.string);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return string.toString();
+    }
+}
@@ -0,0 +1,472 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import io.github.merykitty.inlinestring.internal.Utils;
+
+/**
+ * An immutable sequence of characters made of pieces of
+ * {@link InlineString}s, for building very large strings piece by piece.
+ *
+ * <p>A rope is a balanced binary tree, whose leaves are
+ * {@link InlineStringSlice}s of strings and whose inner nodes are the
+ * concatenations of their children. Concatenating two ropes, taking a
+ * substring of a rope or reading one of its characters therefore take a
+ * time logarithmic in the number of leaves, instead of copying all the
+ * characters, and short leaves appended next to each other are merged so
+ * that the tree does not degenerate into one leaf per append. The length
+ * of a rope is a {@code long}, it is not limited by the size of an array.
+ *
+ * <p>{@link #toInlineString()} copies the leaves into a single string the
+ * first time it is called, and {@link #writeTo(WritableByteChannel, Charset)}
+ * encodes the rope in fixed-size chunks, so that a rope larger than any
+ * string can be written out.
+ *
+ * @see InlineStringBuilder
+ */
+public final class InlineRope {
+    // Leaves shorter than this are merged with their neighbours when
+    // concatenated
+    private static final int MAX_MERGED_LEAF = 512;
+    // The number of characters encoded at a time by writeTo
+    private static final int WRITE_CHUNK_SIZE = 8192;
+
+    private static final InlineRope EMPTY = new InlineRope(new InlineStringSlice(InlineString.EMPTY_STRING));
+
+    // The characters of a leaf, left and right are null for leaves
+    private final InlineStringSlice leaf;
+    private final InlineRope left;
+    private final InlineRope right;
+    private final long length;
+    // 0 for leaves, the heights of the children differ by at most 1
+    private final int height;
+    // The bitwise or of the coders of the leaves
+    private final byte coder;
+
+    // The flattened rope, computed lazily
+    private InlineString.ref flat;
+
+    private InlineRope(InlineStringSlice leaf) {
+        this.leaf = leaf;
+        this.left = null;
+        this.right = null;
+        this.length = leaf.length();
+        this.height = 0;
+        this.coder = leaf.coder();
+    }
+
+    private InlineRope(InlineRope left, InlineRope right) {
+        this.leaf = InlineStringSlice.default;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+        this.height = Math.max(left.height, right.height) + 1;
+        this.coder = (byte) (left.coder | right.coder);
+    }
+
+    /**
+     * Returns the empty rope.
+     *
+     * @return  a rope of length {@code 0}
+     */
+    public static InlineRope empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a rope made of the specified string, without copying it.
+     *
+     * @param   str
+     *          The characters of the rope
+     * @return  a rope containing the characters of {@code str}
+     */
+    public static InlineRope of(InlineString str) {
+        return str.isEmpty() ? EMPTY : new InlineRope(new InlineStringSlice(str));
+    }
+
+    /**
+     * Returns a rope made of the specified slice, which keeps sharing the
+     * array of its string.
+     *
+     * @param   slice
+     *          The characters of the rope
+     * @return  a rope containing the characters of {@code slice}
+     */
+    public static InlineRope of(InlineStringSlice slice) {
+        return slice.isEmpty() ? EMPTY : new InlineRope(slice);
+    }
+
+    /**
+     * Returns the length of this rope.
+     *
+     * @return  the number of characters in this rope
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns {@code true} if, and only if, {@link #length()} is {@code 0}.
+     *
+     * @return  {@code true} if {@link #length()} is {@code 0}, otherwise
+     *          {@code false}
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns the {@code char} value at the specified index of this rope.
+     *
+     * @param   index
+     *          The index of the {@code char} value
+     * @return  the {@code char} value at the specified index
+     * @throws  IndexOutOfBoundsException
+     *          If {@code index} is negative or not less than the length of
+     *          this rope
+     */
+    public char charAt(long index) {
+        Objects.checkIndex(index, length);
+        var node = this;
+        while (node.left != null) {
+            var f = node.flat;
+            if (f != null) {
+                return ((InlineString) f).charAt((int) index);
+            }
+            if (index < node.left.length) {
+                node = node.left;
+            } else {
+                index -= node.left.length;
+                node = node.right;
+            }
+        }
+        return node.leaf.charAt((int) index);
+    }
+
+    /**
+     * Returns the concatenation of this rope and the specified rope.
+     *
+     * @param   other
+     *          The rope to append
+     * @return  a rope containing the characters of this rope followed by
+     *          the ones of {@code other}
+     */
+    public InlineRope concat(InlineRope other) {
+        return join(this, other);
+    }
+
+    /**
+     * Returns the concatenation of this rope and the specified string.
+     *
+     * @param   str
+     *          The string to append
+     * @return  a rope containing the characters of this rope followed by
+     *          the ones of {@code str}
+     */
+    public InlineRope concat(InlineString str) {
+        return join(this, of(str));
+    }
+
+    /**
+     * Returns the rope of the characters of this rope from the specified
+     * index to the end.
+     *
+     * @param   beginIndex
+     *          The beginning index, inclusive
+     * @return  the specified rope
+     * @throws  IndexOutOfBoundsException
+     *          If {@code beginIndex} is negative or larger than the length
+     *          of this rope
+     */
+    public InlineRope substring(long beginIndex) {
+        return substring(beginIndex, length);
+    }
+
+    /**
+     * Returns the rope of the characters of this rope between the specified
+     * indices. The leaves of the new rope share the arrays of the leaves of
+     * this rope.
+     *
+     * @param   beginIndex
+     *          The beginning index, inclusive
+     * @param   endIndex
+     *          The ending index, exclusive
+     * @return  the specified rope
+     * @throws  IndexOutOfBoundsException
+     *          If {@code beginIndex} is negative, or {@code endIndex} is
+     *          larger than the length of this rope, or {@code beginIndex}
+     *          is larger than {@code endIndex}
+     */
+    public InlineRope substring(long beginIndex, long endIndex) {
+        Objects.checkFromToIndex(beginIndex, endIndex, length);
+        return sub(this, beginIndex, endIndex);
+    }
+
+    /**
+     * Returns a string containing the characters of this rope. The leaves
+     * are copied into the string the first time this method is called, the
+     * string is then kept by the rope.
+     *
+     * @return  the characters of this rope
+     * @throws  OutOfMemoryError
+     *          If the rope is too long to fit in a string
+     */
+    public InlineString toInlineString() {
+        var f = flat;
+        if (f != null) {
+            return (InlineString) f;
+        }
+        InlineString result;
+        if (left == null) {
+            result = leaf.materialize();
+        } else {
+            if ((length << coder) > Integer.MAX_VALUE) {
+                throw new OutOfMemoryError("Overflow: String length out of range");
+            }
+            int len = (int) length;
+            byte[] value = new byte[len << coder];
+            getBytes(this, value, 0, coder);
+            if (Utils.COMPACT_STRINGS && coder == Utils.UTF16) {
+                // The UTF16 leaves may only be slices of Latin1 characters
+                byte[] compressed = StringUTF16.compress(value, 0, len);
+                result = compressed != null ? new InlineString(compressed, Utils.LATIN1)
+                        : new InlineString(value, Utils.UTF16);
+            } else {
+                result = new InlineString(value, coder);
+            }
+        }
+        flat = result;
+        return result;
+    }
+
+    /**
+     * Encodes this rope using the specified charset and writes the bytes to
+     * the specified channel. The rope is encoded in chunks into a buffer
+     * which is reused for the whole rope, so that the rope does not need to
+     * fit in a string. The bytes written are the same as the ones of
+     * {@code toInlineString().getBytes(charset)}.
+     *
+     * <p>This method always replaces malformed-input and unmappable-character
+     * sequences with the default replacement byte array of the charset.
+     *
+     * @param   channel
+     *          The channel to write to, expected to be blocking
+     * @param   charset
+     *          The charset used to encode the characters
+     * @return  the number of bytes written
+     * @throws  IOException
+     *          If an I/O error occurs
+     */
+    public long writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(charset);
+        var encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        var buffer = ByteBuffer.allocate((int) Math.ceil(WRITE_CHUNK_SIZE * (double) encoder.maxBytesPerChar()));
+        // The encoders of these charsets do not keep any state between two
+        // chunks, which can then be encoded on their own by the fast paths
+        // of InlineString
+        boolean stateless = charset == StandardCharsets.UTF_8 || charset == StandardCharsets.ISO_8859_1
+                || charset == StandardCharsets.US_ASCII;
+        long written = 0;
+        long pos = 0;
+        while (pos < length) {
+            long end = Math.min(pos + WRITE_CHUNK_SIZE, length);
+            // Do not split a surrogate pair
+            if (end < length && end - pos > 1 && Character.isHighSurrogate(charAt(end - 1))) {
+                end--;
+            }
+            var chunk = sub(this, pos, end).toInlineString();
+            if (stateless) {
+                chunk.encodeTo(charset, buffer);
+            } else {
+                var in = CharBuffer.wrap(chunk);
+                while (true) {
+                    var cr = encoder.encode(in, buffer, end == length);
+                    if (cr.isOverflow()) {
+                        written += drain(channel, buffer);
+                    } else {
+                        checkResult(cr);
+                        break;
+                    }
+                }
+            }
+            written += drain(channel, buffer);
+            pos = end;
+        }
+        if (!stateless && length > 0) {
+            while (true) {
+                var cr = encoder.flush(buffer);
+                if (cr.isOverflow()) {
+                    written += drain(channel, buffer);
+                } else {
+                    checkResult(cr);
+                    break;
+                }
+            }
+            written += drain(channel, buffer);
+        }
+        return written;
+    }
+
+    /**
+     * Returns a {@code String} containing the characters of this rope.
+     *
+     * @return  the characters of this rope
+     * @throws  OutOfMemoryError
+     *          If the rope is too long to fit in a string
+     */
+    @Override
+    public String toString() {
+        return toInlineString().toString();
+    }
+
+    // Write the bytes of the buffer to the channel, then clear it
+    private static int drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int n = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return n;
+    }
+
+    private static void checkResult(CoderResult cr) {
+        if (cr.isError()) {
+            try {
+                cr.throwException();
+            } catch (CharacterCodingException x) {
+                // Substitution is always enabled,
+                // so this shouldn't happen
+                throw new Error(x);
+            }
+        }
+    }
+
+    // Copy the leaves of the rope into dst from dstBegin, in the coder
+    private static void getBytes(InlineRope rope, byte[] dst, int dstBegin, byte coder) {
+        while (rope.left != null) {
+            getBytes(rope.left, dst, dstBegin, coder);
+            dstBegin += (int) rope.left.length;
+            rope = rope.right;
+        }
+        rope.leaf.getBytes(dst, dstBegin, coder);
+    }
+
+    private static InlineRope sub(InlineRope rope, long begin, long end) {
+        if (begin == 0 && end == rope.length) {
+            return rope;
+        } else if (begin == end) {
+            return EMPTY;
+        } else if (rope.left == null) {
+            return new InlineRope(rope.leaf.slice((int) begin, (int) end));
+        }
+        long leftLength = rope.left.length;
+        if (end <= leftLength) {
+            return sub(rope.left, begin, end);
+        } else if (begin >= leftLength) {
+            return sub(rope.right, begin - leftLength, end - leftLength);
+        }
+        return join(sub(rope.left, begin, leftLength), sub(rope.right, 0, end - leftLength));
+    }
+
+    // Concatenate two ropes, the result is balanced if both are
+    private static InlineRope join(InlineRope l, InlineRope r) {
+        if (l.length == 0) {
+            return r;
+        } else if (r.length == 0) {
+            return l;
+        }
+        if (r.left == null && r.length < MAX_MERGED_LEAF) {
+            var merged = appendLeaf(l, r);
+            if (merged != null) {
+                return merged;
+            }
+        }
+        if (l.left == null && l.length < MAX_MERGED_LEAF) {
+            var merged = prependLeaf(l, r);
+            if (merged != null) {
+                return merged;
+            }
+        }
+        if (l.height > r.height + 1) {
+            return joinRight(l, r);
+        } else if (r.height > l.height + 1) {
+            return joinLeft(l, r);
+        }
+        return new InlineRope(l, r);
+    }
+
+    // Merge the short leaf r into the last leaf of l if it is short enough
+    // too, copying the path to it, return null otherwise
+    private static InlineRope appendLeaf(InlineRope l, InlineRope r) {
+        if (l.left == null) {
+            if (l.length + r.length > MAX_MERGED_LEAF) {
+                return null;
+            }
+            return new InlineRope(new InlineStringSlice(l.leaf.materialize().concat(r.leaf.materialize())));
+        }
+        var right = appendLeaf(l.right, r);
+        return right == null ? null : new InlineRope(l.left, right);
+    }
+
+    // Merge the short leaf l into the first leaf of r if it is short enough
+    // too, copying the path to it, return null otherwise
+    private static InlineRope prependLeaf(InlineRope l, InlineRope r) {
+        if (r.left == null) {
+            if (l.length + r.length > MAX_MERGED_LEAF) {
+                return null;
+            }
+            return new InlineRope(new InlineStringSlice(l.leaf.materialize().concat(r.leaf.materialize())));
+        }
+        var left = prependLeaf(l, r.left);
+        return left == null ? null : new InlineRope(left, r.right);
+    }
+
+    // Join l and r with l.height > r.height + 1, by descending the right
+    // spine of l to a subtree of about the height of r
+    private static InlineRope joinRight(InlineRope l, InlineRope r) {
+        var c = l.right;
+        var right = c.height > r.height + 1 ? joinRight(c, r) : new InlineRope(c, r);
+        return balance(l.left, right);
+    }
+
+    // Join l and r with r.height > l.height + 1, by descending the left
+    // spine of r to a subtree of about the height of l
+    private static InlineRope joinLeft(InlineRope l, InlineRope r) {
+        var c = r.left;
+        var left = c.height > l.height + 1 ? joinLeft(l, c) : new InlineRope(l, c);
+        return balance(left, r.right);
+    }
+
+    // Create the node of l and r, whose heights differ by at most 2,
+    // rotating it if they differ by 2
+    private static InlineRope balance(InlineRope l, InlineRope r) {
+        if (r.height > l.height + 1) {
+            if (r.left.height > r.right.height) {
+                // Double rotation
+                var rl = r.left;
+                return new InlineRope(new InlineRope(l, rl.left), new InlineRope(rl.right, r.right));
+            }
+            return new InlineRope(new InlineRope(l, r.left), r.right);
+        } else if (l.height > r.height + 1) {
+            if (l.right.height > l.left.height) {
+                var lr = l.right;
+                return new InlineRope(new InlineRope(l.left, lr.left), new InlineRope(lr.right, r));
+            }
+            return new InlineRope(l.left, new InlineRope(l.right, r));
+        }
+        return new InlineRope(l, r);
+    }
+}
@@ -27,12 +27,15 @@ package io.github.merykitty.inlinestring;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.constant.Constable;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.*;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
@@ -43,6 +46,9 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.*;
 
+import jdk.incubator.foreign.MemorySegment;
+
+import io.github.merykitty.inlinestring.internal.ArrayEncoders;
 import io.github.merykitty.inlinestring.internal.StringCoding;
 import io.github.merykitty.inlinestring.internal.Utils;
 
@@ -747,7 +753,10 @@ public class InlineString
     }
 
     private static int decodeWithDecoder(CharsetDecoder cd, char[] dst, byte[] src, int offset, int length) {
-        ByteBuffer bb = ByteBuffer.wrap(src, offset, length);
+        return decodeWithDecoder(cd, dst, ByteBuffer.wrap(src, offset, length));
+    }
+
+    private static int decodeWithDecoder(CharsetDecoder cd, char[] dst, ByteBuffer bb) {
         CharBuffer cb = CharBuffer.wrap(dst, 0, dst.length);
         try {
             CoderResult cr = cd.decode(bb, cb, true);
@@ -982,6 +991,99 @@ public class InlineString
         this(bytes, 0, bytes.length);
     }
 
+    /**
+     * Constructs a new {@code String} by decoding the remaining bytes of the
+     * specified buffer, from its position to its limit, using the specified
+     * {@linkplain java.nio.charset.Charset charset}. The position of the
+     * buffer is not changed.
+     *
+     * <p> The bytes of a direct buffer are never copied to a temporary
+     * array: ISO-8859-1 input, and UTF-8 and US-ASCII input without negative
+     * bytes, are copied straight into the value of the new string, any other
+     * input is decoded from the buffer. The bytes of a buffer backed by an
+     * accessible array are decoded in place.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement string.
+     *
+     * @param  bytes
+     *         The buffer whose remaining bytes are to be decoded
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset charset} to be used to
+     *         decode the {@code bytes}
+     */
+    public InlineString(ByteBuffer bytes, Charset charset) {
+        this(decode(bytes, charset), null);
+    }
+
+    /**
+     * Constructs a new {@code String} by decoding the content of the
+     * specified memory segment using the specified
+     * {@linkplain java.nio.charset.Charset charset}, in the same way as
+     * {@link #InlineString(ByteBuffer, Charset)}.
+     *
+     * @param  bytes
+     *         The segment to be decoded
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset charset} to be used to
+     *         decode the {@code bytes}
+     *
+     * @throws  UnsupportedOperationException
+     *          If the segment is larger than {@code Integer.MAX_VALUE} bytes
+     */
+    public InlineString(MemorySegment bytes, Charset charset) {
+        this(decode(bytes.asByteBuffer(), charset), null);
+    }
+
+    // Decode the remaining bytes of the buffer without moving its position
+    private static InlineString decode(ByteBuffer bytes, Charset charset) {
+        Objects.requireNonNull(charset);
+        int position = bytes.position();
+        int length = bytes.remaining();
+        if (bytes.hasArray()) {
+            return new InlineString(bytes.array(), bytes.arrayOffset() + position, length, charset);
+        } else if (length == 0) {
+            return EMPTY_STRING;
+        } else if (charset == StandardCharsets.ISO_8859_1 || ((charset == StandardCharsets.UTF_8
+                || charset == StandardCharsets.US_ASCII) && !hasNegatives(bytes, position, length))) {
+            // Each byte is a char, the copy of the bytes is the final value
+            byte[] dst = new byte[length];
+            bytes.get(position, dst);
+            if (Utils.COMPACT_STRINGS) {
+                return new InlineString(dst, Utils.LATIN1);
+            }
+            return new InlineString(dst, 0, length, charset);
+        } else {
+            // Decode from the buffer rather than from a copy of the bytes on
+            // the heap
+            CharsetDecoder cd = charset.newDecoder();
+            cd.onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            char[] ca = new char[scale(length, cd.maxCharsPerByte())];
+            int caLen = decodeWithDecoder(cd, ca, bytes.duplicate());
+            return new InlineString(ca, 0, caLen, null);
+        }
+    }
+
+    // Whether any of the length bytes of the buffer from index is negative,
+    // they are read 8 at a time
+    private static boolean hasNegatives(ByteBuffer bytes, int index, int length) {
+        int end = index + length;
+        for (; index <= end - Long.BYTES; index += Long.BYTES) {
+            if ((bytes.getLong(index) & 0x8080808080808080L) != 0) {
+                return true;
+            }
+        }
+        for (; index < end; index++) {
+            if (bytes.get(index) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Allocates a new string that contains the sequence of characters
      * currently contained in the string buffer argument. The contents of the
@@ -1290,6 +1392,398 @@ public class InlineString
         return encode(Charset.defaultCharset(), coder(), value);
     }
 
+    /**
+     * Returns the number of bytes this {@code String} is encoded into using
+     * the given {@linkplain java.nio.charset.Charset charset}, that is the
+     * length of the array returned by {@link #getBytes(Charset)}.
+     *
+     * <p> For UTF-8, ISO-8859-1 and US-ASCII the length is computed without
+     * encoding the string, other charsets encode it into a new array.
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset} to be used to encode
+     *         the {@code String}
+     *
+     * @return  The number of bytes of the encoded string
+     */
+    public int encodedLength(Charset charset) {
+        Objects.requireNonNull(charset);
+        if (charset == StandardCharsets.UTF_8) {
+            return encodedLengthUTF8(coder(), value);
+        } else if (charset == StandardCharsets.ISO_8859_1 || charset == StandardCharsets.US_ASCII) {
+            return encodedLength8Bit(coder(), value);
+        } else {
+            return encode(charset, coder(), value).length;
+        }
+    }
+
+    /**
+     * Encodes this {@code String} using the given
+     * {@linkplain java.nio.charset.Charset charset} into the specified array,
+     * starting at index {@code off}. The bytes written are the same as the
+     * ones returned by {@link #getBytes(Charset)}, but no array is
+     * allocated.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement byte array.
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset} to be used to encode
+     *         the {@code String}
+     *
+     * @param  dst
+     *         The destination array
+     *
+     * @param  off
+     *         The index of {@code dst} at which to write the first byte
+     *
+     * @return  The number of bytes written
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If {@code off} is negative or greater than {@code dst.length},
+     *          or if the encoded string does not fit in {@code dst} after
+     *          {@code off}, the content of {@code dst} after {@code off} is
+     *          then unspecified
+     */
+    public int encodeTo(Charset charset, byte[] dst, int off) {
+        Objects.requireNonNull(charset);
+        checkOffset(off, dst.length);
+        int n = encodeTo(charset, coder(), value, dst, off, dst.length);
+        if (n < 0) {
+            throw new IndexOutOfBoundsException("The encoded string does not fit in the array");
+        }
+        return n;
+    }
+
+    /**
+     * Encodes this {@code String} using the given
+     * {@linkplain java.nio.charset.Charset charset} into the specified
+     * buffer, starting at its position, which is then advanced past the
+     * bytes written. The bytes written are the same as the ones returned by
+     * {@link #getBytes(Charset)}.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement byte array.
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset} to be used to encode
+     *         the {@code String}
+     *
+     * @param  dst
+     *         The destination buffer
+     *
+     * @return  The number of bytes written
+     *
+     * @throws  BufferOverflowException
+     *          If the encoded string does not fit in the remaining bytes of
+     *          the buffer, the position of the buffer is then unchanged but
+     *          the content of its remaining bytes is unspecified
+     *
+     * @throws  ReadOnlyBufferException
+     *          If the buffer is read-only
+     */
+    public int encodeTo(Charset charset, ByteBuffer dst) {
+        Objects.requireNonNull(charset);
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        int position = dst.position();
+        int n;
+        if (dst.hasArray()) {
+            int off = dst.arrayOffset();
+            n = encodeTo(charset, coder(), value, dst.array(), off + position, off + dst.limit());
+        } else {
+            n = encodeToDirect(charset, dst);
+        }
+        if (n < 0) {
+            throw new BufferOverflowException();
+        }
+        dst.position(position + n);
+        return n;
+    }
+
+    // Encode into dst between dp and dl, return the number of bytes written,
+    // or -1 if they do not fit
+    private static int encodeTo(Charset cs, byte coder, byte[] val, byte[] dst, int dp, int dl) {
+        if (cs == StandardCharsets.UTF_8) {
+            return encodeUTF8To(coder, val, dst, dp, dl);
+        } else if (cs == StandardCharsets.ISO_8859_1) {
+            return encode8859_1To(coder, val, dst, dp, dl);
+        } else if (cs == StandardCharsets.US_ASCII) {
+            return encodeASCIITo(coder, val, dst, dp, dl);
+        } else {
+            return encodeWithEncoderTo(cs, coder, val, dst, dp, dl);
+        }
+    }
+
+    // Encode into the remaining bytes of a buffer without an accessible
+    // array, leaving its position unchanged
+    private int encodeToDirect(Charset cs, ByteBuffer dst) {
+        int position = dst.position();
+        if (isLatin1() && (cs == StandardCharsets.ISO_8859_1
+                || ((cs == StandardCharsets.UTF_8 || cs == StandardCharsets.US_ASCII)
+                        && !StringCoding.hasNegatives(value, 0, value.length)))) {
+            if (dst.remaining() < value.length) {
+                return -1;
+            }
+            dst.put(position, value);
+            return value.length;
+        }
+        CharsetEncoder ce = cs.newEncoder();
+        ce.onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            CharBuffer cb = CharBuffer.wrap(this);
+            CoderResult cr = ce.encode(cb, dst, true);
+            if (cr.isUnderflow()) {
+                cr = ce.flush(dst);
+            }
+            if (cr.isOverflow()) {
+                return -1;
+            } else if (!cr.isUnderflow()) {
+                cr.throwException();
+            }
+            return dst.position() - position;
+        } catch (CharacterCodingException x) {
+            // Substitution is always enabled,
+            // so this shouldn't happen
+            throw new Error(x);
+        } finally {
+            dst.position(position);
+        }
+    }
+
+    private static int encodeWithEncoderTo(Charset cs, byte coder, byte[] val, byte[] dst, int dp, int dl) {
+        CharsetEncoder ce = cs.newEncoder();
+        int len = val.length >> coder;
+        if (len == 0) {
+            return 0;
+        }
+        // fastpath for ascii compatible
+        if (coder == Utils.LATIN1 && ArrayEncoders.isInstance(ce) && ArrayEncoders.isAsciiCompatible(ce)
+                && !StringCoding.hasNegatives(val, 0, val.length)) {
+            if (dl - dp < val.length) {
+                return -1;
+            }
+            System.arraycopy(val, 0, dst, dp, val.length);
+            return val.length;
+        }
+        ce.onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // The array encoders write from the start of the destination and
+        // need room for the longest possible result
+        if (dp == 0 && dl == dst.length && dl >= scale(len, ce.maxBytesPerChar())
+                && ArrayEncoders.isInstance(ce)) {
+            int blen = (coder == Utils.LATIN1) ? ArrayEncoders.encodeFromLatin1(ce, val, 0, len, dst)
+                    : ArrayEncoders.encodeFromUTF16(ce, val, 0, len, dst);
+            if (blen != -1) {
+                return blen;
+            }
+        }
+        char[] ca = (coder == Utils.LATIN1 ) ? StringLatin1.toChars(val)
+                : StringUTF16.toChars(val);
+        ByteBuffer bb = ByteBuffer.wrap(dst, dp, dl - dp);
+        CharBuffer cb = CharBuffer.wrap(ca, 0, len);
+        try {
+            CoderResult cr = ce.encode(cb, bb, true);
+            if (cr.isUnderflow()) {
+                cr = ce.flush(bb);
+            }
+            if (cr.isOverflow()) {
+                return -1;
+            } else if (!cr.isUnderflow()) {
+                cr.throwException();
+            }
+        } catch (CharacterCodingException x) {
+            throw new Error(x);
+        }
+        return bb.position() - dp;
+    }
+
+    private static int encodeASCIITo(byte coder, byte[] val, byte[] dst, int dp, int dl) {
+        if (coder == Utils.LATIN1) {
+            if (dl - dp < val.length) {
+                return -1;
+            }
+            for (int i = 0; i < val.length; i++) {
+                byte c = val[i];
+                dst[dp + i] = c < 0 ? (byte)'?' : c;
+            }
+            return val.length;
+        }
+        int len = val.length >> 1;
+        if (dl - dp < len && dl - dp < encodedLength8Bit(coder, val)) {
+            return -1;
+        }
+        int start = dp;
+        for (int i = 0; i < len; i++) {
+            char c = StringUTF16.getChar(val, i);
+            if (c < 0x80) {
+                dst[dp++] = (byte)c;
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < len &&
+                    Character.isLowSurrogate(StringUTF16.getChar(val, i + 1))) {
+                i++;
+            }
+            dst[dp++] = '?';
+        }
+        return dp - start;
+    }
+
+    private static int encode8859_1To(byte coder, byte[] val, byte[] dst, int dp, int dl) {
+        if (coder == Utils.LATIN1) {
+            if (dl - dp < val.length) {
+                return -1;
+            }
+            System.arraycopy(val, 0, dst, dp, val.length);
+            return val.length;
+        }
+        int len = val.length >> 1;
+        if (dl - dp < len && dl - dp < encodedLength8Bit(coder, val)) {
+            return -1;
+        }
+        int start = dp;
+        int sp = 0;
+        int sl = len;
+        while (sp < sl) {
+            int ret = StringCoding.implEncodeISOArray(val, sp, dst, dp, len);
+            sp = sp + ret;
+            dp = dp + ret;
+            if (ret != len) {
+                char c = StringUTF16.getChar(val, sp++);
+                if (Character.isHighSurrogate(c) && sp < sl &&
+                        Character.isLowSurrogate(StringUTF16.getChar(val, sp))) {
+                    sp++;
+                }
+                dst[dp++] = '?';
+                len = sl - sp;
+            }
+        }
+        return dp - start;
+    }
+
+    private static int encodeUTF8To(byte coder, byte[] val, byte[] dst, int dp, int dl) {
+        int start = dp;
+        if (coder == Utils.LATIN1) {
+            if (!StringCoding.hasNegatives(val, 0, val.length)) {
+                if (dl - dp < val.length) {
+                    return -1;
+                }
+                System.arraycopy(val, 0, dst, dp, val.length);
+                return val.length;
+            }
+            if (dl - dp < (long) val.length << 1 && dl - dp < encodedLengthUTF8(coder, val)) {
+                return -1;
+            }
+            for (byte c : val) {
+                if (c < 0) {
+                    dst[dp++] = (byte) (0xc0 | ((c & 0xff) >> 6));
+                    dst[dp++] = (byte) (0x80 | (c & 0x3f));
+                } else {
+                    dst[dp++] = c;
+                }
+            }
+            return dp - start;
+        }
+        int sp = 0;
+        int sl = val.length >> 1;
+        if (dl - dp < (long) sl * 3 && dl - dp < encodedLengthUTF8(coder, val)) {
+            return -1;
+        }
+        char c;
+        while (sp < sl && (c = StringUTF16.getChar(val, sp)) < '\u0080') {
+            // ascii fast loop;
+            dst[dp++] = (byte)c;
+            sp++;
+        }
+        while (sp < sl) {
+            c = StringUTF16.getChar(val, sp++);
+            if (c < 0x80) {
+                dst[dp++] = (byte)c;
+            } else if (c < 0x800) {
+                dst[dp++] = (byte)(0xc0 | (c >> 6));
+                dst[dp++] = (byte)(0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                int uc = -1;
+                char c2;
+                if (Character.isHighSurrogate(c) && sp < sl &&
+                        Character.isLowSurrogate(c2 = StringUTF16.getChar(val, sp))) {
+                    uc = Character.toCodePoint(c, c2);
+                }
+                if (uc < 0) {
+                    dst[dp++] = '?';
+                } else {
+                    dst[dp++] = (byte)(0xf0 | ((uc >> 18)));
+                    dst[dp++] = (byte)(0x80 | ((uc >> 12) & 0x3f));
+                    dst[dp++] = (byte)(0x80 | ((uc >>  6) & 0x3f));
+                    dst[dp++] = (byte)(0x80 | (uc & 0x3f));
+                    sp++;  // 2 chars
+                }
+            } else {
+                // 3 bytes, 16 bits
+                dst[dp++] = (byte)(0xe0 | ((c >> 12)));
+                dst[dp++] = (byte)(0x80 | ((c >>  6) & 0x3f));
+                dst[dp++] = (byte)(0x80 | (c & 0x3f));
+            }
+        }
+        return dp - start;
+    }
+
+    private static int encodedLengthUTF8(byte coder, byte[] val) {
+        if (coder == Utils.LATIN1) {
+            int n = val.length;
+            if (StringCoding.hasNegatives(val, 0, val.length)) {
+                for (byte c : val) {
+                    if (c < 0) {
+                        n++;
+                    }
+                }
+            }
+            return n;
+        }
+        int n = 0;
+        int sl = val.length >> 1;
+        for (int sp = 0; sp < sl; sp++) {
+            char c = StringUTF16.getChar(val, sp);
+            if (c < 0x80) {
+                n += 1;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && sp + 1 < sl &&
+                        Character.isLowSurrogate(StringUTF16.getChar(val, sp + 1))) {
+                    n += 4;
+                    sp++;
+                } else {
+                    // replaced by '?'
+                    n += 1;
+                }
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    // ISO-8859-1 and US-ASCII encode each char into a byte, except for the
+    // surrogate pairs which are replaced by a single '?'
+    private static int encodedLength8Bit(byte coder, byte[] val) {
+        if (coder == Utils.LATIN1) {
+            return val.length;
+        }
+        int sl = val.length >> 1;
+        int n = sl;
+        for (int sp = 0; sp + 1 < sl; sp++) {
+            if (Character.isHighSurrogate(StringUTF16.getChar(val, sp)) &&
+                    Character.isLowSurrogate(StringUTF16.getChar(val, sp + 1))) {
+                n--;
+                sp++;
+            }
+        }
+        return n;
+    }
+
     /**
      * Compares this string to another string.  The result is {@code
      * true} if and only if the argument represents the same sequence
@@ -1801,6 +2295,19 @@ public class InlineString
                 : StringUTF16.hashCode(value);
     }
 
+    /**
+     * Returns this string paired with its hash code. Keys that are looked
+     * up repeatedly should be hashed once using this method so that
+     * subsequent lookups do not need to rescan the string.
+     *
+     * @return  a {@code HashedInlineString} wrapping this string
+     * @see     FastStringMap#getInline(HashedInlineString)
+     * @see     InlineStringHashMap#getPrimitive(HashedInlineString)
+     */
+    public HashedInlineString hashed() {
+        return new HashedInlineString(this);
+    }
+
     /**
      * Returns the index within this string of the first occurrence of
      * the specified character. If a character with index
@@ -2164,6 +2671,26 @@ public class InlineString
                 : StringUTF16.newString(value, beginIndex, subLen);
     }
 
+    /**
+     * Returns a slice of this string, which shares the array of this string
+     * instead of copying the characters like {@link #substring(int, int)}.
+     *
+     * @param      beginIndex   the beginning index, inclusive.
+     * @param      endIndex     the ending index, exclusive.
+     * @return     the specified slice.
+     * @throws     IndexOutOfBoundsException  if the
+     *             {@code beginIndex} is negative, or
+     *             {@code endIndex} is larger than the length of
+     *             this {@code String} object, or
+     *             {@code beginIndex} is larger than
+     *             {@code endIndex}.
+     * @see        InlineStringSlice#materialize()
+     */
+    public InlineStringSlice slice(int beginIndex, int endIndex) {
+        checkBoundsBeginEnd(beginIndex, endIndex, length());
+        return new InlineStringSlice(value, coder(), beginIndex, endIndex - beginIndex);
+    }
+
     /**
      * Returns a character sequence that is a subsequence of this sequence.
      *
@@ -2220,6 +2747,23 @@ public class InlineString
         return StringConcatHelper.simpleConcat(this, str);
     }
 
+    /**
+     * Concatenates the specified strings, in order.
+     * <p>
+     * The length of the result is computed first, so that the characters of
+     * all the strings are copied into a single new array. If at most one of
+     * the strings is not empty, then that string, or the empty string, is
+     * returned without copying.
+     *
+     * @param   strs  the strings to be concatenated.
+     * @return  a string that represents the concatenation of the characters
+     *          of the arguments.
+     * @see     InlineStringConcatFactory
+     */
+    public static InlineString concat(InlineString... strs) {
+        return StringConcatHelper.concat(strs);
+    }
+
     /**
      * Returns a string resulting from replacing all occurrences of
      * {@code oldChar} in this string with {@code newChar}.
@@ -2297,9 +2841,23 @@ public class InlineString
      * @since 1.5
      */
     public boolean contains(CharSequence s) {
+        if (s instanceof InlineString str) {
+            return contains(str);
+        }
         return indexOf(new InlineString(s.toString())) >= 0;
     }
 
+    /**
+     * Returns true if and only if this string contains the specified
+     * string.
+     *
+     * @param s the string to search for
+     * @return true if this string contains {@code s}, false otherwise
+     */
+    public boolean contains(InlineString s) {
+        return indexOf(s) >= 0;
+    }
+
     /**
      * Replaces the first substring of this string that matches the given <a
      * href="../util/regex/Pattern.html#sum">regular expression</a> with the
@@ -2669,6 +3227,75 @@ public class InlineString
         return split(regex, 0);
     }
 
+    /**
+     * Splits this string around the occurrences of the given delimiter into
+     * the given array, and returns the number of substrings.
+     *
+     * <p> The substrings are the same as the ones of
+     * {@code split(Pattern.quote(String.valueOf(delimiter)), dst.length)},
+     * the array is filled with at most {@code dst.length} substrings, the
+     * last one of which then extends to the end of this string. This allows
+     * only the first fields of a string to be extracted, without allocating
+     * an array for each call.
+     *
+     * @param  delimiter
+     *         the delimiting character
+     *
+     * @param  dst
+     *         the array to fill with the substrings
+     *
+     * @return  the number of substrings written at the beginning of
+     *          {@code dst}, which is {@code 0} only if {@code dst} is empty
+     */
+    public int split(char delimiter, InlineString[] dst) {
+        int limit = dst.length;
+        if (limit == 0) {
+            return 0;
+        }
+        int off = 0;
+        int next;
+        int i = 0;
+        while (i < limit - 1 && (next = indexOf(delimiter, off)) != -1) {
+            dst[i++] = substring(off, next);
+            off = next + 1;
+        }
+        dst[i++] = substring(off);
+        return i;
+    }
+
+    /**
+     * Returns an iterator over the substrings of this string separated by the
+     * given delimiter. Each substring is only created when it is reached.
+     *
+     * <p> The substrings are the same as the ones of
+     * {@code split(Pattern.quote(String.valueOf(delimiter)), -1)}, that is,
+     * trailing empty strings are included, and a string which does not
+     * contain the delimiter has this string as its only substring.
+     *
+     * @param  delimiter
+     *         the delimiting character
+     *
+     * @return  an iterator over the substrings of this string
+     */
+    public Iterator<InlineString.ref> splitIterator(char delimiter) {
+        return new SplitSpliterator(this, delimiter, 0, length());
+    }
+
+    /**
+     * Returns a spliterator over the substrings of this string separated by
+     * the given delimiter, as returned by {@link #splitIterator(char)}. It
+     * splits around a delimiter near the middle of its range, so that a
+     * parallel stream can process large strings.
+     *
+     * @param  delimiter
+     *         the delimiting character
+     *
+     * @return  a spliterator over the substrings of this string
+     */
+    public Spliterator<InlineString.ref> splitSpliterator(char delimiter) {
+        return new SplitSpliterator(this, delimiter, 0, length());
+    }
+
     /**
      * Returns a new String composed of copies of the
      * {@code CharSequence elements} joined together with a copy of
@@ -2714,20 +3341,41 @@ public class InlineString
      * @return the joined string
      */
     static InlineString join(InlineString prefix, InlineString suffix, InlineString delimiter, InlineString[] elements, int size) {
-        int icoder = prefix.coder() | suffix.coder();
+        // max: (long) Integer.MAX_VALUE * Integer.MAX_VALUE
+        long elementsLength = 0;
+        int elementsCoder = 0;
+        for (int i = 0; i < size; i++) {
+            var el = elements[i];
+            elementsLength += el.length();
+            elementsCoder |= el.coder();
+        }
+        return join(prefix, suffix, delimiter, elements, size, elementsLength, elementsCoder);
+    }
+
+    /**
+     * Join routine for callers which have already accumulated the lengths
+     * and the coders of the elements.
+     *
+     * @param prefix the non-null prefix
+     * @param suffix the non-null suffix
+     * @param delimiter the non-null delimiter
+     * @param elements the non-null array of non-null elements
+     * @param size the number of elements in the array (<= elements.length)
+     * @param elementsLength the sum of the lengths of the elements
+     * @param elementsCoder the bitwise or of the coders of the elements
+     * @return the joined string
+     */
+    static InlineString join(InlineString prefix, InlineString suffix, InlineString delimiter, InlineString[] elements, int size,
+                             long elementsLength, int elementsCoder) {
+        int icoder = prefix.coder() | suffix.coder() | elementsCoder;
         long len = (long) prefix.length() + suffix.length();
         if (size > 1) { // when there are more than one element, size - 1 delimiters will be emitted
             len += (long) (size - 1) * delimiter.length();
             icoder |= delimiter.coder();
         }
         // assert len > 0L; // max: (long) Integer.MAX_VALUE << 32
-        // following loop wil add max: (long) Integer.MAX_VALUE * Integer.MAX_VALUE to len
-        // so len can overflow at most once
-        for (int i = 0; i < size; i++) {
-            var el = elements[i];
-            len += el.length();
-            icoder |= el.coder();
-        }
+        // adding elementsLength can overflow at most once
+        len += elementsLength;
         byte coder = (byte) icoder;
         // long len overflow check, char -> byte length, int len overflow check
         if (len < 0L || (len <<= coder) != (int) len) {
@@ -3936,6 +4584,16 @@ public class InlineString
         this.value = StringUTF16.toBytes(value, off, len);
     }
 
+    /*
+     * Private constructor copying the fields of a string computed by a
+     * static method. Trailing Void argument is there for disambiguating it
+     * against other constructors.
+     */
+    private InlineString(InlineString other, Void sig) {
+        this.value = other.value;
+        this.coder = other.coder;
+    }
+
     /*
      * Package private constructor which shares index array for speed.
      */
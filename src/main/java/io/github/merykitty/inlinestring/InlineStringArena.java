@@ -0,0 +1,378 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.ValueLayout;
+
+import io.github.merykitty.inlinestring.internal.Utils;
+
+/**
+ * An append-only store of strings outside of the Java heap.
+ *
+ * <p>The bytes and the coder of each string added to the arena are copied
+ * into large {@link MemorySegment} chunks, either native memory or regions
+ * of a memory-mapped file, and the string is identified by a {@code long}
+ * handle afterwards. Handles cost nothing to the garbage collector, so a
+ * corpus of hundreds of millions of strings can be kept in an arena
+ * without the array headers and the marking work of as many
+ * {@code byte[]}s. An {@link InlineString} is only created when
+ * {@link #get(long)} is called, the other operations work directly on the
+ * bytes in the arena.
+ *
+ * <p>Strings must be added by a single thread at a time. The other
+ * operations may be called from any thread on the handles that were
+ * safely published to it. Closing the arena releases all of its memory
+ * and invalidates its handles.
+ */
+public final class InlineStringArena implements AutoCloseable {
+    private static final long DEFAULT_CHUNK_SIZE = 1L << 26;
+    // The offset of a string in its chunk takes the low 32 bits of a handle
+    private static final long MAX_CHUNK_SIZE = 1L << 32;
+
+    // Each string starts with its hash code then its length in bytes with
+    // the coder in the sign bit, the entries are padded to a multiple of 4
+    // to keep the headers aligned
+    private static final int HEADER_SIZE = 8;
+    private static final long LENGTH_OFFSET = 4;
+
+    private final ResourceScope scope;
+    private final long chunkSize;
+    // The backing file, or null if the chunks are in native memory
+    private final Path file;
+    private long mappedSize;
+
+    private MemorySegment[] chunks;
+    private int chunkCount;
+    private long position;
+    private long count;
+    private long byteSize;
+
+    private InlineStringArena(long chunkSize, Path file) {
+        if (chunkSize < HEADER_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Illegal chunk size: " + chunkSize);
+        }
+        this.scope = ResourceScope.newSharedScope();
+        this.chunkSize = (chunkSize + 3) & ~3L;
+        this.file = file;
+        this.chunks = new MemorySegment[16];
+    }
+
+    /**
+     * Creates an arena allocating its chunks in native memory.
+     *
+     * @return  a new empty arena
+     */
+    public static InlineStringArena ofNative() {
+        return new InlineStringArena(DEFAULT_CHUNK_SIZE, null);
+    }
+
+    /**
+     * Creates an arena allocating chunks of the specified size in native
+     * memory, a string larger than a chunk gets a chunk of its own.
+     *
+     * @param   chunkSize
+     *          The size of a chunk in bytes, at most {@code 2^32}
+     * @return  a new empty arena
+     */
+    public static InlineStringArena ofNative(long chunkSize) {
+        return new InlineStringArena(chunkSize, null);
+    }
+
+    /**
+     * Creates an arena whose chunks are consecutive regions of the
+     * specified file mapped into memory, the file is created if it does not
+     * exist and grows with the arena. The file only backs the memory of the
+     * arena, its content can not be opened again as an arena.
+     *
+     * @param   file
+     *          The backing file
+     * @param   chunkSize
+     *          The size of a chunk in bytes, at most {@code 2^32}
+     * @return  a new empty arena
+     * @throws  IOException
+     *          If the file can not be created or opened
+     */
+    public static InlineStringArena ofMappedFile(Path file, long chunkSize) throws IOException {
+        FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE).close();
+        return new InlineStringArena(chunkSize, file);
+    }
+
+    /**
+     * Copies the specified string into the arena.
+     *
+     * @param   s
+     *          The string to add
+     * @return  the handle of the copy
+     * @throws  UncheckedIOException
+     *          If the arena is backed by a file which can not be extended
+     */
+    public long add(InlineString s) {
+        byte[] value = s.value();
+        byte coder = s.coder();
+        long entrySize = (HEADER_SIZE + (long) value.length + 3) & ~3L;
+        if (chunkCount == 0 || position + entrySize > chunks[chunkCount - 1].byteSize()) {
+            newChunk(entrySize);
+        }
+        var segment = chunks[chunkCount - 1];
+        long offset = position;
+        segment.set(ValueLayout.JAVA_INT, offset, s.hashCode());
+        segment.set(ValueLayout.JAVA_INT, offset + LENGTH_OFFSET, value.length | coder << 31);
+        MemorySegment.copy(value, 0, segment, ValueLayout.JAVA_BYTE, offset + HEADER_SIZE, value.length);
+        position = offset + entrySize;
+        count++;
+        byteSize += entrySize;
+        return (long) (chunkCount - 1) << 32 | offset;
+    }
+
+    /**
+     * Creates an {@code InlineString} with the content of the string of
+     * the specified handle.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @return  the string of the handle
+     */
+    public InlineString get(long handle) {
+        var segment = chunk(handle);
+        long offset = offset(handle);
+        int lengthCoder = segment.get(ValueLayout.JAVA_INT, offset + LENGTH_OFFSET);
+        byte[] value = new byte[byteLength(lengthCoder)];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset + HEADER_SIZE, value, 0, value.length);
+        return new InlineString(value, coder(lengthCoder));
+    }
+
+    /**
+     * Returns the length of the string of the specified handle, in
+     * {@code char}s.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @return  the length of the string
+     */
+    public int length(long handle) {
+        int lengthCoder = chunk(handle).get(ValueLayout.JAVA_INT, offset(handle) + LENGTH_OFFSET);
+        return byteLength(lengthCoder) >> coder(lengthCoder);
+    }
+
+    /**
+     * Returns the {@code char} at the specified index of the string of the
+     * specified handle.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @param   index
+     *          The index of the {@code char}
+     * @return  the {@code char} at the index
+     * @throws  StringIndexOutOfBoundsException
+     *          If the index is negative or not less than the length of the
+     *          string
+     */
+    public char charAt(long handle, int index) {
+        var segment = chunk(handle);
+        long offset = offset(handle);
+        int lengthCoder = segment.get(ValueLayout.JAVA_INT, offset + LENGTH_OFFSET);
+        byte coder = coder(lengthCoder);
+        InlineString.checkIndex(index, byteLength(lengthCoder) >> coder);
+        return charAt(segment, offset, coder, index);
+    }
+
+    /**
+     * Returns the hash code of the string of the specified handle, it is
+     * stored in the arena so this does not read the string.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @return  the hash code of the string, the same as
+     *          {@code get(handle).hashCode()}
+     */
+    public int hashCode(long handle) {
+        return chunk(handle).get(ValueLayout.JAVA_INT, offset(handle));
+    }
+
+    /**
+     * Compares the strings of the specified handles for equality.
+     *
+     * @param   a
+     *          A handle returned by {@link #add(InlineString)}
+     * @param   b
+     *          A handle returned by {@link #add(InlineString)}
+     * @return  {@code true} if the strings are equal
+     */
+    public boolean equals(long a, long b) {
+        if (a == b) {
+            return true;
+        }
+        var sa = chunk(a);
+        long oa = offset(a);
+        var sb = chunk(b);
+        long ob = offset(b);
+        int lengthCoder = sa.get(ValueLayout.JAVA_INT, oa + LENGTH_OFFSET);
+        if (sa.get(ValueLayout.JAVA_INT, oa) != sb.get(ValueLayout.JAVA_INT, ob)
+                || lengthCoder != sb.get(ValueLayout.JAVA_INT, ob + LENGTH_OFFSET)) {
+            return false;
+        }
+        int length = byteLength(lengthCoder);
+        return sa.asSlice(oa + HEADER_SIZE, length).mismatch(sb.asSlice(ob + HEADER_SIZE, length)) == -1;
+    }
+
+    /**
+     * Compares the string of the specified handle to the specified string.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @param   s
+     *          The string to compare against
+     * @return  {@code true} if the strings are equal
+     */
+    public boolean equals(long handle, InlineString s) {
+        var segment = chunk(handle);
+        long offset = offset(handle);
+        byte[] value = s.value();
+        if (segment.get(ValueLayout.JAVA_INT, offset + LENGTH_OFFSET) != (value.length | s.coder() << 31)) {
+            return false;
+        }
+        return segment.asSlice(offset + HEADER_SIZE, value.length).mismatch(MemorySegment.ofArray(value)) == -1;
+    }
+
+    /**
+     * Compares the string of the specified handle to the specified string,
+     * the precomputed hash code is compared first.
+     *
+     * @param   handle
+     *          A handle returned by {@link #add(InlineString)}
+     * @param   s
+     *          The string to compare against
+     * @return  {@code true} if the strings are equal
+     */
+    public boolean equals(long handle, HashedInlineString s) {
+        return hashCode(handle) == s.hash() && equals(handle, s.string());
+    }
+
+    /**
+     * Compares the strings of the specified handles lexicographically, the
+     * result is the same as {@code get(a).compareTo(get(b))}.
+     *
+     * @param   a
+     *          A handle returned by {@link #add(InlineString)}
+     * @param   b
+     *          A handle returned by {@link #add(InlineString)}
+     * @return  a negative integer, zero, or a positive integer as the
+     *          string of {@code a} is less than, equal to, or greater than
+     *          the string of {@code b}
+     */
+    public int compare(long a, long b) {
+        var sa = chunk(a);
+        long oa = offset(a);
+        var sb = chunk(b);
+        long ob = offset(b);
+        int lengthCoderA = sa.get(ValueLayout.JAVA_INT, oa + LENGTH_OFFSET);
+        int lengthCoderB = sb.get(ValueLayout.JAVA_INT, ob + LENGTH_OFFSET);
+        byte coderA = coder(lengthCoderA);
+        byte coderB = coder(lengthCoderB);
+        int lengthA = byteLength(lengthCoderA) >> coderA;
+        int lengthB = byteLength(lengthCoderB) >> coderB;
+        int i = 0;
+        if (coderA == coderB) {
+            // Find the first differing byte in bulk, then compare the chars
+            // from the one containing it
+            long mismatch = sa.asSlice(oa + HEADER_SIZE, byteLength(lengthCoderA))
+                    .mismatch(sb.asSlice(ob + HEADER_SIZE, byteLength(lengthCoderB)));
+            if (mismatch == -1) {
+                return 0;
+            }
+            i = (int) (mismatch >> coderA);
+        }
+        for (int limit = Math.min(lengthA, lengthB); i < limit; i++) {
+            char c1 = charAt(sa, oa, coderA, i);
+            char c2 = charAt(sb, ob, coderB, i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * Returns the number of strings added to the arena.
+     *
+     * @return  the number of strings in the arena
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes taken by the strings in the arena,
+     * including their headers but not the unused tails of the chunks.
+     *
+     * @return  the number of bytes used
+     */
+    public long byteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Releases all the memory of the arena, the handles must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        scope.close();
+        chunks = null;
+    }
+
+    private MemorySegment chunk(long handle) {
+        return chunks[(int) (handle >>> 32)];
+    }
+
+    private static long offset(long handle) {
+        return handle & 0xFFFFFFFFL;
+    }
+
+    private static int byteLength(int lengthCoder) {
+        return lengthCoder & Integer.MAX_VALUE;
+    }
+
+    private static byte coder(int lengthCoder) {
+        return (byte) (lengthCoder >>> 31);
+    }
+
+    private static char charAt(MemorySegment segment, long offset, byte coder, int index) {
+        if (coder == Utils.LATIN1) {
+            return (char) (segment.get(ValueLayout.JAVA_BYTE, offset + HEADER_SIZE + index) & 0xFF);
+        } else {
+            // UTF16 strings are stored in the native byte order
+            return segment.get(ValueLayout.JAVA_CHAR, offset + HEADER_SIZE + ((long) index << 1));
+        }
+    }
+
+    // Start a new chunk large enough for an entry of the specified size, the
+    // tail of the current chunk is left unused
+    private void newChunk(long minSize) {
+        long size = Math.max(chunkSize, minSize);
+        MemorySegment segment;
+        if (file == null) {
+            segment = MemorySegment.allocateNative(size, Integer.BYTES, scope);
+        } else {
+            try {
+                segment = MemorySegment.mapFile(file, mappedSize, size, FileChannel.MapMode.READ_WRITE, scope);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            mappedSize += size;
+        }
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount << 1);
+        }
+        chunks[chunkCount++] = segment;
+        position = 0;
+    }
+}
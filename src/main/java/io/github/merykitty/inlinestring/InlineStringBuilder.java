@@ -0,0 +1,584 @@
+package io.github.merykitty.inlinestring;
+
+import io.github.merykitty.inlinestring.internal.ArraysSupport;
+import io.github.merykitty.inlinestring.internal.Utils;
+
+import java.util.Arrays;
+
+/**
+ * A mutable sequence of characters building an {@link InlineString}.
+ *
+ * <p>Like {@link StringBuilder}, the characters are stored one byte each as
+ * long as they are all Latin1, and the storage is inflated to UTF16 at the
+ * first character which is not. Strings, characters and primitive values are
+ * appended directly into the storage, without creating intermediate
+ * {@link String}s, and {@link #build()} hands the storage to the resulting
+ * string, copying it only if it is not exactly full.
+ *
+ * <p>Unless otherwise noted, passing a {@code null} argument to a method of
+ * this class will cause a {@link NullPointerException} to be thrown. This
+ * class is not thread-safe.
+ */
+public final class InlineStringBuilder implements Appendable, CharSequence {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private byte[] value;
+    private byte coder;
+    private int count;
+    // Whether value is also the backing array of a built string, in which
+    // case it must be copied before being modified
+    private boolean shared;
+
+    /**
+     * Constructs a builder with no characters in it and an initial capacity
+     * of 16 characters.
+     */
+    public InlineStringBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a builder with no characters in it and the specified
+     * initial capacity.
+     *
+     * @param   capacity
+     *          The initial capacity, in characters
+     * @throws  NegativeArraySizeException
+     *          If {@code capacity} is negative
+     */
+    public InlineStringBuilder(int capacity) {
+        if (Utils.COMPACT_STRINGS) {
+            value = new byte[capacity];
+            coder = Utils.LATIN1;
+        } else {
+            value = StringUTF16.newBytesFor(capacity);
+            coder = Utils.UTF16;
+        }
+    }
+
+    /**
+     * Constructs a builder initialized to the contents of the specified
+     * string, with room for 16 more characters.
+     *
+     * @param   str
+     *          The initial contents of the builder
+     */
+    public InlineStringBuilder(InlineString str) {
+        this(str.length() + DEFAULT_CAPACITY);
+        append(str);
+    }
+
+    /**
+     * Returns the number of characters in this builder.
+     *
+     * @return  the length of the sequence of characters currently
+     *          represented by this builder
+     */
+    @Override
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Returns the number of characters this builder can hold before its
+     * storage is grown.
+     *
+     * @return  the current capacity
+     */
+    public int capacity() {
+        return value.length >> coder;
+    }
+
+    /**
+     * Ensures that the capacity is at least equal to the specified minimum,
+     * this is useful before appending many characters whose total length is
+     * known.
+     *
+     * @param   minimumCapacity
+     *          The minimum desired capacity
+     */
+    public void ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity > 0) {
+            ensureCapacityInternal(minimumCapacity);
+        }
+    }
+
+    /**
+     * Returns the character at the specified index.
+     *
+     * @param   index
+     *          The index of the character
+     * @return  the character at the specified index
+     * @throws  IndexOutOfBoundsException
+     *          If {@code index} is negative or not less than {@code length()}
+     */
+    @Override
+    public char charAt(int index) {
+        InlineString.checkIndex(index, count);
+        if (isLatin1()) {
+            return (char)(value[index] & 0xff);
+        }
+        return StringUTF16.getChar(value, index);
+    }
+
+    /**
+     * Sets the character at the specified index.
+     *
+     * @param   index
+     *          The index of the character to modify
+     * @param   ch
+     *          The new character
+     * @throws  IndexOutOfBoundsException
+     *          If {@code index} is negative or not less than {@code length()}
+     */
+    public void setCharAt(int index, char ch) {
+        InlineString.checkIndex(index, count);
+        if (shared) {
+            unshare(value.length >> coder);
+        }
+        if (isLatin1() && StringLatin1.canEncode(ch)) {
+            value[index] = (byte)ch;
+        } else {
+            if (isLatin1()) {
+                inflate();
+            }
+            StringUTF16.putChar(value, index, ch);
+        }
+    }
+
+    /**
+     * Sets the length of this builder. If the new length is less than the
+     * current one the builder is truncated, otherwise it is extended with
+     * null characters.
+     *
+     * @param   newLength
+     *          The new length
+     * @throws  IndexOutOfBoundsException
+     *          If {@code newLength} is negative
+     */
+    public void setLength(int newLength) {
+        if (newLength < 0) {
+            throw new StringIndexOutOfBoundsException(newLength);
+        }
+        ensureCapacityInternal(newLength);
+        if (count < newLength) {
+            Arrays.fill(value, count << coder, newLength << coder, (byte)0);
+        }
+        count = newLength;
+    }
+
+    /**
+     * Appends the specified string.
+     *
+     * @param   str
+     *          The string to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(InlineString str) {
+        int len = str.length();
+        ensureCapacityInternal(count + len);
+        if (isLatin1() && !str.isLatin1()) {
+            inflate();
+        }
+        str.getBytes(value, count, coder);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Appends the specified character sequence, or {@code "null"} if it is
+     * {@code null}. The contents of {@link String}s, {@link InlineString}s
+     * and other {@code InlineStringBuilder}s are copied without going through
+     * their characters one by one.
+     *
+     * @param   s
+     *          The character sequence to append
+     * @return  this builder
+     */
+    @Override
+    public InlineStringBuilder append(CharSequence s) {
+        if (s == null) {
+            return appendNull();
+        } else if (s instanceof InlineString str) {
+            return append(str);
+        } else if (s instanceof String str) {
+            return appendBytes(Utils.stringValue(str), Utils.stringCoder(str), 0, str.length());
+        } else if (s instanceof InlineStringBuilder sb) {
+            return appendBytes(sb.value, sb.coder, 0, sb.count);
+        }
+        return append(s, 0, s.length());
+    }
+
+    /**
+     * Appends a subsequence of the specified character sequence, or of
+     * {@code "null"} if it is {@code null}.
+     *
+     * @param   s
+     *          The character sequence to append
+     * @param   start
+     *          The index of the first character of the subsequence
+     * @param   end
+     *          The index after the last character of the subsequence
+     * @return  this builder
+     * @throws  IndexOutOfBoundsException
+     *          If {@code start} is negative, or {@code start} is greater
+     *          than {@code end}, or {@code end} is greater than
+     *          {@code s.length()}
+     */
+    @Override
+    public InlineStringBuilder append(CharSequence s, int start, int end) {
+        if (s == null) {
+            s = "null";
+        }
+        InlineString.checkBoundsBeginEnd(start, end, s.length());
+        int len = end - start;
+        ensureCapacityInternal(count + len);
+        int i = start;
+        if (isLatin1()) {
+            for (; i < end; i++) {
+                char c = s.charAt(i);
+                if (!StringLatin1.canEncode(c)) {
+                    inflate();
+                    break;
+                }
+                value[count++] = (byte)c;
+            }
+        }
+        for (; i < end; i++) {
+            StringUTF16.putChar(value, count++, s.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Appends the characters of the specified array.
+     *
+     * @param   str
+     *          The characters to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(char[] str) {
+        return append(str, 0, str.length);
+    }
+
+    /**
+     * Appends a subarray of the specified character array.
+     *
+     * @param   str
+     *          The characters to append
+     * @param   offset
+     *          The index of the first character to append
+     * @param   len
+     *          The number of characters to append
+     * @return  this builder
+     * @throws  IndexOutOfBoundsException
+     *          If {@code offset} or {@code len} is negative, or
+     *          {@code offset + len} is greater than {@code str.length}
+     */
+    public InlineStringBuilder append(char[] str, int offset, int len) {
+        InlineString.checkBoundsOffCount(offset, len, str.length);
+        ensureCapacityInternal(count + len);
+        int end = offset + len;
+        int i = offset;
+        if (isLatin1()) {
+            for (; i < end; i++) {
+                char c = str[i];
+                if (!StringLatin1.canEncode(c)) {
+                    inflate();
+                    break;
+                }
+                value[count++] = (byte)c;
+            }
+        }
+        for (; i < end; i++) {
+            StringUTF16.putChar(value, count++, str[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the specified character.
+     *
+     * @param   c
+     *          The character to append
+     * @return  this builder
+     */
+    @Override
+    public InlineStringBuilder append(char c) {
+        ensureCapacityInternal(count + 1);
+        if (isLatin1() && StringLatin1.canEncode(c)) {
+            value[count++] = (byte)c;
+        } else {
+            if (isLatin1()) {
+                inflate();
+            }
+            StringUTF16.putChar(value, count++, c);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the specified code point, as one character or as a surrogate
+     * pair.
+     *
+     * @param   codePoint
+     *          The code point to append
+     * @return  this builder
+     * @throws  IllegalArgumentException
+     *          If {@code codePoint} is not a valid Unicode code point
+     */
+    public InlineStringBuilder appendCodePoint(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) {
+            return append((char)codePoint);
+        }
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw new IllegalArgumentException(
+                    String.format("Not a valid Unicode code point: 0x%X", codePoint));
+        }
+        ensureCapacityInternal(count + 2);
+        if (isLatin1()) {
+            inflate();
+        }
+        StringUTF16.putChar(value, count++, Character.highSurrogate(codePoint));
+        StringUTF16.putChar(value, count++, Character.lowSurrogate(codePoint));
+        return this;
+    }
+
+    /**
+     * Appends {@code "true"} or {@code "false"}.
+     *
+     * @param   b
+     *          The value to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(boolean b) {
+        if (b) {
+            ensureCapacityInternal(count + 4);
+            putLatin1('t');
+            putLatin1('r');
+            putLatin1('u');
+            putLatin1('e');
+        } else {
+            ensureCapacityInternal(count + 5);
+            putLatin1('f');
+            putLatin1('a');
+            putLatin1('l');
+            putLatin1('s');
+            putLatin1('e');
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of the specified value, which is
+     * the same as the one returned by {@link Integer#toString(int)}.
+     *
+     * @param   i
+     *          The value to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(int i) {
+        return append((long)i);
+    }
+
+    /**
+     * Appends the decimal representation of the specified value, which is
+     * the same as the one returned by {@link Long#toString(long)}.
+     *
+     * @param   l
+     *          The value to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(long l) {
+        int size = stringSize(l);
+        ensureCapacityInternal(count + size);
+        // Work on the negative value so that Long.MIN_VALUE does not overflow
+        long q = l < 0 ? l : -l;
+        int index = count + size;
+        do {
+            long r = q / 10;
+            putLatin1(--index, (char)('0' + r * 10 - q));
+            q = r;
+        } while (q != 0);
+        if (l < 0) {
+            putLatin1(--index, '-');
+        }
+        count += size;
+        return this;
+    }
+
+    /**
+     * Appends the representation of the specified value returned by
+     * {@link Float#toString(float)}.
+     *
+     * @param   f
+     *          The value to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(float f) {
+        return append(Float.toString(f));
+    }
+
+    /**
+     * Appends the representation of the specified value returned by
+     * {@link Double#toString(double)}.
+     *
+     * @param   d
+     *          The value to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(double d) {
+        return append(Double.toString(d));
+    }
+
+    /**
+     * Appends the string representation of the specified object, which is
+     * {@code "null"} if it is {@code null}.
+     *
+     * @param   obj
+     *          The object to append
+     * @return  this builder
+     */
+    public InlineStringBuilder append(Object obj) {
+        if (obj instanceof CharSequence s) {
+            return append(s);
+        }
+        return append(String.valueOf(obj));
+    }
+
+    /**
+     * Returns the string consisting of the characters from {@code start}
+     * to {@code end} of this builder.
+     *
+     * @param   start
+     *          The index of the first character
+     * @param   end
+     *          The index after the last character
+     * @return  the specified subsequence
+     * @throws  IndexOutOfBoundsException
+     *          If {@code start} is negative, or {@code start} is greater
+     *          than {@code end}, or {@code end} is greater than
+     *          {@code length()}
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        InlineString.checkBoundsBeginEnd(start, end, count);
+        if (isLatin1()) {
+            return StringLatin1.newString(value, start, end - start);
+        }
+        return StringUTF16.newString(value, start, end - start);
+    }
+
+    /**
+     * Returns a string containing the characters of this builder. The
+     * storage of the builder is handed to the string if it is exactly full,
+     * it is then copied on the next modification of the builder, otherwise
+     * the characters are copied into a new array.
+     *
+     * @return  a string containing the characters of this builder
+     */
+    public InlineString build() {
+        if (count == 0) {
+            return InlineString.EMPTY_STRING;
+        }
+        if (value.length == count << coder) {
+            shared = true;
+            return new InlineString(value, coder);
+        }
+        return new InlineString(Arrays.copyOf(value, count << coder), coder);
+    }
+
+    /**
+     * Returns a {@link String} containing the characters of this builder.
+     *
+     * @return  a {@code String} containing the characters of this builder
+     */
+    @Override
+    public String toString() {
+        return Utils.newStringValueCoder(Arrays.copyOf(value, count << coder), coder);
+    }
+
+    private boolean isLatin1() {
+        return Utils.COMPACT_STRINGS && coder == Utils.LATIN1;
+    }
+
+    private InlineStringBuilder appendNull() {
+        ensureCapacityInternal(count + 4);
+        putLatin1('n');
+        putLatin1('u');
+        putLatin1('l');
+        putLatin1('l');
+        return this;
+    }
+
+    private InlineStringBuilder appendBytes(byte[] val, byte valCoder, int off, int len) {
+        ensureCapacityInternal(count + len);
+        if (coder == valCoder) {
+            System.arraycopy(val, off << coder, value, count << coder, len << coder);
+        } else if (valCoder == Utils.LATIN1) {
+            StringLatin1.inflate(val, off, value, count, len);
+        } else {
+            inflate();
+            System.arraycopy(val, off << 1, value, count << 1, len << 1);
+        }
+        count += len;
+        return this;
+    }
+
+    // Put a Latin1 character at the end, the capacity must have been ensured
+    private void putLatin1(char c) {
+        putLatin1(count++, c);
+    }
+
+    private void putLatin1(int index, char c) {
+        if (isLatin1()) {
+            value[index] = (byte)c;
+        } else {
+            StringUTF16.putChar(value, index, c);
+        }
+    }
+
+    private void ensureCapacityInternal(int minimumCapacity) {
+        if (minimumCapacity < 0) {
+            throw new OutOfMemoryError("Required length exceeds implementation limit");
+        }
+        int oldCapacity = value.length >> coder;
+        if (minimumCapacity > oldCapacity) {
+            unshare(ArraysSupport.newLength(oldCapacity,
+                    minimumCapacity - oldCapacity, oldCapacity + 2));
+        } else if (shared) {
+            unshare(oldCapacity);
+        }
+    }
+
+    // Copy the storage into a new array of the specified capacity
+    private void unshare(int newCapacity) {
+        value = Arrays.copyOf(value, newCapacity << coder);
+        shared = false;
+    }
+
+    private void inflate() {
+        byte[] buf = StringUTF16.newBytesFor(value.length);
+        StringLatin1.inflate(value, 0, buf, 0, count);
+        value = buf;
+        coder = Utils.UTF16;
+        shared = false;
+    }
+
+    // The number of characters of the decimal representation of x
+    private static int stringSize(long x) {
+        int d = 1;
+        if (x >= 0) {
+            d = 0;
+            x = -x;
+        }
+        long p = -10;
+        for (int i = 1; i < 19; i++) {
+            if (x > p) {
+                return i + d;
+            }
+            p = 10 * p;
+        }
+        return 19 + d;
+    }
+}
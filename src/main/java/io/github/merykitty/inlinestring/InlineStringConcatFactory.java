@@ -0,0 +1,247 @@
+package io.github.merykitty.inlinestring;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.StringConcatException;
+import java.util.ArrayList;
+import java.util.Objects;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Bootstrap methods for {@code invokedynamic} call sites concatenating
+ * values into an {@link InlineString}, mirroring
+ * {@link java.lang.invoke.StringConcatFactory}.
+ *
+ * <p>The recipe of a call site is a {@code String} in which each
+ * {@code \1} is replaced by the next argument of the call site and each
+ * {@code \2} by the next constant of the bootstrap method, every other
+ * character is copied as is. The constant parts of the recipe are
+ * converted to {@code InlineString}s once, when the call site is linked,
+ * and each concatenation then computes the length of its result and copies
+ * the characters of the constants and the arguments into a single new
+ * array. As in {@code StringConcatFactory}, the call site folds the mixing
+ * of the length and the copy of each argument into a tree of method
+ * handles, so that no array of the arguments is allocated, except for call
+ * sites with more than 200 arguments which collect them into one.
+ *
+ * <p>Arguments of type {@code InlineString} are copied directly, the other
+ * arguments are first converted with the matching
+ * {@code InlineString.valueOf} method.
+ */
+public final class InlineStringConcatFactory {
+    private static final char TAG_ARG = '\u0001';
+    private static final char TAG_CONST = '\u0002';
+
+    private static final Class<?> INLINE_STRING = InlineString.class.asValueType();
+
+    // The largest number of arguments linked without an array, the folded
+    // method handles take 3 more slots than the arguments
+    private static final int MAX_FOLDED_ARGS = 200;
+
+    private static final MethodHandle CONCAT;
+    private static final MethodHandle MIX;
+    private static final MethodHandle NEW_ARRAY;
+    private static final MethodHandle PREPEND;
+    private static final MethodHandle NEW_STRING;
+
+    private InlineStringConcatFactory() {}
+
+    /**
+     * Links a call site concatenating all its arguments, in order.
+     *
+     * @param   lookup
+     *          The lookup of the caller, unused
+     * @param   name
+     *          The name of the call site, unused
+     * @param   concatType
+     *          The type of the call site, it must return {@code InlineString}
+     * @return  a call site performing the concatenation
+     * @throws  StringConcatException
+     *          If {@code concatType} does not return {@code InlineString}
+     */
+    public static CallSite makeConcat(MethodHandles.Lookup lookup, String name,
+                                      MethodType concatType) throws StringConcatException {
+        return makeConcatWithConstants(lookup, name, concatType,
+                String.valueOf(TAG_ARG).repeat(concatType.parameterCount()));
+    }
+
+    /**
+     * Links a call site concatenating its arguments with the constant parts
+     * of the specified recipe.
+     *
+     * @param   lookup
+     *          The lookup of the caller, unused
+     * @param   name
+     *          The name of the call site, unused
+     * @param   concatType
+     *          The type of the call site, it must return {@code InlineString}
+     * @param   recipe
+     *          The recipe of the concatenation
+     * @param   constants
+     *          The constants referred to by the recipe
+     * @return  a call site performing the concatenation
+     * @throws  StringConcatException
+     *          If {@code concatType} does not return {@code InlineString},
+     *          or the recipe does not refer to exactly all the arguments and
+     *          the constants
+     */
+    public static CallSite makeConcatWithConstants(MethodHandles.Lookup lookup, String name,
+                                                   MethodType concatType, String recipe,
+                                                   Object... constants) throws StringConcatException {
+        Objects.requireNonNull(concatType);
+        Objects.requireNonNull(recipe);
+        Objects.requireNonNull(constants);
+        var returnType = concatType.returnType();
+        if (returnType != INLINE_STRING && returnType != InlineString.class) {
+            throw new StringConcatException("The call site must return InlineString: " + concatType);
+        }
+        int argCount = concatType.parameterCount();
+        var parts = parseRecipe(recipe, constants, argCount);
+        var partArray = new InlineString[parts.size()];
+        for (int i = 0; i < partArray.length; i++) {
+            partArray[i] = parts.get(i);
+        }
+
+        if (argCount == 0) {
+            var constant = MethodHandles.constant(INLINE_STRING, partArray[0]);
+            return new ConstantCallSite(constant.asType(concatType));
+        }
+        MethodHandle mh;
+        if (argCount <= MAX_FOLDED_ARGS) {
+            mh = foldedConcat(partArray, argCount);
+        } else {
+            mh = MethodHandles.insertArguments(CONCAT, 0,
+                    partArray, StringConcatHelper.mixConstants(partArray));
+            mh = mh.asCollector(INLINE_STRING.arrayType(), argCount);
+        }
+        var filters = new MethodHandle[argCount];
+        for (int i = 0; i < argCount; i++) {
+            filters[i] = converter(concatType.parameterType(i));
+        }
+        mh = MethodHandles.filterArguments(mh, 0, filters);
+        return new ConstantCallSite(mh.asType(concatType));
+    }
+
+    // Build the method handle concatenating its InlineString arguments with
+    // the constant parts: it mixes the length and coder of each argument,
+    // allocates the array, then prepends each argument and the constant
+    // following it, from the last one to the first
+    private static MethodHandle foldedConcat(InlineString[] parts, int argCount) {
+        var argTypes = new ArrayList<Class<?>>(argCount);
+        for (int i = 0; i < argCount; i++) {
+            argTypes.add(INLINE_STRING);
+        }
+        // (indexCoder, buf, args...), prepends the first constant last
+        var mh = MethodHandles.insertArguments(NEW_STRING, 0, parts[0]);
+        mh = MethodHandles.dropArguments(mh, 2, argTypes);
+        for (int i = 0; i < argCount; i++) {
+            var prepend = MethodHandles.insertArguments(PREPEND, 3, parts[i + 1]);
+            prepend = selectArgument(prepend, 2, argTypes, i);
+            mh = MethodHandles.foldArguments(MethodHandles.dropArguments(mh, 1, long.class), prepend);
+        }
+        // (lengthCoder, args...), allocates the array
+        var reorder = new int[argCount + 2];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i < 2 ? 1 - i : i;
+        }
+        mh = MethodHandles.permuteArguments(mh,
+                methodType(INLINE_STRING, byte[].class, long.class).appendParameterTypes(argTypes),
+                reorder);
+        mh = MethodHandles.foldArguments(mh, MethodHandles.dropArguments(NEW_ARRAY, 1, argTypes));
+        // (args...), mixes the arguments into the length and coder of the
+        // constants
+        var mix = MethodHandles.dropArguments(MethodHandles.identity(long.class), 1, argTypes);
+        for (int i = 0; i < argCount; i++) {
+            mix = MethodHandles.foldArguments(MethodHandles.dropArguments(mix, 1, long.class),
+                    selectArgument(MIX, 1, argTypes, i));
+        }
+        mix = MethodHandles.insertArguments(mix, 0, StringConcatHelper.mixConstants(parts));
+        return MethodHandles.foldArguments(mh, mix);
+    }
+
+    // Adapt the handle taking the argument i at position pos to take all the
+    // arguments there instead
+    private static MethodHandle selectArgument(MethodHandle mh, int pos, ArrayList<Class<?>> argTypes, int i) {
+        mh = MethodHandles.dropArguments(mh, pos + 1, argTypes.subList(i + 1, argTypes.size()));
+        return MethodHandles.dropArguments(mh, pos, argTypes.subList(0, i));
+    }
+
+    // Split the recipe into the constant parts preceding each argument and
+    // the one following the last argument
+    private static ArrayList<InlineString> parseRecipe(String recipe, Object[] constants,
+                                                       int argCount) throws StringConcatException {
+        var parts = new ArrayList<InlineString>(argCount + 1);
+        var part = new StringBuilder();
+        int constantIndex = 0;
+        for (int i = 0; i < recipe.length(); i++) {
+            char c = recipe.charAt(i);
+            if (c == TAG_ARG) {
+                parts.add(new InlineString(part.toString()));
+                part.setLength(0);
+            } else if (c == TAG_CONST) {
+                if (constantIndex == constants.length) {
+                    throw new StringConcatException("Missing constant in recipe: " + recipe);
+                }
+                part.append(constants[constantIndex++]);
+            } else {
+                part.append(c);
+            }
+        }
+        parts.add(new InlineString(part.toString()));
+        if (parts.size() != argCount + 1) {
+            throw new StringConcatException("Mismatched number of arguments: recipe has "
+                    + (parts.size() - 1) + ", call site has " + argCount);
+        }
+        if (constantIndex != constants.length) {
+            throw new StringConcatException("Unused constants in recipe: " + recipe);
+        }
+        return parts;
+    }
+
+    // Return the filter converting an argument of the specified type into
+    // an InlineString, or null if it is already one
+    private static MethodHandle converter(Class<?> type) {
+        if (type == INLINE_STRING) {
+            return null;
+        } else if (type == InlineString.class) {
+            return MethodHandles.identity(INLINE_STRING).asType(methodType(INLINE_STRING, type));
+        }
+        Class<?> paramType;
+        if (type == int.class || type == short.class || type == byte.class) {
+            paramType = int.class;
+        } else if (type.isPrimitive()) {
+            paramType = type;
+        } else {
+            paramType = Object.class;
+        }
+        try {
+            var valueOf = MethodHandles.lookup().findStatic(InlineString.class, "valueOf",
+                    methodType(INLINE_STRING, paramType));
+            return valueOf.asType(methodType(INLINE_STRING, type));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            CONCAT = lookup.findStatic(StringConcatHelper.class, "concat",
+                    methodType(INLINE_STRING, INLINE_STRING.arrayType(), long.class, INLINE_STRING.arrayType()));
+            MIX = lookup.findStatic(StringConcatHelper.class, "mix",
+                    methodType(long.class, long.class, INLINE_STRING));
+            NEW_ARRAY = lookup.findStatic(StringConcatHelper.class, "newArray",
+                    methodType(byte[].class, long.class));
+            PREPEND = lookup.findStatic(StringConcatHelper.class, "prepend",
+                    methodType(long.class, long.class, byte[].class, INLINE_STRING, INLINE_STRING));
+            NEW_STRING = lookup.findStatic(StringConcatHelper.class, "newString",
+                    methodType(INLINE_STRING, INLINE_STRING, long.class, byte[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
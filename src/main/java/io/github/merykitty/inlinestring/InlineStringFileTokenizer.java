@@ -0,0 +1,258 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.ValueLayout;
+
+import io.github.merykitty.inlinestring.internal.StringCoding;
+import io.github.merykitty.inlinestring.internal.Utils;
+
+/**
+ * Splits a file mapped into memory into {@link InlineString} tokens.
+ *
+ * <p>A token is terminated by the delimiter or by the end of the file, the
+ * delimiter is not part of it. A file ending with a delimiter therefore does
+ * not end with an empty token. The delimiter must be an ASCII character, and
+ * the file must be encoded in UTF-8, ISO-8859-1 or US-ASCII, so that the
+ * delimiter can be searched in the bytes directly.
+ *
+ * <p>The tokens are produced by streams whose spliterators split the file
+ * into ranges ending at a delimiter, so that a parallel stream tokenizes the
+ * ranges concurrently in the common fork-join pool. Each range is copied in
+ * chunks into a buffer on the heap, and a chunk without negative bytes has
+ * its tokens copied straight into the arrays of their strings as Latin1,
+ * without decoding.
+ *
+ * <p>The mapping is released when the tokenizer is closed, using a stream of
+ * the tokenizer after that throws an {@link IllegalStateException}.
+ */
+public final class InlineStringFileTokenizer implements Closeable {
+    private static final int CHUNK_SIZE = 1 << 16;
+    // Ranges smaller than this are not split further
+    private static final long MIN_SPLIT_SIZE = 1 << 20;
+
+    private final ResourceScope scope;
+    private final MemorySegment segment;
+    private final Charset charset;
+
+    private InlineStringFileTokenizer(ResourceScope scope, MemorySegment segment, Charset charset) {
+        this.scope = scope;
+        this.segment = segment;
+        this.charset = charset;
+    }
+
+    /**
+     * Maps the specified file into memory to tokenize it.
+     *
+     * @param   file
+     *          The file to tokenize
+     * @param   charset
+     *          The charset of the file
+     * @return  a tokenizer of the file
+     * @throws  IllegalArgumentException
+     *          If {@code charset} is not UTF-8, ISO-8859-1 or US-ASCII
+     * @throws  IOException
+     *          If the file can not be opened or mapped
+     */
+    public static InlineStringFileTokenizer open(Path file, Charset charset) throws IOException {
+        Objects.requireNonNull(charset);
+        if (charset != StandardCharsets.UTF_8 && charset != StandardCharsets.ISO_8859_1
+                && charset != StandardCharsets.US_ASCII) {
+            throw new IllegalArgumentException("Unsupported charset: " + charset);
+        }
+        // The scope is shared so that the ranges can be tokenized by other
+        // threads
+        var scope = ResourceScope.newSharedScope();
+        try {
+            var segment = MemorySegment.mapFile(file, 0, Files.size(file),
+                    FileChannel.MapMode.READ_ONLY, scope);
+            return new InlineStringFileTokenizer(scope, segment, charset);
+        } catch (IOException | RuntimeException e) {
+            scope.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the size of the file.
+     *
+     * @return  the size of the file, in bytes
+     */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    /**
+     * Returns a stream of the lines of the file. A line is terminated by a
+     * line feed ({@code '\n'}) or a carriage return followed by a line feed,
+     * which are not part of it.
+     *
+     * @return  a stream of the lines of the file
+     */
+    public Stream<InlineString.ref> lines() {
+        return StreamSupport.stream(new TokenSpliterator(0, segment.byteSize(), (byte) '\n', true), false);
+    }
+
+    /**
+     * Returns a stream of the tokens of the file separated by the specified
+     * delimiter.
+     *
+     * @param   delimiter
+     *          The delimiter separating the tokens
+     * @return  a stream of the tokens of the file
+     * @throws  IllegalArgumentException
+     *          If {@code delimiter} is not an ASCII character
+     */
+    public Stream<InlineString.ref> tokens(char delimiter) {
+        if (delimiter >= 0x80) {
+            throw new IllegalArgumentException("Not an ASCII delimiter: " + delimiter);
+        }
+        return StreamSupport.stream(new TokenSpliterator(0, segment.byteSize(), (byte) delimiter, false), false);
+    }
+
+    /**
+     * Unmaps the file.
+     */
+    @Override
+    public void close() {
+        scope.close();
+    }
+
+    // Tokenize the bytes from start to end, which are at token boundaries
+    private final class TokenSpliterator implements Spliterator<InlineString.ref> {
+        private final byte delimiter;
+        private final boolean stripCR;
+        private long start;
+        private final long end;
+
+        // The bytes of the segment from chunkBase are copied in chunk, those
+        // from chunkPos to chunkLimit have not been consumed yet
+        private byte[] chunk;
+        private long chunkBase;
+        private int chunkPos;
+        private int chunkLimit;
+        // Whether the bytes in chunk are all positive
+        private boolean chunkLatin1;
+
+        TokenSpliterator(long start, long end, byte delimiter, boolean stripCR) {
+            this.start = start;
+            this.end = end;
+            this.delimiter = delimiter;
+            this.stripCR = stripCR;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super InlineString.ref> action) {
+            Objects.requireNonNull(action);
+            if (chunk == null) {
+                if (start == end) {
+                    return false;
+                }
+                chunk = new byte[(int) Math.min(CHUNK_SIZE, end - start)];
+                chunkBase = start;
+            }
+            // The number of bytes after chunkPos already known not to be
+            // delimiters
+            int scanned = 0;
+            while (true) {
+                for (int i = chunkPos + scanned; i < chunkLimit; i++) {
+                    if (chunk[i] == delimiter) {
+                        var token = newToken(chunkPos, i);
+                        chunkPos = i + 1;
+                        start = chunkBase + chunkPos;
+                        action.accept(token);
+                        return true;
+                    }
+                }
+                scanned = chunkLimit - chunkPos;
+                if (!fill()) {
+                    if (chunkPos == chunkLimit) {
+                        return false;
+                    }
+                    var token = newToken(chunkPos, chunkLimit);
+                    chunkPos = chunkLimit;
+                    start = end;
+                    action.accept(token);
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<InlineString.ref> trySplit() {
+            // Only split a range which has not started to be tokenized
+            if (chunk != null || end - start < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long mid = (start + end) >>> 1;
+            // Split right after the first delimiter from the middle, unless
+            // it is the last byte, which would leave nothing to this range
+            for (long i = mid; i < end - 1; i++) {
+                if (segment.get(ValueLayout.JAVA_BYTE, i) == delimiter) {
+                    var prefix = new TokenSpliterator(start, i + 1, delimiter, stripCR);
+                    start = i + 1;
+                    return prefix;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - start;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        private InlineString newToken(int from, int to) {
+            if (stripCR && to > from && chunk[to - 1] == '\r') {
+                to--;
+            }
+            if (Utils.COMPACT_STRINGS && (chunkLatin1 || charset == StandardCharsets.ISO_8859_1)) {
+                return from == to ? InlineString.EMPTY_STRING
+                        : new InlineString(Arrays.copyOfRange(chunk, from, to), Utils.LATIN1);
+            }
+            return new InlineString(chunk, from, to - from, charset);
+        }
+
+        // Move the unconsumed bytes to the start of the chunk, growing it if
+        // they fill it, then copy the next bytes of the range, return false
+        // if the end of the range has been reached
+        private boolean fill() {
+            long next = chunkBase + chunkLimit;
+            if (next == end) {
+                return false;
+            }
+            if (chunkPos > 0) {
+                System.arraycopy(chunk, chunkPos, chunk, 0, chunkLimit - chunkPos);
+                chunkBase += chunkPos;
+                chunkLimit -= chunkPos;
+                chunkPos = 0;
+            } else if (chunkLimit == chunk.length) {
+                chunk = Arrays.copyOf(chunk, chunk.length << 1);
+            }
+            int n = (int) Math.min(chunk.length - chunkLimit, end - next);
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, next, chunk, chunkLimit, n);
+            chunkLimit += n;
+            chunkLatin1 = !StringCoding.hasNegatives(chunk, 0, chunkLimit);
+            return true;
+        }
+    }
+}
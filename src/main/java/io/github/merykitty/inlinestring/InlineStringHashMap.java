@@ -234,6 +234,13 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     static final int MIN_TREEIFY_CAPACITY = 64;
 
+    /**
+     * The number of bins moved from the old table to the new one by each
+     * operation during an incremental resize. Must be at least 2 so that
+     * the previous resize is over before the next one is triggered.
+     */
+    static final int TRANSFER_STRIDE = 8;
+
     /**
      * Basic hash bin node, used for most entries.  (See below for
      * TreeNode subclass, and in LinkedHashMap for its Entry subclass.)
@@ -294,7 +301,13 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      * never be used in index calculations because of table bounds.
      */
     static int hash(InlineString key) {
-        int h = key.hashCode();
+        return spread(key.hashCode());
+    }
+
+    /**
+     * Spreads an already computed hash code, as in {@link #hash}.
+     */
+    static int spread(int h) {
         return (h ^ (h >>> 16));
     }
 
@@ -334,6 +347,25 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     transient Node<V>[] table;
 
+    /**
+     * The table being emptied into table by an incremental resize, or null
+     * if there is none. Its bins are moved in order starting at
+     * transferIndex, and on demand when a key of one of them is accessed,
+     * a moved bin is set to null.
+     */
+    transient Node<V>[] oldTable;
+
+    /**
+     * The index of the next bin of oldTable to move.
+     */
+    transient int transferIndex;
+
+    /**
+     * Whether the bins are moved to a new table over the operations
+     * following a resize instead of all at once.
+     */
+    final boolean incrementalResize;
+
     /**
      * Holds cached entrySet(). Note that AbstractMap fields are used
      * for keySet() and values().
@@ -387,6 +419,28 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      *         or the load factor is nonpositive
      */
     public InlineStringHashMap(int initialCapacity, float loadFactor) {
+        this(initialCapacity, loadFactor, false);
+    }
+
+    /**
+     * Constructs an empty {@code HashMap} with the specified initial
+     * capacity and load factor, and the specified resize mode.
+     *
+     * <p>In the incremental resize mode, a resize only allocates the new
+     * table. The bins of the old table are then moved to the new one a few
+     * at a time by each following operation that looks up a key, which
+     * keeps the latency of every operation low even for very large maps.
+     * The operations visiting the whole map, such as iteration, move all
+     * the remaining bins at once. Since lookups also move bins, the map
+     * must not be read concurrently in this mode, even without writers.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  incrementalResize whether to resize incrementally
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public InlineStringHashMap(int initialCapacity, float loadFactor, boolean incrementalResize) {
         if (initialCapacity < 0)
             throw new IllegalArgumentException("Illegal initial capacity: " +
                     initialCapacity);
@@ -397,6 +451,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
                     loadFactor);
         this.loadFactor = loadFactor;
         this.threshold = tableSizeFor(initialCapacity);
+        this.incrementalResize = incrementalResize;
     }
 
     /**
@@ -416,6 +471,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     public InlineStringHashMap() {
         this.loadFactor = DEFAULT_LOAD_FACTOR; // all other fields defaulted
+        this.incrementalResize = false;
     }
 
     /**
@@ -429,6 +485,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     public InlineStringHashMap(Map<InlineString.ref, ? extends V> m) {
         this.loadFactor = DEFAULT_LOAD_FACTOR;
+        this.incrementalResize = false;
         putMapEntries(m, false);
     }
 
@@ -487,6 +544,11 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         return (e = getNode(key)) == null ? null : e.value;
     }
 
+    public V getPrimitive(HashedInlineString key) {
+        Node<V> e;
+        return (e = getNode(spread(key.hash()), key.string())) == null ? null : e.value;
+    }
+
     /**
      * Returns the index to which the specified key is mapped,
      * or {@code null} if this map contains no mapping for the key.
@@ -519,9 +581,22 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      * @return the node, or null if none
      */
     final Node<V> getNode(InlineString key) {
-        Node<V>[] tab; Node<V> first, e; int n, hash; InlineString k;
+        return getNode(hash(key), key);
+    }
+
+    /**
+     * Implements Map.get and related methods for keys whose hash is
+     * already known.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the node, or null if none
+     */
+    final Node<V> getNode(int hash, InlineString key) {
+        Node<V>[] tab; Node<V> first, e; int n; InlineString k;
+        helpTransfer(hash);
         if ((tab = table) != null && (n = tab.length) > 0 &&
-                (first = tab[(n - 1) & (hash = hash(key))]) != null) {
+                (first = tab[(n - 1) & hash]) != null) {
             if (first.hash == hash && // always check first node
                     ((k = first.key).equals(key)))
                 return first;
@@ -542,6 +617,10 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         return getNode(key) != null;
     }
 
+    public boolean containsKey(HashedInlineString key) {
+        return getNode(spread(key.hash()), key.string()) != null;
+    }
+
     /**
      * Returns {@code true} if this map contains a mapping for the
      * specified key.
@@ -574,6 +653,10 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         return putVal(hash(key), key, value, false, true);
     }
 
+    public V putPrimitive(HashedInlineString key, V value) {
+        return putVal(spread(key.hash()), key.string(), value, false, true);
+    }
+
     public V put(InlineString.ref key, V value) {
         return putPrimitive(key, value);
     }
@@ -593,6 +676,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         Node<V>[] tab; Node<V> p; int n, i;
         if ((tab = table) == null || (n = tab.length) == 0)
             n = (tab = resize()).length;
+        helpTransfer(hash);
         if ((p = tab[i = (n - 1) & hash]) == null)
             tab[i] = newNode(hash, key, value, null);
         else {
@@ -641,6 +725,8 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      * @return the table
      */
     final Node<V>[] resize() {
+        if (oldTable != null)
+            finishTransfer();
         Node<V>[] oldTab = table;
         int oldCap = (oldTab == null) ? 0 : oldTab.length;
         int oldThr = threshold;
@@ -670,48 +756,97 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         Node<V>[] newTab = (Node<V>[])new Node[newCap];
         table = newTab;
         if (oldTab != null) {
-            for (int j = 0; j < oldCap; ++j) {
-                Node<V> e;
-                if ((e = oldTab[j]) != null) {
-                    oldTab[j] = null;
-                    if (e.next == null)
-                        newTab[e.hash & (newCap - 1)] = e;
-                    else if (e instanceof TreeNode<V> f)
-                        f.split(this, newTab, j, oldCap);
-                    else { // preserve order
-                        Node<V> loHead = null, loTail = null;
-                        Node<V> hiHead = null, hiTail = null;
-                        Node<V> next;
-                        do {
-                            next = e.next;
-                            if ((e.hash & oldCap) == 0) {
-                                if (loTail == null)
-                                    loHead = e;
-                                else
-                                    loTail.next = e;
-                                loTail = e;
-                            }
-                            else {
-                                if (hiTail == null)
-                                    hiHead = e;
-                                else
-                                    hiTail.next = e;
-                                hiTail = e;
-                            }
-                        } while ((e = next) != null);
-                        if (loTail != null) {
-                            loTail.next = null;
-                            newTab[j] = loHead;
-                        }
-                        if (hiTail != null) {
-                            hiTail.next = null;
-                            newTab[j + oldCap] = hiHead;
-                        }
+            if (incrementalResize) {
+                oldTable = oldTab;
+                transferIndex = 0;
+            } else {
+                for (int j = 0; j < oldCap; ++j)
+                    transferBin(oldTab, newTab, j);
+            }
+        }
+        return newTab;
+    }
+
+    /**
+     * Moves the bin at index j of oldTab to the table twice as large newTab.
+     * The elements from the bin either stay at the same index, or move with
+     * a power of two offset in the new table.
+     */
+    final void transferBin(Node<V>[] oldTab, Node<V>[] newTab, int j) {
+        int oldCap = oldTab.length;
+        int newCap = newTab.length;
+        Node<V> e;
+        if ((e = oldTab[j]) != null) {
+            oldTab[j] = null;
+            if (e.next == null)
+                newTab[e.hash & (newCap - 1)] = e;
+            else if (e instanceof TreeNode<V> f)
+                f.split(this, newTab, j, oldCap);
+            else { // preserve order
+                Node<V> loHead = null, loTail = null;
+                Node<V> hiHead = null, hiTail = null;
+                Node<V> next;
+                do {
+                    next = e.next;
+                    if ((e.hash & oldCap) == 0) {
+                        if (loTail == null)
+                            loHead = e;
+                        else
+                            loTail.next = e;
+                        loTail = e;
+                    }
+                    else {
+                        if (hiTail == null)
+                            hiHead = e;
+                        else
+                            hiTail.next = e;
+                        hiTail = e;
                     }
+                } while ((e = next) != null);
+                if (loTail != null) {
+                    loTail.next = null;
+                    newTab[j] = loHead;
+                }
+                if (hiTail != null) {
+                    hiTail.next = null;
+                    newTab[j + oldCap] = hiHead;
                 }
             }
         }
-        return newTab;
+    }
+
+    /**
+     * During an incremental resize, moves the bin of the old table that may
+     * contain the given hash, so that the key can be looked up in the new
+     * table only, then moves the next TRANSFER_STRIDE bins.
+     */
+    final void helpTransfer(int hash) {
+        Node<V>[] oldTab;
+        if ((oldTab = oldTable) != null) {
+            Node<V>[] tab = table;
+            int n = oldTab.length;
+            transferBin(oldTab, tab, (n - 1) & hash);
+            int j = transferIndex;
+            int end = Math.min(j + TRANSFER_STRIDE, n);
+            for (; j < end; ++j)
+                transferBin(oldTab, tab, j);
+            if ((transferIndex = end) == n)
+                oldTable = null;
+        }
+    }
+
+    /**
+     * Moves all the remaining bins of an incremental resize, called before
+     * visiting the whole table.
+     */
+    final void finishTransfer() {
+        Node<V>[] oldTab;
+        if ((oldTab = oldTable) != null) {
+            Node<V>[] tab = table;
+            for (int j = transferIndex; j < oldTab.length; ++j)
+                transferBin(oldTab, tab, j);
+            oldTable = null;
+        }
     }
 
     /**
@@ -757,6 +892,12 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
                 null : e.value;
     }
 
+    public V remove(HashedInlineString key) {
+        Node<V> e;
+        return (e = removeNode(spread(key.hash()), key.string(), null, false, true)) == null ?
+                null : e.value;
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present.
      *
@@ -787,6 +928,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
     final Node<V> removeNode(int hash, InlineString key, Object value,
                              boolean matchValue, boolean movable) {
         Node<V>[] tab; Node<V> p; int n, index;
+        helpTransfer(hash);
         if ((tab = table) != null && (n = tab.length) > 0 &&
                 (p = tab[index = (n - 1) & hash]) != null) {
             Node<V> node = null, e; InlineString k; V v;
@@ -831,6 +973,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
     public void clear() {
         Node<V>[] tab;
         modCount++;
+        oldTable = null;
         if ((tab = table) != null && size > 0) {
             size = 0;
             for (int i = 0; i < tab.length; ++i)
@@ -848,6 +991,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     public boolean containsValue(Object value) {
         Node<V>[] tab; V v;
+        finishTransfer();
         if ((tab = table) != null && size > 0) {
             for (Node<V> e : tab) {
                 for (; e != null; e = e.next) {
@@ -919,6 +1063,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         var r = a;
         Node<V>[] tab;
         int idx = 0;
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             for (Node<V> e : tab) {
                 for (; e != null; e = e.next) {
@@ -942,6 +1087,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         Object[] r = a;
         Node<V>[] tab;
         int idx = 0;
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             for (Node<V> e : tab) {
                 for (; e != null; e = e.next) {
@@ -1022,6 +1168,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
             Node<V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<V> e : tab) {
@@ -1079,6 +1226,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
             Node<V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<V> e : tab) {
@@ -1141,6 +1289,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
             Node<V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<V> e : tab) {
@@ -1158,6 +1307,11 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         return (e = getNode(key)) == null ? defaultValue : e.value;
     }
 
+    public V getOrDefaultPrimitive(HashedInlineString key, V defaultValue) {
+        Node<V> e;
+        return (e = getNode(spread(key.hash()), key.string())) == null ? defaultValue : e.value;
+    }
+
     // Overrides of JDK8 Map extension methods
     @Override
     public V getOrDefault(Object key, V defaultValue) {
@@ -1234,9 +1388,10 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        helpTransfer(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode<V> f)
-                old = f.getTreeNode(hash, key);
+                old = (t = f).getTreeNode(hash, key);
             else {
                 Node<V> e = first; InlineString k;
                 do {
@@ -1344,6 +1499,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        helpTransfer(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode<V> f)
                 old = (t = f).getTreeNode(hash, key);
@@ -1414,6 +1570,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        helpTransfer(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode<V> f)
                 old = (t = f).getTreeNode(hash, key);
@@ -1475,7 +1632,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
     @Override
     public V merge(InlineString.ref key, V value,
                    BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        return merge(key, value, remappingFunction);
+        return merge((InlineString) key, value, remappingFunction);
     }
 
     @Override
@@ -1483,6 +1640,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         Node<V>[] tab;
         if (action == null)
             throw new NullPointerException();
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (Node<V> e : tab) {
@@ -1499,6 +1657,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         Node<V>[] tab;
         if (function == null)
             throw new NullPointerException();
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (Node<V> e : tab) {
@@ -1553,6 +1712,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
         int index;             // current slot
 
         HashIterator() {
+            finishTransfer();
             expectedModCount = modCount;
             Node<V>[] t = table;
             current = next = null;
@@ -1631,6 +1791,7 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
             int hi;
             if ((hi = fence) < 0) {
                 InlineStringHashMap<V> m = map;
+                m.finishTransfer();
                 est = m.size;
                 expectedModCount = m.modCount;
                 Node<V>[] tab = m.table;
@@ -1895,6 +2056,8 @@ public class InlineStringHashMap<V> implements Map<InlineString.ref,V>, Cloneabl
      */
     void reinitialize() {
         table = null;
+        oldTable = null;
+        transferIndex = 0;
         entrySet = null;
         keySet = null;
         values = null;
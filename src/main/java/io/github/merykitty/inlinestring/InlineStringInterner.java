@@ -0,0 +1,323 @@
+package io.github.merykitty.inlinestring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe pool of canonical string contents.
+ *
+ * <p>{@link #intern(InlineString)} returns a string equal to its argument
+ * that shares its backing array with every other string interned as equal,
+ * so that many equal strings take the memory of only one, and comparing
+ * two interned strings for equality returns as soon as it sees the same
+ * array on both sides.
+ *
+ * <p>Two kinds of interners are provided:
+ * <ul>
+ * <li>{@link #weak()} keeps every content as long as some string still uses
+ * it, the contents are only referenced weakly by the interner and dropped
+ * once they are collected. It is split into segments, each guarded by its
+ * own lock.
+ * <li>{@link #bounded(int)} keeps a fixed number of contents in a
+ * direct-mapped table, a content is replaced by the next one mapped to the
+ * same slot. It never locks, and canonicalizes best effort only: two
+ * equal strings interned around a replacement may keep separate arrays.
+ * </ul>
+ */
+public abstract class InlineStringInterner {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private InlineStringInterner() {}
+
+    /**
+     * Creates an interner referencing its contents weakly, with a number of
+     * segments suited to the number of processors.
+     *
+     * @return  a new empty interner
+     */
+    public static InlineStringInterner weak() {
+        return new Weak(Runtime.getRuntime().availableProcessors() << 2);
+    }
+
+    /**
+     * Creates an interner referencing its contents weakly.
+     *
+     * @param   concurrencyLevel
+     *          The expected number of threads interning concurrently
+     * @return  a new empty interner
+     */
+    public static InlineStringInterner weak(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return new Weak(concurrencyLevel);
+    }
+
+    /**
+     * Creates an interner keeping at most the specified number of contents,
+     * rounded up to a power of 2.
+     *
+     * @param   capacity
+     *          The maximum number of contents retained
+     * @return  a new empty interner
+     */
+    public static InlineStringInterner bounded(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        return new Bounded(computeCapacity(capacity));
+    }
+
+    /**
+     * Returns a string equal to the specified one, backed by the canonical
+     * array of its content. The first time a content is interned, the
+     * array of the argument becomes the canonical one.
+     *
+     * @param   s
+     *          The string to be interned
+     * @return  a string equal to {@code s} sharing its array with the other
+     *          interned strings equal to it
+     */
+    public InlineString intern(InlineString s) {
+        byte[] value = s.value();
+        byte coder = s.coder();
+        byte[] canonical = canonicalize(s.hashCode(), value, coder);
+        if (canonical == null) {
+            misses.increment();
+            return s;
+        }
+        hits.increment();
+        // The argument may already be backed by the canonical array
+        return canonical == value ? s : new InlineString(canonical, coder);
+    }
+
+    /**
+     * Returns a string equal to the specified one, backed by the canonical
+     * array of its content, using the precomputed hash code.
+     *
+     * @param   s
+     *          The string to be interned
+     * @return  a string equal to {@code s.string()} sharing its array with
+     *          the other interned strings equal to it
+     */
+    public InlineString intern(HashedInlineString s) {
+        var string = s.string();
+        byte[] value = string.value();
+        byte coder = string.coder();
+        byte[] canonical = canonicalize(s.hash(), value, coder);
+        if (canonical == null) {
+            misses.increment();
+            return string;
+        }
+        hits.increment();
+        return canonical == value ? string : new InlineString(canonical, coder);
+    }
+
+    /**
+     * Returns the number of calls to {@code intern} which found the content
+     * already in the interner.
+     *
+     * @return  the number of hits
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls to {@code intern} which added their
+     * content to the interner.
+     *
+     * @return  the number of misses
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of contents retained by the interner, this is only
+     * an estimate if the interner is used concurrently, a weak interner
+     * also counts the collected contents it has not dropped yet.
+     *
+     * @return  the number of contents in the interner
+     */
+    public abstract int size();
+
+    // Return the canonical array for the content, or null if the content was
+    // absent and value has become its canonical array
+    abstract byte[] canonicalize(int hash, byte[] value, byte coder);
+
+    private static final class Weak extends InlineStringInterner {
+        private static final int MAX_SEGMENTS = 1 << 16;
+        private static final int INITIAL_SEGMENT_CAPACITY = 1 << 4;
+
+        private final Segment[] segments;
+        private final int segmentShift;
+
+        Weak(int concurrencyLevel) {
+            int segmentCount = computeCapacity(Math.min(concurrencyLevel, MAX_SEGMENTS));
+            segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment();
+            }
+            segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (var segment : segments) {
+                size += segment.count;
+            }
+            return size;
+        }
+
+        @Override
+        byte[] canonicalize(int hash, byte[] value, byte coder) {
+            int h = spread(hash);
+            // The high bits select the segment, the low ones the bucket in it
+            var segment = segments[segmentShift == Integer.SIZE ? 0 : h >>> segmentShift];
+            segment.lock();
+            try {
+                return segment.canonicalize(h, value, coder);
+            } finally {
+                segment.unlock();
+            }
+        }
+
+        private static final class Entry extends WeakReference<byte[]> {
+            final int hash;
+            final byte coder;
+            Entry next;
+
+            Entry(byte[] value, ReferenceQueue<byte[]> queue, int hash, byte coder, Entry next) {
+                super(value, queue);
+                this.hash = hash;
+                this.coder = coder;
+                this.next = next;
+            }
+        }
+
+        // A chained hash table, the entries whose content has been collected
+        // are unlinked before each lookup
+        @SuppressWarnings("serial")
+        private static final class Segment extends ReentrantLock {
+            final ReferenceQueue<byte[]> queue = new ReferenceQueue<>();
+            Entry[] table = new Entry[INITIAL_SEGMENT_CAPACITY];
+            volatile int count;
+
+            byte[] canonicalize(int h, byte[] value, byte coder) {
+                expunge();
+                var tab = table;
+                int i = h & (tab.length - 1);
+                for (var e = tab[i]; e != null; e = e.next) {
+                    if (e.hash == h && e.coder == coder) {
+                        byte[] canonical = e.get();
+                        if (canonical != null && Arrays.equals(canonical, value)) {
+                            return canonical;
+                        }
+                    }
+                }
+                if (count >= tab.length - (tab.length >> 2)) {
+                    tab = resize();
+                    i = h & (tab.length - 1);
+                }
+                tab[i] = new Entry(value, queue, h, coder, tab[i]);
+                count++;
+                return null;
+            }
+
+            private void expunge() {
+                for (Object x; (x = queue.poll()) != null; ) {
+                    var entry = (Entry) x;
+                    var tab = table;
+                    int i = entry.hash & (tab.length - 1);
+                    Entry prev = null;
+                    for (var e = tab[i]; e != null; prev = e, e = e.next) {
+                        if (e == entry) {
+                            if (prev == null) {
+                                tab[i] = e.next;
+                            } else {
+                                prev.next = e.next;
+                            }
+                            count--;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            private Entry[] resize() {
+                var oldTab = table;
+                var tab = new Entry[oldTab.length << 1];
+                for (var head : oldTab) {
+                    for (var e = head; e != null; ) {
+                        var next = e.next;
+                        int i = e.hash & (tab.length - 1);
+                        e.next = tab[i];
+                        tab[i] = e;
+                        e = next;
+                    }
+                }
+                table = tab;
+                return tab;
+            }
+        }
+    }
+
+    private static final class Bounded extends InlineStringInterner {
+        private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+        private final Entry[] table;
+
+        Bounded(int capacity) {
+            table = new Entry[capacity];
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int i = 0; i < table.length; i++) {
+                if (SLOT.getAcquire(table, i) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        byte[] canonicalize(int hash, byte[] value, byte coder) {
+            int h = spread(hash);
+            int i = h & (table.length - 1);
+            var e = (Entry) SLOT.getAcquire(table, i);
+            if (e != null && e.hash() == h && e.coder() == coder && Arrays.equals(e.value(), value)) {
+                return e.value();
+            }
+            SLOT.setRelease(table, i, new Entry(h, coder, value));
+            return null;
+        }
+
+        private record Entry(int hash, byte coder, byte[] value) {}
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // Get the lowest power of 2 larger than the input
+    private static int computeCapacity(int requestedCapacity) {
+        requestedCapacity--;
+        for (int i = 0; i < 32; i++) {
+            if (requestedCapacity >>> i == 0) {
+                return 1 << i;
+            }
+        }
+        // can't reach here, due to an int contains only 32 bit
+        throw new AssertionError();
+    }
+}
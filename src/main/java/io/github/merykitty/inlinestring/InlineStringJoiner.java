@@ -0,0 +1,263 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * {@code InlineStringJoiner} is used to construct a sequence of characters
+ * separated by a delimiter and optionally starting with a supplied prefix
+ * and ending with a supplied suffix, in the same way as
+ * {@link java.util.StringJoiner}.
+ *
+ * <p>The added elements are kept as they are, along with their total length
+ * and the widest of their coders, so that {@link #toInlineString()} copies
+ * all of them into a single array of the exact size, without going through
+ * any intermediate string.
+ *
+ * <p>The {@link #joining(CharSequence, CharSequence, CharSequence)}
+ * collectors accumulate the elements of a stream in such joiners and
+ * combine them with {@link #merge(InlineStringJoiner)} when the stream is
+ * parallel.
+ *
+ * @see java.util.StringJoiner
+ * @see InlineString#join(CharSequence, CharSequence...)
+ */
+public final class InlineStringJoiner {
+    private final InlineString prefix;
+    private final InlineString delimiter;
+    private final InlineString suffix;
+
+    // The elements added so far
+    private InlineString[] elts;
+    private int size;
+    // The total length of the elements, without the delimiters
+    private long len;
+    // The bitwise or of the coders of the elements
+    private int coder;
+
+    // The value returned when no element has been added, null if it is the
+    // prefix followed by the suffix
+    private InlineString.ref emptyValue;
+
+    /**
+     * Constructs an {@code InlineStringJoiner} with no characters in it,
+     * with no {@code prefix} or {@code suffix}, and a copy of the supplied
+     * {@code delimiter}.
+     *
+     * @param  delimiter the sequence of characters to be used between each
+     *         element added to the {@code InlineStringJoiner} value
+     * @throws NullPointerException if {@code delimiter} is {@code null}
+     */
+    public InlineStringJoiner(CharSequence delimiter) {
+        this(delimiter, "", "");
+    }
+
+    /**
+     * Constructs an {@code InlineStringJoiner} with no characters in it
+     * using copies of the supplied {@code prefix}, {@code delimiter} and
+     * {@code suffix}.
+     *
+     * @param  delimiter the sequence of characters to be used between each
+     *         element added to the {@code InlineStringJoiner}
+     * @param  prefix the sequence of characters to be used at the beginning
+     * @param  suffix the sequence of characters to be used at the end
+     * @throws NullPointerException if {@code prefix}, {@code delimiter}, or
+     *         {@code suffix} is {@code null}
+     */
+    public InlineStringJoiner(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+        Objects.requireNonNull(prefix, "The prefix must not be null");
+        Objects.requireNonNull(delimiter, "The delimiter must not be null");
+        Objects.requireNonNull(suffix, "The suffix must not be null");
+        this.prefix = asInlineString(prefix);
+        this.delimiter = asInlineString(delimiter);
+        this.suffix = asInlineString(suffix);
+    }
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements, in
+     * encounter order.
+     *
+     * @return  a {@code Collector} that concatenates the input elements
+     */
+    public static Collector<InlineString.ref, ?, InlineString.ref> joining() {
+        return joining("", "", "");
+    }
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements,
+     * separated by the specified delimiter, in encounter order.
+     *
+     * @param   delimiter the delimiter to be used between each element
+     * @return  a {@code Collector} that concatenates the input elements,
+     *          separated by the specified delimiter
+     */
+    public static Collector<InlineString.ref, ?, InlineString.ref> joining(CharSequence delimiter) {
+        return joining(delimiter, "", "");
+    }
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements,
+     * separated by the specified delimiter, with the specified prefix and
+     * suffix, in encounter order.
+     *
+     * @param   delimiter the delimiter to be used between each element
+     * @param   prefix the sequence of characters to be used at the beginning
+     *          of the joined result
+     * @param   suffix the sequence of characters to be used at the end
+     *          of the joined result
+     * @return  a {@code Collector} that concatenates the input elements,
+     *          separated by the specified delimiter, in encounter order
+     */
+    public static Collector<InlineString.ref, ?, InlineString.ref> joining(CharSequence delimiter,
+                                                                           CharSequence prefix,
+                                                                           CharSequence suffix) {
+        var delim = asInlineString(delimiter);
+        var pre = asInlineString(prefix);
+        var suf = asInlineString(suffix);
+        return Collector.of(() -> new InlineStringJoiner(delim, pre, suf),
+                (joiner, s) -> joiner.add((InlineString) s),
+                InlineStringJoiner::merge,
+                InlineStringJoiner::toInlineString);
+    }
+
+    /**
+     * Sets the sequence of characters to be used when determining the string
+     * representation of this {@code InlineStringJoiner} and no elements have
+     * been added yet, that is, when it is empty. By default the prefix
+     * followed by the suffix is used.
+     *
+     * @param  emptyValue the characters to return as the value of an empty
+     *         {@code InlineStringJoiner}
+     * @return this {@code InlineStringJoiner} itself so the calls may be chained
+     * @throws NullPointerException when the {@code emptyValue} parameter is
+     *         {@code null}
+     */
+    public InlineStringJoiner setEmptyValue(CharSequence emptyValue) {
+        Objects.requireNonNull(emptyValue, "The empty value must not be null");
+        this.emptyValue = asInlineString(emptyValue);
+        return this;
+    }
+
+    /**
+     * Returns the current value, consisting of the {@code prefix}, the values
+     * added so far separated by the {@code delimiter}, and the {@code suffix},
+     * unless no elements have been added in which case, the
+     * {@code prefix + suffix} or the {@code emptyValue} characters are returned.
+     *
+     * @return the string representation of this {@code InlineStringJoiner}
+     */
+    public InlineString toInlineString() {
+        if (size == 0 && emptyValue != null) {
+            return (InlineString) emptyValue;
+        }
+        return InlineString.join(prefix, suffix, delimiter, elts, size, len, coder);
+    }
+
+    /**
+     * Returns the current value as a {@code String}, this is the same as
+     * {@code toInlineString().toString()}.
+     *
+     * @return the string representation of this {@code InlineStringJoiner}
+     */
+    @Override
+    public String toString() {
+        return toInlineString().toString();
+    }
+
+    /**
+     * Adds the given {@code InlineString} value as the next element of the
+     * {@code InlineStringJoiner} value.
+     *
+     * @param  newElement The element to add
+     * @return a reference to this {@code InlineStringJoiner}
+     */
+    public InlineStringJoiner add(InlineString newElement) {
+        if (elts == null) {
+            elts = new InlineString[8];
+        } else if (size == elts.length) {
+            elts = Arrays.copyOf(elts, 2 * size);
+        }
+        elts[size++] = newElement;
+        len += newElement.length();
+        coder |= newElement.coder();
+        return this;
+    }
+
+    /**
+     * Adds a copy of the given {@code CharSequence} value as the next element
+     * of the {@code InlineStringJoiner} value. If {@code newElement} is
+     * {@code null}, then {@code "null"} is added.
+     *
+     * @param  newElement The element to add
+     * @return a reference to this {@code InlineStringJoiner}
+     */
+    public InlineStringJoiner add(CharSequence newElement) {
+        return add(newElement == null ? InlineString.valueOf((Object) null) : asInlineString(newElement));
+    }
+
+    /**
+     * Adds the contents of the given {@code InlineStringJoiner} without
+     * prefix and suffix as the next element if it is non-empty. If the given
+     * {@code InlineStringJoiner} is empty, the call has no effect.
+     *
+     * <p>If the other {@code InlineStringJoiner} is using a different
+     * delimiter, then elements from the other {@code InlineStringJoiner} are
+     * concatenated with that delimiter and the result is appended to this
+     * {@code InlineStringJoiner} as a single element.
+     *
+     * @param  other The {@code InlineStringJoiner} whose contents should be
+     *         merged into this one
+     * @throws NullPointerException if the other {@code InlineStringJoiner}
+     *         is null
+     * @return This {@code InlineStringJoiner}
+     */
+    public InlineStringJoiner merge(InlineStringJoiner other) {
+        Objects.requireNonNull(other);
+        if (other.size == 0) {
+            return this;
+        }
+        other.compactElts();
+        return add(other.elts[0]);
+    }
+
+    private void compactElts() {
+        if (size > 1) {
+            var joined = InlineString.join(InlineString.EMPTY_STRING, InlineString.EMPTY_STRING,
+                    delimiter, elts, size, len, coder);
+            Arrays.fill(elts, 1, size, InlineString.EMPTY_STRING);
+            elts[0] = joined;
+            size = 1;
+            len = joined.length();
+            coder = joined.coder();
+        }
+    }
+
+    /**
+     * Returns the length of the {@code String} representation of this
+     * {@code InlineStringJoiner}. Note that if no add methods have been
+     * called, then the length of the {@code String} representation (either
+     * {@code prefix + suffix} or {@code emptyValue}) will be returned.
+     *
+     * @return the length of the current value of {@code InlineStringJoiner}
+     */
+    public int length() {
+        if (size == 0 && emptyValue != null) {
+            return ((InlineString) emptyValue).length();
+        }
+        long length = prefix.length() + suffix.length() + len;
+        if (size > 1) {
+            length += (long) (size - 1) * delimiter.length();
+        }
+        return (int) length;
+    }
+
+    private static InlineString asInlineString(CharSequence cs) {
+        if (cs instanceof InlineString s) {
+            return s;
+        } else if (cs instanceof String s) {
+            return new InlineString(s);
+        }
+        return new InlineString(cs.toString());
+    }
+}
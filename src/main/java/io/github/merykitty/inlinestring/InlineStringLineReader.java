@@ -0,0 +1,371 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the lines of a byte stream as {@link InlineString}s.
+ *
+ * <p>A line is considered to be terminated by any one of a line feed
+ * ({@code '\n'}), a carriage return ({@code '\r'}), or a carriage return
+ * followed immediately by a line feed, in the same way as
+ * {@link java.io.BufferedReader#readLine()}. Malformed input and unmappable
+ * characters are replaced with the replacement string of the charset.
+ *
+ * <p>The bytes are read in chunks into a buffer which is reused for the
+ * whole input, and only grows when a line does not fit in it. For UTF-8,
+ * ISO-8859-1 and US-ASCII the line terminators are searched in the bytes
+ * directly, and a line made of Latin1 characters is copied once from the
+ * buffer into the array of its string. Other charsets are decoded in chunks
+ * into a reused character buffer first.
+ *
+ * <p>The channel is expected to be blocking. This class is not thread-safe.
+ */
+public final class InlineStringLineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final Charset charset;
+    // null if the lines are split on the encoded bytes
+    private final CharsetDecoder decoder;
+
+    // The bytes read, those from pos to limit have not been consumed yet,
+    // if decoder is not null they are kept in byteBuffer, with the position
+    // and limit of the buffer marking the bytes not decoded yet
+    private byte[] bytes;
+    private int pos;
+    private int limit;
+    private ByteBuffer byteBuffer;
+
+    // The characters decoded, those from charPos to charLimit have not been
+    // consumed yet
+    private char[] chars;
+    private int charPos;
+    private int charLimit;
+    private CharBuffer charBuffer;
+
+    // Whether the end of the channel has been reached
+    private boolean eof;
+    // Whether all the bytes have been given to the decoder
+    private boolean decodedAll;
+    // Whether the decoder has been flushed
+    private boolean flushed;
+    // Whether the last line ended with a '\r', so that a following '\n' must
+    // be skipped
+    private boolean skipLF;
+
+    /**
+     * Creates a reader of the lines of the specified channel.
+     *
+     * @param   channel
+     *          The channel to read from
+     * @param   charset
+     *          The charset used to decode the bytes
+     */
+    public InlineStringLineReader(ReadableByteChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader of the lines of the specified channel, with a buffer
+     * of the specified initial size.
+     *
+     * @param   channel
+     *          The channel to read from
+     * @param   charset
+     *          The charset used to decode the bytes
+     * @param   bufferSize
+     *          The initial size of the buffer, in bytes
+     * @throws  IllegalArgumentException
+     *          If {@code bufferSize} is not positive
+     */
+    public InlineStringLineReader(ReadableByteChannel channel, Charset charset, int bufferSize) {
+        this.channel = Objects.requireNonNull(channel);
+        this.charset = Objects.requireNonNull(charset);
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size <= 0");
+        }
+        bytes = new byte[bufferSize];
+        byteBuffer = ByteBuffer.wrap(bytes);
+        if (charset == StandardCharsets.UTF_8 || charset == StandardCharsets.ISO_8859_1
+                || charset == StandardCharsets.US_ASCII) {
+            decoder = null;
+        } else {
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            byteBuffer.limit(0);
+            chars = new char[Math.max((int) (bufferSize * decoder.averageCharsPerByte()), 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+    }
+
+    /**
+     * Creates a reader of the lines of the specified stream.
+     *
+     * @param   in
+     *          The stream to read from
+     * @param   charset
+     *          The charset used to decode the bytes
+     */
+    public InlineStringLineReader(InputStream in, Charset charset) {
+        this(Channels.newChannel(in), charset);
+    }
+
+    /**
+     * Reads a line.
+     *
+     * @return  the content of the line, not including any line terminator,
+     *          or {@code null} if the end of the input has been reached
+     *          without reading any character
+     * @throws  IOException
+     *          If an I/O error occurs
+     */
+    public InlineString.ref readLine() throws IOException {
+        return decoder == null ? readLineBytes() : readLineChars();
+    }
+
+    /**
+     * Returns a {@code Stream}, the elements of which are the lines read
+     * from this reader. The stream is lazily populated, and reading from
+     * this reader while the stream is used has undefined results.
+     *
+     * <p>If an {@link IOException} is thrown when reading, it is wrapped in
+     * an {@link UncheckedIOException} which will be thrown from the stream
+     * method that caused the read to take place.
+     *
+     * @return  a {@code Stream<InlineString.ref>} providing the lines of
+     *          text read by this reader
+     */
+    public Stream<InlineString.ref> lines() {
+        var iter = new Iterator<InlineString.ref>() {
+            InlineString.ref nextLine = null;
+
+            @Override
+            public boolean hasNext() {
+                if (nextLine != null) {
+                    return true;
+                }
+                try {
+                    nextLine = readLine();
+                    return nextLine != null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public InlineString.ref next() {
+                if (nextLine != null || hasNext()) {
+                    var line = nextLine;
+                    nextLine = null;
+                    return line;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iter, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Closes the underlying channel.
+     *
+     * @throws  IOException
+     *          If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private InlineString.ref readLineBytes() throws IOException {
+        if (skipLF) {
+            if (pos == limit && !fillBytes()) {
+                return null;
+            }
+            skipLF = false;
+            if (bytes[pos] == '\n') {
+                pos++;
+            }
+        }
+        // The number of bytes after pos already known not to be terminators
+        int scanned = 0;
+        while (true) {
+            for (int i = pos + scanned; i < limit; i++) {
+                byte b = bytes[i];
+                if (b == '\n' || b == '\r') {
+                    var line = new InlineString(bytes, pos, i - pos, charset);
+                    pos = i + 1;
+                    if (b == '\r') {
+                        if (pos < limit) {
+                            if (bytes[pos] == '\n') {
+                                pos++;
+                            }
+                        } else {
+                            skipLF = true;
+                        }
+                    }
+                    return line;
+                }
+            }
+            scanned = limit - pos;
+            if (!fillBytes()) {
+                if (pos == limit) {
+                    return null;
+                }
+                var line = new InlineString(bytes, pos, limit - pos, charset);
+                pos = limit;
+                return line;
+            }
+        }
+    }
+
+    private InlineString.ref readLineChars() throws IOException {
+        if (skipLF) {
+            if (charPos == charLimit && !fillChars()) {
+                return null;
+            }
+            skipLF = false;
+            if (chars[charPos] == '\n') {
+                charPos++;
+            }
+        }
+        int scanned = 0;
+        while (true) {
+            for (int i = charPos + scanned; i < charLimit; i++) {
+                char c = chars[i];
+                if (c == '\n' || c == '\r') {
+                    var line = new InlineString(chars, charPos, i - charPos);
+                    charPos = i + 1;
+                    if (c == '\r') {
+                        if (charPos < charLimit) {
+                            if (chars[charPos] == '\n') {
+                                charPos++;
+                            }
+                        } else {
+                            skipLF = true;
+                        }
+                    }
+                    return line;
+                }
+            }
+            scanned = charLimit - charPos;
+            if (!fillChars()) {
+                if (charPos == charLimit) {
+                    return null;
+                }
+                var line = new InlineString(chars, charPos, charLimit - charPos);
+                charPos = charLimit;
+                return line;
+            }
+        }
+    }
+
+    // Move the unconsumed bytes to the start of the buffer, growing it if
+    // they fill it, then read more, return false if the end of the channel
+    // has been reached
+    private boolean fillBytes() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(bytes, pos, bytes, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        } else if (limit == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length << 1);
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
+        byteBuffer.limit(bytes.length).position(limit);
+        int n = channel.read(byteBuffer);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    // Move the unconsumed characters to the start of the buffer, growing it
+    // if they fill it, then decode more, return false if no more characters
+    // can be decoded
+    private boolean fillChars() throws IOException {
+        if (flushed) {
+            return false;
+        }
+        if (charPos > 0) {
+            System.arraycopy(chars, charPos, chars, 0, charLimit - charPos);
+            charLimit -= charPos;
+            charPos = 0;
+        }
+        // Leave room for a surrogate pair
+        if (chars.length - charLimit < 2) {
+            chars = Arrays.copyOf(chars, chars.length << 1);
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        charBuffer.limit(chars.length).position(charLimit);
+        try {
+            while (true) {
+                if (!eof) {
+                    byteBuffer.compact();
+                    if (!byteBuffer.hasRemaining()) {
+                        // The buffer is full of the bytes of a single character
+                        byteBuffer.flip();
+                        bytes = Arrays.copyOf(bytes, bytes.length << 1);
+                        byteBuffer = ByteBuffer.wrap(bytes).position(byteBuffer.limit());
+                    }
+                    int n = channel.read(byteBuffer);
+                    byteBuffer.flip();
+                    if (n < 0) {
+                        eof = true;
+                    }
+                }
+                CoderResult cr = CoderResult.UNDERFLOW;
+                if (!decodedAll) {
+                    cr = decoder.decode(byteBuffer, charBuffer, eof);
+                    decodedAll = eof && cr.isUnderflow();
+                }
+                if (decodedAll) {
+                    cr = decoder.flush(charBuffer);
+                    flushed = cr.isUnderflow();
+                }
+                if (cr.isError()) {
+                    cr.throwException();
+                }
+                int n = charBuffer.position() - charLimit;
+                charLimit = charBuffer.position();
+                if (n > 0) {
+                    return true;
+                } else if (flushed) {
+                    return false;
+                }
+            }
+        } catch (CharacterCodingException x) {
+            // Substitution is always enabled,
+            // so this shouldn't happen
+            throw new Error(x);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Arrays;
+
+import io.github.merykitty.inlinestring.internal.Utils;
+import io.github.merykitty.inlinestring.internal.VectorSupport;
+import io.github.merykitty.inlinestring.internal.VectorizedHash;
+
+/**
+ * A range of the characters of an {@link InlineString}, which shares the
+ * array of the string instead of copying it.
+ *
+ * <p>Taking a slice, or a slice of a slice, only records the range, so
+ * that a parser can look at many short parts of a large string without
+ * allocating. The read-only operations of {@code InlineString} work on the
+ * range directly, and {@link #materialize()} copies it into a string of its
+ * own once it needs to be kept. Note that a slice keeps the whole array of
+ * its string reachable.
+ *
+ * <p>Two slices are equal if and only if they contain the same sequence of
+ * characters, and the hash code of a slice is the same as the one of the
+ * equal {@code InlineString}. A slice can therefore be used to look up the
+ * keys of a {@link FastStringMap} without copying it, using
+ * {@link FastStringMap#getInline(InlineStringSlice)}.
+ *
+ * @see InlineString#slice(int, int)
+ */
+@__primitive__
+public class InlineStringSlice implements CharSequence, Comparable<InlineStringSlice.ref> {
+    private final byte[] value;
+    private final byte coder;
+    // The range of the slice, in characters
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a slice covering the whole specified string.
+     *
+     * @param   string
+     *          The string to be sliced
+     */
+    public InlineStringSlice(InlineString string) {
+        this(string.value(), string.coder(), 0, string.length());
+    }
+
+    InlineStringSlice(byte[] value, byte coder, int offset, int length) {
+        this.value = value;
+        this.coder = coder;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the length of this slice.
+     *
+     * @return  the number of characters in this slice
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns {@code true} if, and only if, {@link #length()} is {@code 0}.
+     *
+     * @return  {@code true} if {@link #length()} is {@code 0}, otherwise
+     *          {@code false}
+     */
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns the {@code char} value at the specified index of this slice.
+     *
+     * @param   index
+     *          The index of the {@code char} value
+     * @return  the {@code char} value at the specified index
+     * @throws  IndexOutOfBoundsException
+     *          If {@code index} is negative or not less than the length of
+     *          this slice
+     */
+    @Override
+    public char charAt(int index) {
+        InlineString.checkIndex(index, length);
+        return getChar(value, coder, offset + index);
+    }
+
+    /**
+     * Returns a slice of this slice, sharing the same array.
+     *
+     * @param   beginIndex
+     *          The beginning index, inclusive
+     * @param   endIndex
+     *          The ending index, exclusive
+     * @return  the specified slice
+     * @throws  IndexOutOfBoundsException
+     *          If {@code beginIndex} is negative, or {@code endIndex} is
+     *          larger than the length of this slice, or {@code beginIndex}
+     *          is larger than {@code endIndex}
+     */
+    public InlineStringSlice slice(int beginIndex, int endIndex) {
+        InlineString.checkBoundsBeginEnd(beginIndex, endIndex, length);
+        return new InlineStringSlice(value, coder, offset + beginIndex, endIndex - beginIndex);
+    }
+
+    /**
+     * Returns a slice of this slice, this is the same as
+     * {@link #slice(int, int)}.
+     *
+     * @param   beginIndex
+     *          The beginning index, inclusive
+     * @param   endIndex
+     *          The ending index, exclusive
+     * @return  the specified slice
+     * @throws  IndexOutOfBoundsException
+     *          If {@code beginIndex} is negative, or {@code endIndex} is
+     *          larger than the length of this slice, or {@code beginIndex}
+     *          is larger than {@code endIndex}
+     */
+    @Override
+    public CharSequence subSequence(int beginIndex, int endIndex) {
+        return slice(beginIndex, endIndex);
+    }
+
+    /**
+     * Returns the index within this slice of the first occurrence of the
+     * specified character.
+     *
+     * @param   ch
+     *          A character (Unicode code point)
+     * @return  the index of the first occurrence of the character, or
+     *          {@code -1} if the character does not occur
+     * @see     InlineString#indexOf(int)
+     */
+    public int indexOf(int ch) {
+        return indexOf(ch, 0);
+    }
+
+    /**
+     * Returns the index within this slice of the first occurrence of the
+     * specified character, starting the search at the specified index.
+     *
+     * @param   ch
+     *          A character (Unicode code point)
+     * @param   fromIndex
+     *          The index to start the search from
+     * @return  the index of the first occurrence of the character at an
+     *          index greater than or equal to {@code fromIndex}, or
+     *          {@code -1} if the character does not occur
+     * @see     InlineString#indexOf(int, int)
+     */
+    public int indexOf(int ch, int fromIndex) {
+        int end = offset + length;
+        // Clamp first, offset + fromIndex may overflow
+        fromIndex = Math.min(Math.max(fromIndex, 0), length);
+        int i = offset + fromIndex;
+        if (ch < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            if (coder == Utils.LATIN1) {
+                if (!StringLatin1.canEncode(ch)) {
+                    return -1;
+                }
+                byte c = (byte) ch;
+                for (; i < end; i++) {
+                    if (value[i] == c) {
+                        return i - offset;
+                    }
+                }
+            } else {
+                for (; i < end; i++) {
+                    if (StringUTF16.getChar(value, i) == ch) {
+                        return i - offset;
+                    }
+                }
+            }
+        } else if (coder == Utils.UTF16 && Character.isValidCodePoint(ch)) {
+            char hi = Character.highSurrogate(ch);
+            char lo = Character.lowSurrogate(ch);
+            for (end--; i < end; i++) {
+                if (StringUTF16.getChar(value, i) == hi && StringUTF16.getChar(value, i + 1) == lo) {
+                    return i - offset;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index within this slice of the first occurrence of the
+     * specified string.
+     *
+     * @param   str
+     *          The string to search for
+     * @return  the index of the first occurrence of the string, or
+     *          {@code -1} if there is no such occurrence
+     * @see     InlineString#indexOf(InlineString)
+     */
+    public int indexOf(InlineString str) {
+        return indexOf(str, 0);
+    }
+
+    /**
+     * Returns the index within this slice of the first occurrence of the
+     * specified string, starting the search at the specified index.
+     *
+     * @param   str
+     *          The string to search for
+     * @param   fromIndex
+     *          The index to start the search from
+     * @return  the index of the first occurrence of the string at an index
+     *          greater than or equal to {@code fromIndex}, or {@code -1} if
+     *          there is no such occurrence
+     * @see     InlineString#indexOf(InlineString, int)
+     */
+    public int indexOf(InlineString str, int fromIndex) {
+        // Search the array of the slice up to its end, from its offset on
+        fromIndex = Math.min(Math.max(fromIndex, 0), length);
+        int index = InlineString.indexOf(value, coder, offset + length, str, offset + fromIndex);
+        return index < 0 ? -1 : index - offset;
+    }
+
+    /**
+     * Tests if the range of this slice beginning at the specified index
+     * starts with the specified prefix.
+     *
+     * @param   prefix
+     *          The prefix
+     * @param   toffset
+     *          Where to begin looking in this slice
+     * @return  {@code true} if the characters of {@code prefix} are found at
+     *          index {@code toffset} of this slice, {@code false} otherwise
+     * @see     InlineString#startsWith(InlineString, int)
+     */
+    public boolean startsWith(InlineString prefix, int toffset) {
+        int plen = prefix.length();
+        // Note: toffset might be near -1>>>1.
+        if (toffset < 0 || toffset > length - plen) {
+            return false;
+        }
+        return regionEquals(value, coder, offset + toffset, prefix.value(), prefix.coder(), 0, plen);
+    }
+
+    /**
+     * Tests if this slice starts with the specified prefix.
+     *
+     * @param   prefix
+     *          The prefix
+     * @return  {@code true} if this slice starts with the characters of
+     *          {@code prefix}, {@code false} otherwise
+     */
+    public boolean startsWith(InlineString prefix) {
+        return startsWith(prefix, 0);
+    }
+
+    /**
+     * Tests if this slice ends with the specified suffix.
+     *
+     * @param   suffix
+     *          The suffix
+     * @return  {@code true} if this slice ends with the characters of
+     *          {@code suffix}, {@code false} otherwise
+     */
+    public boolean endsWith(InlineString suffix) {
+        return startsWith(suffix, length - suffix.length());
+    }
+
+    /**
+     * Returns a slice of this slice with all the leading and trailing
+     * characters whose code points are less than or equal to {@code ' '}
+     * removed, without copying.
+     *
+     * @return  the trimmed slice
+     * @see     InlineString#trim()
+     */
+    public InlineStringSlice trim() {
+        int begin = offset;
+        int end = offset + length;
+        while (begin < end && getChar(value, coder, begin) <= ' ') {
+            begin++;
+        }
+        while (begin < end && getChar(value, coder, end - 1) <= ' ') {
+            end--;
+        }
+        return new InlineStringSlice(value, coder, begin, end - begin);
+    }
+
+    /**
+     * Returns a slice of this slice with all the leading and trailing
+     * {@linkplain Character#isWhitespace(int) white space} removed, without
+     * copying.
+     *
+     * @return  the stripped slice
+     * @see     InlineString#strip()
+     */
+    public InlineStringSlice strip() {
+        // The white space characters are all in the Basic Multilingual
+        // Plane, a surrogate is never one of them
+        int begin = offset;
+        int end = offset + length;
+        while (begin < end && Character.isWhitespace(getChar(value, coder, begin))) {
+            begin++;
+        }
+        while (begin < end && Character.isWhitespace(getChar(value, coder, end - 1))) {
+            end--;
+        }
+        return new InlineStringSlice(value, coder, begin, end - begin);
+    }
+
+    /**
+     * Tests if this slice contains the same characters as the specified
+     * string.
+     *
+     * @param   string
+     *          The string to compare this slice against
+     * @return  {@code true} if this slice and {@code string} contain the
+     *          same sequence of characters, {@code false} otherwise
+     */
+    public boolean contentEquals(InlineString string) {
+        return length == string.length()
+                && regionEquals(value, coder, offset, string.value(), string.coder(), 0, length);
+    }
+
+    /**
+     * Compares this slice to the specified object. The result is
+     * {@code true} if and only if the argument is an
+     * {@code InlineStringSlice} containing the same sequence of characters
+     * as this slice, wherever they are in their arrays.
+     *
+     * @param   anObject
+     *          The object to compare this {@code InlineStringSlice} against
+     * @return  {@code true} if the given object is an equal slice,
+     *          {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object anObject) {
+        if (anObject instanceof InlineStringSlice other) {
+            return length == other.length
+                    && regionEquals(value, coder, offset, other.value, other.coder, other.offset, length);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a hash code for this slice, which is the same as the hash code
+     * of {@code materialize()}.
+     *
+     * @return  a hash code value for this slice
+     * @see     InlineString#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int end = offset + length;
+        if (coder == Utils.LATIN1) {
+            if (VectorSupport.HASH && length >= VectorizedHash.MIN_LENGTH) {
+                return VectorizedHash.hashCodeLatin1(value, offset, length);
+            }
+            int h = 0;
+            for (int i = offset; i < end; i++) {
+                h = 31 * h + (value[i] & 0xff);
+            }
+            return h;
+        } else {
+            if (VectorSupport.HASH && length >= VectorizedHash.MIN_LENGTH) {
+                return VectorizedHash.hashCodeUTF16(value, offset, length);
+            }
+            int h = 0;
+            for (int i = offset; i < end; i++) {
+                h = 31 * h + StringUTF16.getChar(value, i);
+            }
+            return h;
+        }
+    }
+
+    /**
+     * Compares two slices lexicographically, in the same way as
+     * {@link InlineString#compareTo(InlineString.ref)} compares the strings
+     * they contain.
+     *
+     * @param   anotherSlice
+     *          The slice to be compared
+     * @return  {@code 0} if the slices are equal, a value less than
+     *          {@code 0} if this slice is lexicographically less than the
+     *          argument, and a value greater than {@code 0} otherwise
+     */
+    @Override
+    public int compareTo(InlineStringSlice.ref anotherSlice) {
+        var other = (InlineStringSlice) anotherSlice;
+        int lim = Math.min(length, other.length);
+        if (coder == Utils.LATIN1 && other.coder == Utils.LATIN1) {
+            int i = Arrays.mismatch(value, offset, offset + lim, other.value, other.offset, other.offset + lim);
+            if (i >= 0) {
+                return (value[offset + i] & 0xff) - (other.value[other.offset + i] & 0xff);
+            }
+        } else {
+            for (int i = 0; i < lim; i++) {
+                char c1 = getChar(value, coder, offset + i);
+                char c2 = getChar(other.value, other.coder, other.offset + i);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+        }
+        return length - other.length;
+    }
+
+    /**
+     * Copies the characters of this slice into a string of their own, so
+     * that the array of the sliced string is not kept reachable by it. A
+     * slice covering the whole array of its string returns a string sharing
+     * that array.
+     *
+     * @return  a string containing the characters of this slice
+     */
+    public InlineString materialize() {
+        if (offset == 0 && length == value.length >> coder) {
+            return new InlineString(value, coder);
+        }
+        return coder == Utils.LATIN1 ? StringLatin1.newString(value, offset, length)
+                : StringUTF16.newString(value, offset, length);
+    }
+
+    /**
+     * Returns a {@code String} containing the characters of this slice.
+     *
+     * @return  the characters of this slice
+     */
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+
+    byte coder() {
+        return coder;
+    }
+
+    /*
+     * Copy the characters of this slice into dst starting at dstBegin, dst
+     * and dstBegin being in the specified coder, which must be at least as
+     * wide as the one of this slice.
+     */
+    void getBytes(byte[] dst, int dstBegin, byte coder) {
+        if (this.coder == coder) {
+            System.arraycopy(value, offset << coder, dst, dstBegin << coder, length << coder);
+        } else {    // this.coder == LATIN1 && coder == UTF16
+            StringLatin1.inflate(value, offset, dst, dstBegin, length);
+        }
+    }
+
+    private static char getChar(byte[] value, byte coder, int index) {
+        return coder == Utils.LATIN1 ? (char) (value[index] & 0xff) : StringUTF16.getChar(value, index);
+    }
+
+    // Compare the len characters of v1 from off1 to those of v2 from off2,
+    // a slice of a UTF16 string may only contain Latin1 characters so the
+    // coders do not tell whether the characters can be equal
+    private static boolean regionEquals(byte[] v1, byte coder1, int off1,
+                                        byte[] v2, byte coder2, int off2, int len) {
+        if (coder1 == coder2) {
+            return Arrays.equals(v1, off1 << coder1, (off1 + len) << coder1,
+                    v2, off2 << coder2, (off2 + len) << coder2);
+        }
+        for (int i = 0; i < len; i++) {
+            if (getChar(v1, coder1, off1 + i) != getChar(v2, coder2, off2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
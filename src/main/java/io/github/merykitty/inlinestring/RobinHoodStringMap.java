@@ -0,0 +1,674 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An open addressing map with the same interface as {@link FastStringMap},
+ * using Robin Hood hashing.
+ *
+ * <p>Each entry records its distance from the slot its hash maps to. On
+ * insertion, an entry takes the slot of any entry that is closer to its
+ * home than the one being inserted, which then continues the probe. This
+ * keeps the probe lengths of all entries close to each other, and a lookup
+ * can stop as soon as it meets an entry closer to its home than the probe.
+ *
+ * <p>A removal shifts the following entries of the cluster one slot back
+ * instead of leaving a tombstone, so maps with a lot of insertions and
+ * removals do not degrade over time.
+ *
+ * <p>The views of the map are backed by the table and support removal.
+ * Their iterators are fail-fast on the structural modifications not made
+ * through {@link Iterator#remove}.
+ */
+public class RobinHoodStringMap<V> implements Map<InlineString.ref, V> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    private Node<V>[] table;
+    private int size;
+    // The number of structural modifications, for the fail-fast iterators
+    private int modCount;
+
+    private KeySet keySet;
+    private Values values;
+    private EntrySet entrySet;
+
+    @SuppressWarnings("unchecked")
+    public RobinHoodStringMap(int initialCapacity) {
+        table = (Node<V>[]) new Node[computeCapacity(Math.max(initialCapacity, 8))];
+    }
+
+    public RobinHoodStringMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKeyInline(InlineString key) {
+        return find(hash(key), key) >= 0;
+    }
+
+    public boolean containsKeyInline(HashedInlineString key) {
+        return find(spread(key.hash()), key.string()) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (key instanceof InlineString k) {
+            return containsKeyInline(k);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0, j = 0; j < size && i < table.length; i++) {
+            var temp = table[i];
+            if (temp.dist() != 0) {
+                if (value.equals(temp.value())) {
+                    return true;
+                }
+                j++;
+            }
+        }
+        return false;
+    }
+
+    public V getInline(InlineString key) {
+        return getValue(hash(key), key);
+    }
+
+    public V getInline(HashedInlineString key) {
+        return getValue(spread(key.hash()), key.string());
+    }
+
+    private V getValue(int h, InlineString key) {
+        int index = find(h, key);
+        if (index >= 0) {
+            return table[index].value();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key instanceof InlineString k) {
+            return getInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    public V putInline(InlineString key, V value) {
+        return putValue(hash(key), key, value);
+    }
+
+    public V putInline(HashedInlineString key, V value) {
+        return putValue(spread(key.hash()), key.string(), value);
+    }
+
+    private V putValue(int h, InlineString key, V value) {
+        Objects.requireNonNull(value);
+        int index = find(h, key);
+        if (index >= 0) {
+            var temp = table[index];
+            table[index] = new Node<>(h, key, value, temp.dist());
+            return temp.value();
+        }
+        if (size + 1 > maxSize(table.length)) {
+            grow(table.length << 1);
+        }
+        insert(h, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V put(InlineString.ref key, V value) {
+        return putInline(key, value);
+    }
+
+    public V removeInline(InlineString key) {
+        return removeValue(hash(key), key);
+    }
+
+    public V removeInline(HashedInlineString key) {
+        return removeValue(spread(key.hash()), key.string());
+    }
+
+    private V removeValue(int h, InlineString key) {
+        int index = find(h, key);
+        if (index >= 0) {
+            V result = table[index].value();
+            erase(index);
+            size--;
+            return result;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key instanceof InlineString k) {
+            return removeInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends InlineString.ref, ? extends V> m) {
+        int estimatedSize = size + m.size();
+        if (estimatedSize > maxSize(table.length)) {
+            grow(capacityFor(estimatedSize));
+        }
+        if (m instanceof RobinHoodStringMap) {
+            // Fast path, not need to recompute hash
+            @SuppressWarnings("unchecked")
+            var im = (RobinHoodStringMap<? extends V>) m;
+            for (int i = 0; i < im.table.length; i++) {
+                var temp = im.table[i];
+                if (temp.dist() != 0) {
+                    putValue(temp.hash(), temp.key(), temp.value());
+                }
+            }
+        } else {
+            for (var entry : m.entrySet()) {
+                var key = entry.getKey();
+                putValue(hash(key), key, entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void clear() {
+        modCount++;
+        size = 0;
+        table = (Node<V>[]) new Node[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    @Override
+    public Set<InlineString.ref> keySet() {
+        var ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    @Override
+    public Collection<V> values() {
+        var vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    @Override
+    public Set<Entry<InlineString.ref, V>> entrySet() {
+        var es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    public V getOrDefaultInline(InlineString key, V defaultValue) {
+        return getOrDefaultValue(hash(key), key, defaultValue);
+    }
+
+    public V getOrDefaultInline(HashedInlineString key, V defaultValue) {
+        return getOrDefaultValue(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    private V getOrDefaultValue(int h, InlineString key, V defaultValue) {
+        int index = find(h, key);
+        if (index >= 0) {
+            return table[index].value();
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        if (key instanceof InlineString k) {
+            return getOrDefaultInline(k, defaultValue);
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super InlineString.ref, ? super V> action) {
+        for (int i = 0, j = 0; j < size && i < table.length; i++) {
+            var temp = table[i];
+            if (temp.dist() != 0) {
+                action.accept(temp.key(), temp.value());
+                j++;
+            }
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super InlineString.ref, ? super V, ? extends V> function) {
+        for (int i = 0, j = 0; j < size && i < table.length; i++) {
+            var temp = table[i];
+            if (temp.dist() != 0) {
+                var nValue = function.apply(temp.key(), temp.value());
+                table[i] = new Node<>(temp.hash(), temp.key(), Objects.requireNonNull(nValue), temp.dist());
+                j++;
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(InlineString.ref key, V value) {
+        return Map.super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return Map.super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(InlineString.ref key, V oldValue, V newValue) {
+        return Map.super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(InlineString.ref key, V value) {
+        return Map.super.replace(key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(InlineString.ref key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        return Map.super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return Map.super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return Map.super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(InlineString.ref key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return Map.super.merge(key, value, remappingFunction);
+    }
+
+    private final class KeySet extends AbstractSet<InlineString.ref> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            RobinHoodStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<InlineString.ref> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int oldSize = size;
+            RobinHoodStringMap.this.remove(o);
+            return size != oldSize;
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            RobinHoodStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<InlineString.ref, V>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            RobinHoodStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<InlineString.ref, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                int index = find(hash(k), k);
+                return index >= 0 && table[index].value().equals(e.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                int index = find(hash(k), k);
+                if (index >= 0 && table[index].value().equals(e.getValue())) {
+                    erase(index);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // An entry handed out by the views, setValue writes through to the map
+    // as long as the key is still present
+    private static final class MapEntry<V> implements Map.Entry<InlineString.ref, V> {
+        private final RobinHoodStringMap<V> map;
+        private final int hash;
+        private final InlineString key;
+        private V value;
+
+        MapEntry(RobinHoodStringMap<V> map, Node<V> node) {
+            this.map = map;
+            this.hash = node.hash();
+            this.key = node.key();
+            this.value = node.value();
+        }
+
+        @Override
+        public InlineString.ref getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            int index = map.find(hash, key);
+            if (index >= 0) {
+                var temp = map.table[index];
+                map.table[index] = new Node<>(hash, key, value, temp.dist());
+            }
+            V result = this.value;
+            this.value = value;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && key.equals(e.getKey())
+                    && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key.toString() + "=" + value;
+        }
+    }
+
+    // A removal shifts the rest of the cluster one slot back, so the
+    // iterator walks the table from the start of a cluster, a slot that is
+    // empty or holds an entry in its home slot, around to the slot before
+    // it. No cluster then wraps over the end of the walk, and after a
+    // removal the entry moved into the removed slot, if any, comes from a
+    // slot not visited yet and is visited next. The start keeps this
+    // property across the removals, since the entry shifted into it was at
+    // most 1 slot away from its home
+    private abstract class TableIterator {
+        final int start;
+        int offset;           // offset from start of the next slot to look at
+        int current = -1;     // slot of the last returned entry
+        int expectedModCount;
+
+        TableIterator() {
+            expectedModCount = modCount;
+            // The load factor leaves at least one empty slot
+            int i = 0;
+            while (table[i].dist() > 1) {
+                i++;
+            }
+            start = i;
+            advance();
+        }
+
+        private void advance() {
+            var tab = table;
+            int mask = tab.length - 1;
+            while (offset < tab.length && tab[(start + offset) & mask].dist() == 0) {
+                offset++;
+            }
+        }
+
+        public final boolean hasNext() {
+            return offset < table.length;
+        }
+
+        final Node<V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (offset >= table.length) {
+                throw new NoSuchElementException();
+            }
+            current = (start + offset++) & (table.length - 1);
+            advance();
+            return table[current];
+        }
+
+        public final void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            erase(current);
+            size--;
+            if (table[current].dist() != 0) {
+                // The next entry of the cluster moved into the slot
+                offset = (current - start) & (table.length - 1);
+            }
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends TableIterator implements Iterator<InlineString.ref> {
+        @Override
+        public InlineString.ref next() {
+            return nextNode().key();
+        }
+    }
+
+    private final class ValueIterator extends TableIterator implements Iterator<V> {
+        @Override
+        public V next() {
+            return nextNode().value();
+        }
+    }
+
+    private final class EntryIterator extends TableIterator implements Iterator<Entry<InlineString.ref, V>> {
+        @Override
+        public Entry<InlineString.ref, V> next() {
+            return new MapEntry<>(RobinHoodStringMap.this, nextNode());
+        }
+    }
+
+    // dist is 1 plus the distance of the slot from the home slot of the
+    // entry, 0 marks an empty slot
+    @__primitive__
+    private record Node<V>(int hash, InlineString key, V value, int dist) {}
+
+    private static int hash(InlineString key) {
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private int find(int h, InlineString key) {
+        int mask = table.length - 1;
+        int i = h & mask;
+        for (int dist = 1; ; dist++) {
+            var temp = table[i];
+            if (temp.dist() < dist) {
+                // An entry with the key would have taken this slot
+                return -1;
+            } else if (h == temp.hash() && key.equals(temp.key())) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    // Insert a key known to be absent, the table must have a free slot
+    private void insert(int h, InlineString key, V value) {
+        int mask = table.length - 1;
+        int i = h & mask;
+        var node = new Node<>(h, key, value, 1);
+        while (true) {
+            var temp = table[i];
+            if (temp.dist() == 0) {
+                table[i] = node;
+                return;
+            } else if (temp.dist() < node.dist()) {
+                // Take the slot from the richer entry and continue with it
+                table[i] = node;
+                node = temp;
+            }
+            i = (i + 1) & mask;
+            node = new Node<>(node.hash(), node.key(), node.value(), node.dist() + 1);
+        }
+    }
+
+    // Backward shift deletion, move the following entries of the cluster
+    // one slot closer to their home until one is already there
+    private void erase(int index) {
+        modCount++;
+        int mask = table.length - 1;
+        int i = index;
+        while (true) {
+            int next = (i + 1) & mask;
+            var temp = table[next];
+            if (temp.dist() <= 1) {
+                table[i] = Node.default;
+                return;
+            }
+            table[i] = new Node<>(temp.hash(), temp.key(), temp.value(), temp.dist() - 1);
+            i = next;
+        }
+    }
+
+    // Trusted method, nCapacity is always a power of 2 able to hold all
+    // the entries
+    @SuppressWarnings("unchecked")
+    private void grow(int nCapacity) {
+        if (nCapacity < 0) {
+            throw new OutOfMemoryError("Too many elements");
+        }
+        modCount++;
+        var oldTable = table;
+        table = (Node<V>[]) new Node[nCapacity];
+        for (int i = 0; i < oldTable.length; i++) {
+            var temp = oldTable[i];
+            if (temp.dist() != 0) {
+                insert(temp.hash(), temp.key(), temp.value());
+            }
+        }
+    }
+
+    // The maximum load factor is 7/8, the probe lengths stay short even when
+    // the table is that full
+    private static int maxSize(int capacity) {
+        return capacity - (capacity >>> 3);
+    }
+
+    private static int capacityFor(int size) {
+        return computeCapacity((int) Math.min((size * 8L + 6) / 7, 1 << 30));
+    }
+
+    // Get the lowest power of 2 larger than the input
+    private static int computeCapacity(int requestedCapacity) {
+        requestedCapacity--;
+        for (int i = 0; i < 32; i++) {
+            if (requestedCapacity >>> i == 0) {
+                return 1 << i;
+            }
+        }
+        // can't reach here, due to an int contains only 32 bit
+        throw new AssertionError();
+    }
+}
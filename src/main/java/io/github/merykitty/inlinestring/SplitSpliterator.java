@@ -0,0 +1,94 @@
+package io.github.merykitty.inlinestring;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Produces the substrings of a string separated by a delimiter one at a
+ * time, backing {@link InlineString#splitIterator(char)} and
+ * {@link InlineString#splitSpliterator(char)}.
+ */
+final class SplitSpliterator implements Spliterator<InlineString.ref>, Iterator<InlineString.ref> {
+    private final InlineString string;
+    private final char delimiter;
+    private int index;        // start of the next substring, fence + 1 once exhausted
+    private final int fence;  // end of the last substring
+
+    SplitSpliterator(InlineString string, char delimiter, int start, int fence) {
+        this.string = string;
+        this.delimiter = delimiter;
+        this.index = start;
+        this.fence = fence;
+    }
+
+    // Return the index of the next delimiter before the fence, or the fence
+    private int indexOfDelimiter(int start) {
+        int next = string.indexOf(delimiter, start);
+        return next == -1 || next > fence ? fence : next;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index <= fence;
+    }
+
+    @Override
+    public InlineString.ref next() {
+        if (index > fence) {
+            throw new NoSuchElementException();
+        }
+        int start = index;
+        int end = indexOfDelimiter(start);
+        index = end + 1;
+        return string.substring(start, end);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super InlineString.ref> action) {
+        if (action == null) {
+            throw new NullPointerException("tryAdvance action missing");
+        }
+        if (index <= fence) {
+            action.accept(next());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super InlineString.ref> action) {
+        if (action == null) {
+            throw new NullPointerException("forEachRemaining action missing");
+        }
+        while (index <= fence) {
+            action.accept(next());
+        }
+    }
+
+    @Override
+    public Spliterator<InlineString.ref> trySplit() {
+        if (index > fence) {
+            return null;
+        }
+        int half = (fence + index) >>> 1;
+        int mid = indexOfDelimiter(half);
+        if (mid < fence) {
+            int start = index;
+            index = mid + 1;
+            return new SplitSpliterator(string, delimiter, start, mid);
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index + 1;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+    }
+}
@@ -32,6 +32,96 @@ final class StringConcatHelper {
         return newString(buf, indexCoder);
     }
 
+    public static InlineString concat(InlineString[] values) {
+        long indexCoder = initialCoder();
+        int nonEmpty = -1;
+        for (int i = 0; i < values.length; i++) {
+            var value = values[i];
+            if (!value.isEmpty()) {
+                // Remember the only non-empty argument, or -2 if there are more
+                nonEmpty = nonEmpty == -1 ? i : -2;
+                indexCoder = mix(indexCoder, value);
+            }
+        }
+        if (nonEmpty == -1) {
+            return InlineString.EMPTY_STRING;
+        } else if (nonEmpty >= 0) {
+            return values[nonEmpty];
+        }
+        byte[] buf = newArray(indexCoder);
+        for (int i = values.length - 1; i >= 0; i--) {
+            indexCoder = prepend(indexCoder, buf, values[i]);
+        }
+        return newString(buf, indexCoder);
+    }
+
+    /**
+     * Mixes in the length and coder of the constant parts of a recipe, so
+     * that it does not have to be done for each concatenation.
+     *
+     * @param constants the constant parts of the recipe
+     * @return          the initial length and coder of the concatenations
+     */
+    public static long mixConstants(InlineString[] constants) {
+        long lengthCoder = initialCoder();
+        for (var constant : constants) {
+            lengthCoder = mix(lengthCoder, constant);
+        }
+        return lengthCoder;
+    }
+
+    /**
+     * Concatenates the arguments of a recipe with its constant parts, the
+     * constant {@code i} comes right before the argument {@code i} and the
+     * last constant after the last argument.
+     *
+     * @param constants      the constant parts, one more than the arguments
+     * @param constantsCoder the length and coder of the constant parts
+     * @param args           the arguments
+     * @return               the concatenation
+     */
+    public static InlineString concat(InlineString[] constants, long constantsCoder, InlineString[] args) {
+        long indexCoder = constantsCoder;
+        for (var arg : args) {
+            indexCoder = mix(indexCoder, arg);
+        }
+        byte[] buf = newArray(indexCoder);
+        indexCoder = prepend(indexCoder, buf, constants[args.length]);
+        for (int i = args.length - 1; i >= 0; i--) {
+            indexCoder = prepend(indexCoder, buf, args[i]);
+            indexCoder = prepend(indexCoder, buf, constants[i]);
+        }
+        return newString(buf, indexCoder);
+    }
+
+    /**
+     * Prepends an argument of a recipe and the constant part following it,
+     * the step of the concatenations linked for each argument.
+     *
+     * @param indexCoder final char index in the buffer, along with coder
+     * @param buf        buffer to append to
+     * @param value      the argument
+     * @param suffix     the constant part following the argument
+     * @return           updated index (coder index retained)
+     */
+    public static long prepend(long indexCoder, byte[] buf, InlineString value, InlineString suffix) {
+        indexCoder = prepend(indexCoder, buf, suffix);
+        return prepend(indexCoder, buf, value);
+    }
+
+    /**
+     * Prepends the constant part preceding the first argument of a recipe,
+     * then instantiates the String.
+     *
+     * @param prefix     the constant part preceding the first argument
+     * @param indexCoder final char index in the buffer, along with coder
+     * @param buf        buffer to use
+     * @return           resulting string
+     */
+    public static InlineString newString(InlineString prefix, long indexCoder, byte[] buf) {
+        return newString(buf, prepend(indexCoder, buf, prefix));
+    }
+
     public static byte[] newArray(long indexCoder) {
         try {
             return (byte[]) NEW_ARRAY.invokeExact(indexCoder);
@@ -101,7 +191,7 @@ final class StringConcatHelper {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            var klass = lookup.findClass("java.lang.StringConcatHelper");
+            var klass = Utils.findBackendClass("java.lang.StringConcatHelper");
             NEW_ARRAY = lookup.findStatic(klass, "newArray", methodType(Byte.TYPE.arrayType(),
                     Long.TYPE));
         } catch (Exception e) {
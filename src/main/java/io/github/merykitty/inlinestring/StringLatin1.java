@@ -2,6 +2,9 @@ package io.github.merykitty.inlinestring;
 
 import io.github.merykitty.inlinestring.internal.ArraysSupport;
 import io.github.merykitty.inlinestring.internal.Utils;
+import io.github.merykitty.inlinestring.internal.VectorSupport;
+import io.github.merykitty.inlinestring.internal.VectorizedHash;
+import io.github.merykitty.inlinestring.internal.VectorizedSearch;
 
 import java.lang.invoke.MethodHandle;
 import java.util.Arrays;
@@ -125,6 +128,9 @@ final class StringLatin1 {
     }
 
     public static int hashCode(byte[] value) {
+        if (VectorSupport.HASH && value.length >= VectorizedHash.MIN_LENGTH) {
+            return VectorizedHash.hashCodeLatin1(value, 0, value.length);
+        }
         try {
             return (int) HASH_CODE.invokeExact(value);
         } catch (RuntimeException | Error e) {
@@ -147,6 +153,10 @@ final class StringLatin1 {
     }
 
     public static int indexOf(byte[] value, byte[] str) {
+        if (VectorSupport.SEARCH && str.length >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && value.length - str.length >= VectorizedSearch.MIN_LATIN1_CANDIDATES) {
+            return VectorizedSearch.indexOfLatin1(value, value.length, str, str.length, 0);
+        }
         try {
             return (int) INDEX_OF_1.invokeExact(value, str);
         } catch (RuntimeException | Error e) {
@@ -158,6 +168,10 @@ final class StringLatin1 {
     }
 
     public static int indexOf(byte[] value, int valueCount, byte[] str, int strCount, int fromIndex) {
+        if (VectorSupport.SEARCH && strCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && valueCount - strCount - fromIndex >= VectorizedSearch.MIN_LATIN1_CANDIDATES) {
+            return VectorizedSearch.indexOfLatin1(value, valueCount, str, strCount, fromIndex);
+        }
         try {
             return (int) INDEX_OF_2.invokeExact(value, valueCount, str, strCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -170,6 +184,10 @@ final class StringLatin1 {
 
     public static int lastIndexOf(byte[] src, int srcCount,
                                   byte[] tgt, int tgtCount, int fromIndex) {
+        if (VectorSupport.SEARCH && tgtCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && fromIndex >= VectorizedSearch.MIN_LATIN1_CANDIDATES) {
+            return VectorizedSearch.lastIndexOfLatin1(src, srcCount, tgt, tgtCount, fromIndex);
+        }
         try {
             return (int) LAST_INDEX_OF_0.invokeExact(src, srcCount, tgt, tgtCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -575,7 +593,7 @@ final class StringLatin1 {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            var klass = lookup.findClass("java.lang.StringLatin1");
+            var klass = Utils.findBackendClass("java.lang.StringLatin1");
             CHAR_AT = lookup.findStatic(klass, "charAt", methodType(Character.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE));
             CAN_ENCODE = lookup.findStatic(klass, "canEncode", methodType(Boolean.TYPE,
@@ -630,7 +648,7 @@ final class StringLatin1 {
                     Byte.TYPE.arrayType(), Integer.TYPE, Character.TYPE.arrayType(), Integer.TYPE, Integer.TYPE));
             INFLATE_3 = lookup.findStatic(klass, "inflate", methodType(Void.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE, Byte.TYPE.arrayType(), Integer.TYPE, Integer.TYPE));
-            var charsSpliteratorClass = lookup.findClass("java.lang.StringLatin1$CharsSpliterator");
+            var charsSpliteratorClass = Utils.findBackendClass("java.lang.StringLatin1$CharsSpliterator");
             CHARS_SPLITERATOR = lookup.findConstructor(charsSpliteratorClass, methodType(Void.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE)).asType(methodType(Spliterator.OfInt.class,
                     Byte.TYPE.arrayType(), Integer.TYPE));
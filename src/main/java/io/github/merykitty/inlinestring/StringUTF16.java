@@ -2,6 +2,9 @@ package io.github.merykitty.inlinestring;
 
 import io.github.merykitty.inlinestring.internal.ArraysSupport;
 import io.github.merykitty.inlinestring.internal.Utils;
+import io.github.merykitty.inlinestring.internal.VectorSupport;
+import io.github.merykitty.inlinestring.internal.VectorizedHash;
+import io.github.merykitty.inlinestring.internal.VectorizedSearch;
 
 import java.lang.invoke.MethodHandle;
 import java.util.Arrays;
@@ -236,6 +239,9 @@ final class StringUTF16 {
     }
 
     public static int hashCode(byte[] value) {
+        if (VectorSupport.HASH && value.length >> 1 >= VectorizedHash.MIN_LENGTH) {
+            return VectorizedHash.hashCodeUTF16(value, 0, value.length >> 1);
+        }
         try {
             return (int) HASH_CODE.invokeExact(value);
         } catch (RuntimeException | Error e) {
@@ -258,6 +264,10 @@ final class StringUTF16 {
     }
 
     public static int indexOf(byte[] value, byte[] str) {
+        if (VectorSupport.SEARCH && str.length >= VectorizedSearch.MIN_NEEDLE_LENGTH << 1
+                && (value.length - str.length) >> 1 >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.indexOfUTF16(value, value.length >> 1, str, str.length >> 1, 0);
+        }
         try {
             return (int) INDEX_OF_1.invokeExact(value, str);
         } catch (RuntimeException | Error e) {
@@ -269,6 +279,10 @@ final class StringUTF16 {
     }
 
     public static int indexOf(byte[] value, int valueCount, byte[] str, int strCount, int fromIndex) {
+        if (VectorSupport.SEARCH && strCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && valueCount - strCount - fromIndex >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.indexOfUTF16(value, valueCount, str, strCount, fromIndex);
+        }
         try {
             return (int) INDEX_OF_2.invokeExact(value, valueCount, str, strCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -280,6 +294,10 @@ final class StringUTF16 {
     }
 
     public static int indexOfLatin1(byte[] value, byte[] str) {
+        if (VectorSupport.SEARCH && str.length >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && (value.length >> 1) - str.length >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.indexOfUTF16Latin1(value, value.length >> 1, str, str.length, 0);
+        }
         try {
             return (int) INDEX_OF_LATIN1_0.invokeExact(value, str);
         } catch (RuntimeException | Error e) {
@@ -291,6 +309,10 @@ final class StringUTF16 {
     }
 
     public static int indexOfLatin1(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        if (VectorSupport.SEARCH && tgtCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && srcCount - tgtCount - fromIndex >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.indexOfUTF16Latin1(src, srcCount, tgt, tgtCount, fromIndex);
+        }
         try {
             return (int) INDEX_OF_LATIN1_1.invokeExact(src, srcCount, tgt, tgtCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -303,6 +325,10 @@ final class StringUTF16 {
 
     public static int lastIndexOf(byte[] src, int srcCount,
                                   byte[] tgt, int tgtCount, int fromIndex) {
+        if (VectorSupport.SEARCH && tgtCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && fromIndex >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.lastIndexOfUTF16(src, srcCount, tgt, tgtCount, fromIndex);
+        }
         try {
             return (int) LAST_INDEX_OF_0.invokeExact(src, srcCount, tgt, tgtCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -633,6 +659,10 @@ final class StringUTF16 {
 
     public static int lastIndexOfLatin1(byte[] src, int srcCount,
                                         byte[] tgt, int tgtCount, int fromIndex) {
+        if (VectorSupport.SEARCH && tgtCount >= VectorizedSearch.MIN_NEEDLE_LENGTH
+                && fromIndex >= VectorizedSearch.MIN_UTF16_CANDIDATES) {
+            return VectorizedSearch.lastIndexOfUTF16Latin1(src, srcCount, tgt, tgtCount, fromIndex);
+        }
         try {
             return (int) LAST_INDEX_OF_LATIN1.invokeExact(src, srcCount, tgt, tgtCount, fromIndex);
         } catch (RuntimeException | Error e) {
@@ -799,7 +829,7 @@ final class StringUTF16 {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            var klass = lookup.findClass("java.lang.StringUTF16");
+            var klass = Utils.findBackendClass("java.lang.StringUTF16");
             NEW_BYTES_FOR = lookup.findStatic(klass, "newBytesFor", methodType(Byte.TYPE.arrayType(),
                     Integer.TYPE));
             PUT_CHAR = lookup.findStatic(klass, "putChar", methodType(Void.TYPE,
@@ -876,11 +906,11 @@ final class StringUTF16 {
                     Byte.TYPE.arrayType(), Integer.TYPE));
             LAST_INDEX_OF_LATIN1 = lookup.findStatic(klass, "lastIndexOfLatin1", methodType(Integer.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE, Byte.TYPE.arrayType(), Integer.TYPE, Integer.TYPE));
-            var charsSpliteratorClass = lookup.findClass("java.lang.StringUTF16$CharsSpliterator");
+            var charsSpliteratorClass = Utils.findBackendClass("java.lang.StringUTF16$CharsSpliterator");
             CHARS_SPLITERATOR = lookup.findConstructor(charsSpliteratorClass, methodType(Void.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE)).asType(methodType(Spliterator.OfInt.class,
                     Byte.TYPE.arrayType(), Integer.TYPE));
-            var codePointsSpliteratorClass = lookup.findClass("java.lang.StringUTF16$CodePointsSpliterator");
+            var codePointsSpliteratorClass = Utils.findBackendClass("java.lang.StringUTF16$CodePointsSpliterator");
             CODE_POINTS_SPLITERATOR = lookup.findConstructor(codePointsSpliteratorClass, methodType(Void.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE)).asType(methodType(Spliterator.OfInt.class,
                     Byte.TYPE.arrayType(), Integer.TYPE));
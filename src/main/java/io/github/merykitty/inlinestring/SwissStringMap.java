@@ -0,0 +1,726 @@
+package io.github.merykitty.inlinestring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An open addressing map with the same interface as {@link FastStringMap},
+ * laid out as a SwissTable.
+ *
+ * <p>Next to the slot array, the map keeps an array of control bytes, one
+ * per slot, that records whether the slot is empty, deleted, or full, and
+ * in the last case 7 bits of the hash of its key. A probe loads a group of
+ * 8 control bytes at once and matches them against the hash bits of the
+ * key with a few arithmetic operations on a {@code long}. Only the slots
+ * whose control byte matches are loaded and compared, and the probe stops
+ * at the first group containing an empty slot. This makes lookups of
+ * absent keys cheap and allows the table to be filled up to 7/8 of its
+ * capacity.
+ *
+ * <p>The views of the map are backed by the table and support removal.
+ * A removal never moves the other entries, so their iterators keep their
+ * position across {@link Iterator#remove}, and are fail-fast on the other
+ * structural modifications.
+ */
+public class SwissStringMap<V> implements Map<InlineString.ref, V> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+    private static final int GROUP_SHIFT = 3;
+    private static final int GROUP_WIDTH = 1 << GROUP_SHIFT;
+
+    // Control bytes, a full slot has its top bit cleared and the 7 lowest
+    // hash bits in the remaining ones
+    private static final byte EMPTY = (byte) 0b1000_0000;
+    private static final byte DELETED = (byte) 0b1111_1110;
+
+    private static final long LSBS = 0x0101_0101_0101_0101L;
+    private static final long MSBS = 0x8080_8080_8080_8080L;
+    private static final VarHandle GROUP = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] ctrl;
+    private Node<V>[] table;
+    private int size;
+    // The number of empty slots that can still be filled before the load
+    // factor is exceeded
+    private int growthLeft;
+    // The number of structural modifications, for the fail-fast iterators
+    private int modCount;
+
+    private KeySet keySet;
+    private Values values;
+    private EntrySet entrySet;
+
+    public SwissStringMap(int initialCapacity) {
+        initTable(computeCapacity(Math.max(initialCapacity, GROUP_WIDTH)));
+    }
+
+    public SwissStringMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKeyInline(InlineString key) {
+        return find(hash(key), key) >= 0;
+    }
+
+    public boolean containsKeyInline(HashedInlineString key) {
+        return find(spread(key.hash()), key.string()) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (key instanceof InlineString k) {
+            return containsKeyInline(k);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0, j = 0; j < size && i < ctrl.length; i++) {
+            if (ctrl[i] >= 0) {
+                if (value.equals(table[i].value())) {
+                    return true;
+                }
+                j++;
+            }
+        }
+        return false;
+    }
+
+    public V getInline(InlineString key) {
+        return getValue(hash(key), key);
+    }
+
+    public V getInline(HashedInlineString key) {
+        return getValue(spread(key.hash()), key.string());
+    }
+
+    private V getValue(int h, InlineString key) {
+        int index = find(h, key);
+        if (index >= 0) {
+            return table[index].value();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key instanceof InlineString k) {
+            return getInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    public V putInline(InlineString key, V value) {
+        return putValue(hash(key), key, value);
+    }
+
+    public V putInline(HashedInlineString key, V value) {
+        return putValue(spread(key.hash()), key.string(), value);
+    }
+
+    private V putValue(int h, InlineString key, V value) {
+        Objects.requireNonNull(value);
+        int index = find(h, key);
+        if (index >= 0) {
+            V result = table[index].value();
+            table[index] = new Node<>(h, key, value);
+            return result;
+        }
+        insert(h, key, value);
+        return null;
+    }
+
+    @Override
+    public V put(InlineString.ref key, V value) {
+        return putInline(key, value);
+    }
+
+    public V removeInline(InlineString key) {
+        return removeValue(hash(key), key);
+    }
+
+    public V removeInline(HashedInlineString key) {
+        return removeValue(spread(key.hash()), key.string());
+    }
+
+    private V removeValue(int h, InlineString key) {
+        int index = find(h, key);
+        if (index >= 0) {
+            V result = table[index].value();
+            erase(index);
+            return result;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key instanceof InlineString k) {
+            return removeInline(k);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends InlineString.ref, ? extends V> m) {
+        int estimatedSize = size + m.size();
+        if (estimatedSize - size > growthLeft) {
+            resize(Math.max(capacityFor(estimatedSize), ctrl.length));
+        }
+        if (m instanceof SwissStringMap) {
+            // Fast path, not need to recompute hash
+            @SuppressWarnings("unchecked")
+            var im = (SwissStringMap<? extends V>) m;
+            for (int i = 0; i < im.ctrl.length; i++) {
+                if (im.ctrl[i] >= 0) {
+                    var temp = im.table[i];
+                    putValue(temp.hash(), temp.key(), temp.value());
+                }
+            }
+        } else {
+            for (var entry : m.entrySet()) {
+                var key = entry.getKey();
+                putValue(hash(key), key, entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+        initTable(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public Set<InlineString.ref> keySet() {
+        var ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    @Override
+    public Collection<V> values() {
+        var vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    @Override
+    public Set<Entry<InlineString.ref, V>> entrySet() {
+        var es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    public V getOrDefaultInline(InlineString key, V defaultValue) {
+        return getOrDefaultValue(hash(key), key, defaultValue);
+    }
+
+    public V getOrDefaultInline(HashedInlineString key, V defaultValue) {
+        return getOrDefaultValue(spread(key.hash()), key.string(), defaultValue);
+    }
+
+    private V getOrDefaultValue(int h, InlineString key, V defaultValue) {
+        int index = find(h, key);
+        if (index >= 0) {
+            return table[index].value();
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        if (key instanceof InlineString k) {
+            return getOrDefaultInline(k, defaultValue);
+        } else {
+            return Objects.requireNonNull(defaultValue);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super InlineString.ref, ? super V> action) {
+        for (int i = 0, j = 0; j < size && i < ctrl.length; i++) {
+            if (ctrl[i] >= 0) {
+                var temp = table[i];
+                action.accept(temp.key(), temp.value());
+                j++;
+            }
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super InlineString.ref, ? super V, ? extends V> function) {
+        for (int i = 0, j = 0; j < size && i < ctrl.length; i++) {
+            if (ctrl[i] >= 0) {
+                var temp = table[i];
+                var nValue = function.apply(temp.key(), temp.value());
+                table[i] = new Node<>(temp.hash(), temp.key(), Objects.requireNonNull(nValue));
+                j++;
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(InlineString.ref key, V value) {
+        return Map.super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return Map.super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(InlineString.ref key, V oldValue, V newValue) {
+        return Map.super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(InlineString.ref key, V value) {
+        return Map.super.replace(key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(InlineString.ref key, Function<? super InlineString.ref, ? extends V> mappingFunction) {
+        return Map.super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return Map.super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(InlineString.ref key, BiFunction<? super InlineString.ref, ? super V, ? extends V> remappingFunction) {
+        return Map.super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(InlineString.ref key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return Map.super.merge(key, value, remappingFunction);
+    }
+
+    private final class KeySet extends AbstractSet<InlineString.ref> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            SwissStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<InlineString.ref> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int oldSize = size;
+            SwissStringMap.this.remove(o);
+            return size != oldSize;
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            SwissStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<InlineString.ref, V>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            SwissStringMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<InlineString.ref, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                int index = find(hash(k), k);
+                return index >= 0 && table[index].value().equals(e.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o instanceof Map.Entry<?, ?> e && e.getKey() instanceof InlineString k) {
+                int index = find(hash(k), k);
+                if (index >= 0 && table[index].value().equals(e.getValue())) {
+                    erase(index);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // An entry handed out by the views, setValue writes through to the map
+    // as long as the key is still present
+    private static final class MapEntry<V> implements Map.Entry<InlineString.ref, V> {
+        private final SwissStringMap<V> map;
+        private final int hash;
+        private final InlineString key;
+        private V value;
+
+        MapEntry(SwissStringMap<V> map, Node<V> node) {
+            this.map = map;
+            this.hash = node.hash();
+            this.key = node.key();
+            this.value = node.value();
+        }
+
+        @Override
+        public InlineString.ref getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            int index = map.find(hash, key);
+            if (index >= 0) {
+                map.table[index] = new Node<>(hash, key, value);
+            }
+            V result = this.value;
+            this.value = value;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && key.equals(e.getKey())
+                    && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key.toString() + "=" + value;
+        }
+    }
+
+    private abstract class TableIterator {
+        int index;            // next slot to look at
+        int current = -1;     // slot of the last returned entry
+        int expectedModCount;
+
+        TableIterator() {
+            expectedModCount = modCount;
+            advance();
+        }
+
+        private void advance() {
+            while (index < ctrl.length && ctrl[index] < 0) {
+                index++;
+            }
+        }
+
+        public final boolean hasNext() {
+            return index < ctrl.length;
+        }
+
+        final Node<V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= ctrl.length) {
+                throw new NoSuchElementException();
+            }
+            current = index++;
+            advance();
+            return table[current];
+        }
+
+        public final void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            erase(current);
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends TableIterator implements Iterator<InlineString.ref> {
+        @Override
+        public InlineString.ref next() {
+            return nextNode().key();
+        }
+    }
+
+    private final class ValueIterator extends TableIterator implements Iterator<V> {
+        @Override
+        public V next() {
+            return nextNode().value();
+        }
+    }
+
+    private final class EntryIterator extends TableIterator implements Iterator<Entry<InlineString.ref, V>> {
+        @Override
+        public Entry<InlineString.ref, V> next() {
+            return new MapEntry<>(SwissStringMap.this, nextNode());
+        }
+    }
+
+    @__primitive__
+    private record Node<V>(int hash, InlineString key, V value) {}
+
+    private static int hash(InlineString key) {
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // The 7 hash bits stored in the control byte
+    private static byte h2(int h) {
+        return (byte) (h & 0x7f);
+    }
+
+    // The hash bits selecting the first group to probe
+    private static int h1(int h) {
+        return h >>> 7;
+    }
+
+    private long group(int g) {
+        return (long) GROUP.get(ctrl, g << GROUP_SHIFT);
+    }
+
+    // Bytes of the group equal to b have their top bit set in the result,
+    // there may be false positives right after a true match, which the
+    // caller filters out when comparing the keys
+    private static long match(long group, byte b) {
+        long x = group ^ (LSBS * (b & 0xff));
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    private static long matchEmpty(long group) {
+        // Only EMPTY has the top bit set and the next one cleared
+        return group & ~(group << 1) & MSBS;
+    }
+
+    private static long matchEmptyOrDeleted(long group) {
+        return group & MSBS;
+    }
+
+    private static int firstIndex(long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+
+    private int find(int h, InlineString key) {
+        int groupMask = (ctrl.length >>> GROUP_SHIFT) - 1;
+        byte tag = h2(h);
+        int g = h1(h) & groupMask;
+        for (int step = 1; ; step++) {
+            long group = group(g);
+            for (long m = match(group, tag); m != 0; m &= m - 1) {
+                int index = (g << GROUP_SHIFT) + firstIndex(m);
+                var temp = table[index];
+                if (h == temp.hash() && key.equals(temp.key())) {
+                    return index;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return -1;
+            }
+            // Triangular probing visits every group of a power of 2 table
+            g = (g + step) & groupMask;
+        }
+    }
+
+    // The first empty or deleted slot on the probe sequence of h
+    private int findInsertSlot(int h) {
+        int groupMask = (ctrl.length >>> GROUP_SHIFT) - 1;
+        int g = h1(h) & groupMask;
+        for (int step = 1; ; step++) {
+            long m = matchEmptyOrDeleted(group(g));
+            if (m != 0) {
+                return (g << GROUP_SHIFT) + firstIndex(m);
+            }
+            g = (g + step) & groupMask;
+        }
+    }
+
+    // Insert a key known to be absent
+    private void insert(int h, InlineString key, V value) {
+        int index = findInsertSlot(h);
+        if (growthLeft == 0 && ctrl[index] == EMPTY) {
+            rehashOrGrow();
+            index = findInsertSlot(h);
+        }
+        if (ctrl[index] == EMPTY) {
+            growthLeft--;
+        }
+        ctrl[index] = h2(h);
+        table[index] = new Node<>(h, key, value);
+        size++;
+        modCount++;
+    }
+
+    private void erase(int index) {
+        // A probe only walks past a group if it has no empty slot, if the
+        // group of this slot has one then no probe sequence goes through it
+        // and the slot can be marked empty again
+        if (matchEmpty(group(index >>> GROUP_SHIFT)) != 0) {
+            ctrl[index] = EMPTY;
+            growthLeft++;
+        } else {
+            ctrl[index] = DELETED;
+        }
+        table[index] = Node.default;
+        size--;
+        modCount++;
+    }
+
+    private void rehashOrGrow() {
+        int capacity = ctrl.length;
+        if (size <= maxSize(capacity) >>> 1) {
+            // Mostly tombstones, clean them up without growing
+            resize(capacity);
+        } else {
+            resize(capacity << 1);
+        }
+    }
+
+    // Trusted method, nCapacity is always a power of 2 able to hold all
+    // the entries
+    private void resize(int nCapacity) {
+        if (nCapacity < 0) {
+            throw new OutOfMemoryError("Too many elements");
+        }
+        modCount++;
+        var oldCtrl = ctrl;
+        var oldTable = table;
+        initTable(nCapacity);
+        for (int i = 0; i < oldCtrl.length; i++) {
+            if (oldCtrl[i] >= 0) {
+                var temp = oldTable[i];
+                int index = findInsertSlot(temp.hash());
+                ctrl[index] = oldCtrl[i];
+                table[index] = temp;
+            }
+        }
+        growthLeft -= size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initTable(int capacity) {
+        ctrl = new byte[capacity];
+        Arrays.fill(ctrl, EMPTY);
+        table = (Node<V>[]) new Node[capacity];
+        growthLeft = maxSize(capacity);
+    }
+
+    // The maximum load factor is 7/8
+    private static int maxSize(int capacity) {
+        return capacity - (capacity >>> 3);
+    }
+
+    private static int capacityFor(int size) {
+        return computeCapacity(Math.max((int) Math.min((size * 8L + 6) / 7, 1 << 30), GROUP_WIDTH));
+    }
+
+    // Get the lowest power of 2 larger than the input
+    private static int computeCapacity(int requestedCapacity) {
+        requestedCapacity--;
+        for (int i = 0; i < 32; i++) {
+            if (requestedCapacity >>> i == 0) {
+                return 1 << i;
+            }
+        }
+        // can't reach here, due to an int contains only 32 bit
+        throw new AssertionError();
+    }
+}
@@ -58,7 +58,7 @@ public class ArrayDecoders {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            ARRAY_DECODER_CLASS = lookup.findClass("sun.nio.cs.ArrayDecoder");
+            ARRAY_DECODER_CLASS = Utils.findBackendClass("sun.nio.cs.ArrayDecoder");
             DECODE = lookup.findVirtual(ARRAY_DECODER_CLASS, "decode", methodType(Integer.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE, Integer.TYPE, Character.TYPE.arrayType()))
                     .asType(methodType(Integer.TYPE, Object.class, Byte.TYPE.arrayType(), Integer.TYPE, Integer.TYPE, Character.TYPE.arrayType()));
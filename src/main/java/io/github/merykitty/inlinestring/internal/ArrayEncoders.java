@@ -46,7 +46,7 @@ public class ArrayEncoders {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            ARRAY_ENCODER_CLASS = lookup.findClass("sun.nio.cs.ArrayEncoder");
+            ARRAY_ENCODER_CLASS = Utils.findBackendClass("sun.nio.cs.ArrayEncoder");
             IS_ASCII_COMPATIBLE = lookup.findVirtual(ARRAY_ENCODER_CLASS, "isASCIICompatible", methodType(Boolean.TYPE))
                     .asType(methodType(Boolean.TYPE, Object.class));
             ENCODE_FROM_LATIN1 = lookup.findVirtual(ARRAY_ENCODER_CLASS, "encodeFromLatin1", methodType(Integer.TYPE,
@@ -33,7 +33,7 @@ public final class StringCoding {
     static {
         try {
             var lookup = Utils.STRING_LOOKUP;
-            var klass = lookup.findClass("java.lang.StringCoding");
+            var klass = Utils.findBackendClass("java.lang.StringCoding");
             HAS_NEGATIVES = lookup.findStatic(klass, "hasNegatives", methodType(Boolean.TYPE,
                     Byte.TYPE.arrayType(), Integer.TYPE, Integer.TYPE));
             IMPL_ENCODE_ISO_ARRAY = lookup.findStatic(klass, "implEncodeISOArray", methodType(Integer.TYPE,
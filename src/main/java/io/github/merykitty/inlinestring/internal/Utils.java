@@ -1,5 +1,7 @@
 package io.github.merykitty.inlinestring.internal;
 
+import io.github.merykitty.inlinestring.internal.fallback.Strings;
+
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.util.stream.Collector;
@@ -7,6 +9,20 @@ import java.util.stream.Collector;
 import static java.lang.invoke.MethodType.methodType;
 
 public final class Utils {
+    /**
+     * Whether the internals of {@code java.base} are accessible. If they are
+     * not, because {@code java.lang} is not opened to this module or because
+     * the system property {@code io.github.merykitty.inlinestring.pureJava}
+     * is set to {@code true}, the operations are backed by the pure Java
+     * implementations in {@code internal.fallback} instead.
+     */
+    public static final boolean PRIVILEGED;
+
+    /**
+     * The lookup used to find the backend classes, a private lookup in
+     * {@link String} if {@link #PRIVILEGED}, a lookup in this class
+     * otherwise.
+     */
     public static final MethodHandles.Lookup STRING_LOOKUP;
     public static final boolean COMPACT_STRINGS;
     public static final byte LATIN1;
@@ -110,6 +126,22 @@ public final class Utils {
         }
     }
 
+    /**
+     * Finds the class backing the operations of the specified
+     * {@code java.base} class, which is either the class itself or its
+     * counterpart in {@code internal.fallback} that has the same simple name.
+     */
+    public static Class<?> findBackendClass(String name) throws ClassNotFoundException, IllegalAccessException {
+        if (PRIVILEGED) {
+            return STRING_LOOKUP.findClass(name);
+        } else {
+            return STRING_LOOKUP.findClass(FALLBACK_PACKAGE + name.substring(name.lastIndexOf('.') + 1));
+        }
+    }
+
+    private static final String PURE_JAVA_PROPERTY = "io.github.merykitty.inlinestring.pureJava";
+    private static final String FALLBACK_PACKAGE = "io.github.merykitty.inlinestring.internal.fallback.";
+
     private static final MethodHandle NEW_STRING_VALUE_CODER;
     private static final MethodHandle STRING_VALUE;
     private static final MethodHandle STRING_CODER;
@@ -120,26 +152,61 @@ public final class Utils {
     private static final MethodHandle STRING_CHECK_BOUNDS_OFF_COUNT;
     private static final MethodHandle STRING_CHECK_BOUNDS_BEGIN_END;
 
+    private static MethodHandles.Lookup privilegedLookup() {
+        if (Boolean.getBoolean(PURE_JAVA_PROPERTY)) {
+            return null;
+        }
+        try {
+            return MethodHandles.privateLookupIn(String.class, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            // java.lang is not opened to us
+            return null;
+        }
+    }
+
     static {
+        var privileged = privilegedLookup();
+        PRIVILEGED = privileged != null;
         try {
-            var lookup = MethodHandles.privateLookupIn(String.class, MethodHandles.lookup());
-            STRING_LOOKUP = lookup;
-            COMPACT_STRINGS = (boolean) lookup.findStaticGetter(String.class, "COMPACT_STRINGS", Boolean.TYPE).invokeExact();
-            LATIN1 = (byte) lookup.findStaticGetter(String.class, "LATIN1", Byte.TYPE).invokeExact();
-            UTF16 = (byte) lookup.findStaticGetter(String.class, "UTF16", Byte.TYPE).invokeExact();
-            NEW_STRING_VALUE_CODER = lookup.findConstructor(String.class, methodType(void.class,
-                    Byte.TYPE.arrayType(), Byte.TYPE));
-            STRING_VALUE = lookup.findVirtual(String.class, "value", methodType(Byte.TYPE.arrayType()));
-            STRING_CODER = lookup.findVirtual(String.class, "coder", methodType(Byte.TYPE));
-            STRING_BUILDER_GET_VALUE = lookup.findVirtual(StringBuilder.class, "getValue", methodType(Byte.TYPE.arrayType()));
-            STRING_BUILDER_GET_CODER = lookup.findVirtual(StringBuilder.class, "getCoder", methodType(Byte.TYPE));
-            STRING_CHECK_INDEX = lookup.findStatic(String.class, "checkIndex", methodType(Void.TYPE,
+            Class<?> klass;
+            if (PRIVILEGED) {
+                var lookup = privileged;
+                STRING_LOOKUP = lookup;
+                COMPACT_STRINGS = (boolean) lookup.findStaticGetter(String.class, "COMPACT_STRINGS", Boolean.TYPE).invokeExact();
+                LATIN1 = (byte) lookup.findStaticGetter(String.class, "LATIN1", Byte.TYPE).invokeExact();
+                UTF16 = (byte) lookup.findStaticGetter(String.class, "UTF16", Byte.TYPE).invokeExact();
+                NEW_STRING_VALUE_CODER = lookup.findConstructor(String.class, methodType(void.class,
+                        Byte.TYPE.arrayType(), Byte.TYPE));
+                STRING_VALUE = lookup.findVirtual(String.class, "value", methodType(Byte.TYPE.arrayType()));
+                STRING_CODER = lookup.findVirtual(String.class, "coder", methodType(Byte.TYPE));
+                STRING_BUILDER_GET_VALUE = lookup.findVirtual(StringBuilder.class, "getValue", methodType(Byte.TYPE.arrayType()));
+                STRING_BUILDER_GET_CODER = lookup.findVirtual(StringBuilder.class, "getCoder", methodType(Byte.TYPE));
+                klass = String.class;
+            } else {
+                var lookup = MethodHandles.lookup();
+                STRING_LOOKUP = lookup;
+                COMPACT_STRINGS = Strings.COMPACT_STRINGS;
+                LATIN1 = Strings.LATIN1;
+                UTF16 = Strings.UTF16;
+                NEW_STRING_VALUE_CODER = lookup.findStatic(Strings.class, "newString", methodType(String.class,
+                        Byte.TYPE.arrayType(), Byte.TYPE));
+                STRING_VALUE = lookup.findStatic(Strings.class, "value", methodType(Byte.TYPE.arrayType(),
+                        String.class));
+                STRING_CODER = lookup.findStatic(Strings.class, "coder", methodType(Byte.TYPE,
+                        String.class));
+                STRING_BUILDER_GET_VALUE = lookup.findStatic(Strings.class, "getValue", methodType(Byte.TYPE.arrayType(),
+                        StringBuilder.class));
+                STRING_BUILDER_GET_CODER = lookup.findStatic(Strings.class, "getCoder", methodType(Byte.TYPE,
+                        StringBuilder.class));
+                klass = Strings.class;
+            }
+            STRING_CHECK_INDEX = STRING_LOOKUP.findStatic(klass, "checkIndex", methodType(Void.TYPE,
                     Integer.TYPE, Integer.TYPE));
-            STRING_CHECK_OFFSET = lookup.findStatic(String.class, "checkOffset", methodType(Void.TYPE,
+            STRING_CHECK_OFFSET = STRING_LOOKUP.findStatic(klass, "checkOffset", methodType(Void.TYPE,
                     Integer.TYPE, Integer.TYPE));
-            STRING_CHECK_BOUNDS_OFF_COUNT = lookup.findStatic(String.class, "checkBoundsOffCount", methodType(Void.TYPE,
+            STRING_CHECK_BOUNDS_OFF_COUNT = STRING_LOOKUP.findStatic(klass, "checkBoundsOffCount", methodType(Void.TYPE,
                     Integer.TYPE, Integer.TYPE, Integer.TYPE));
-            STRING_CHECK_BOUNDS_BEGIN_END = lookup.findStatic(String.class, "checkBoundsBeginEnd", methodType(Void.TYPE,
+            STRING_CHECK_BOUNDS_BEGIN_END = STRING_LOOKUP.findStatic(klass, "checkBoundsBeginEnd", methodType(Void.TYPE,
                     Integer.TYPE, Integer.TYPE, Integer.TYPE));
         } catch (Throwable e) {
             throw new AssertionError(e);
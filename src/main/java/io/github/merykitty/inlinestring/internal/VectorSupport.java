@@ -0,0 +1,62 @@
+package io.github.merykitty.inlinestring.internal;
+
+/**
+ * Decides whether the kernels written with the Vector API can be used.
+ *
+ * <p>The {@code jdk.incubator.vector} module is an optional dependency, it
+ * is only resolved if the application is launched with
+ * {@code --add-modules jdk.incubator.vector}. The kernels can also be turned
+ * off explicitly by setting the system property
+ * {@code io.github.merykitty.inlinestring.vector} to {@code false}. Classes
+ * that refer to the Vector API must only be touched after checking
+ * {@link #ENABLED}.
+ */
+public final class VectorSupport {
+    /**
+     * Whether the Vector API is available at all.
+     */
+    public static final boolean ENABLED;
+
+    /**
+     * Whether {@link VectorizedHash} can be used.
+     */
+    public static final boolean HASH;
+
+    /**
+     * Whether {@link VectorizedSearch} can be used.
+     */
+    public static final boolean SEARCH;
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_PROPERTY = "io.github.merykitty.inlinestring.vector";
+
+    private VectorSupport() {}
+
+    static {
+        boolean enabled = false;
+        boolean hash = false;
+        boolean search = false;
+        if (Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+            var module = ModuleLayer.boot().findModule(VECTOR_MODULE);
+            if (module.isPresent()) {
+                try {
+                    var self = VectorSupport.class.getModule();
+                    if (!self.canRead(module.get())) {
+                        self.addReads(module.get());
+                    }
+                    enabled = true;
+                    hash = VectorizedHash.SUPPORTED;
+                    search = VectorizedSearch.SUPPORTED;
+                } catch (LinkageError e) {
+                    // The module is present but unusable on this platform
+                    enabled = false;
+                    hash = false;
+                    search = false;
+                }
+            }
+        }
+        ENABLED = enabled;
+        HASH = hash;
+        SEARCH = search;
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.merykitty.inlinestring.internal;
+
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Polynomial string hash computed with the Vector API.
+ *
+ * <p>The scalar hash {@code h = 31 * h + c} is split across lanes, lane
+ * {@code j} accumulates the characters at positions congruent to {@code j}
+ * modulo the number of lanes, each step multiplying the accumulator by
+ * {@code 31^lanes}. The lanes are finally weighted by
+ * {@code 31^(lanes - 1 - j)} and summed. Since all arithmetic is done on
+ * {@code int}s, the result is bit-for-bit identical to
+ * {@link String#hashCode()}.
+ *
+ * <p>Only touch this class after checking {@link VectorSupport#HASH}.
+ */
+public final class VectorizedHash {
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = INT_SPECIES.length();
+
+    // Each int lane is fed from a byte (Latin1) or a short (UTF16) lane, the
+    // narrow species have the same number of lanes, which requires at least
+    // a 64-bit byte vector
+    static final boolean SUPPORTED = LANES * Byte.SIZE >= VectorShape.S_64_BIT.vectorBitSize();
+
+    /**
+     * Strings shorter than this are hashed faster by the scalar loop.
+     */
+    public static final int MIN_LENGTH = LANES * 4;
+
+    private static final VectorSpecies<Byte> BYTE_SPECIES;
+    private static final VectorSpecies<Short> SHORT_SPECIES;
+
+    // 31^(LANES - 1), 31^(LANES - 2), ..., 31^0
+    private static final int[] POWERS;
+    // 31^LANES, 31^(2 * LANES), 31^(3 * LANES), 31^(4 * LANES)
+    private static final int POWER_1;
+    private static final int POWER_2;
+    private static final int POWER_3;
+    private static final int POWER_4;
+
+    private VectorizedHash() {}
+
+    public static int hashCodeLatin1(byte[] value, int off, int len) {
+        var powers = IntVector.fromArray(INT_SPECIES, POWERS, 0);
+        int end = off + len;
+        int i = off;
+        var acc = IntVector.zero(INT_SPECIES);
+        // Unrolled by 4 so that the chain of dependent multiplications on
+        // the accumulator is 4 times shorter
+        for (int bound = off + (len & -(LANES * 4)); i < bound; i += LANES * 4) {
+            var c0 = latin1Lanes(value, i);
+            var c1 = latin1Lanes(value, i + LANES);
+            var c2 = latin1Lanes(value, i + LANES * 2);
+            var c3 = latin1Lanes(value, i + LANES * 3);
+            acc = acc.mul(POWER_4)
+                    .add(c0.mul(POWER_3))
+                    .add(c1.mul(POWER_2))
+                    .add(c2.mul(POWER_1))
+                    .add(c3);
+        }
+        for (int bound = off + (len & -LANES); i < bound; i += LANES) {
+            acc = acc.mul(POWER_1).add(latin1Lanes(value, i));
+        }
+        int h = acc.mul(powers).reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            h = 31 * h + (value[i] & 0xff);
+        }
+        return h;
+    }
+
+    public static int hashCodeUTF16(byte[] value, int off, int len) {
+        var powers = IntVector.fromArray(INT_SPECIES, POWERS, 0);
+        int end = off + len;
+        int i = off;
+        var acc = IntVector.zero(INT_SPECIES);
+        for (int bound = off + (len & -(LANES * 4)); i < bound; i += LANES * 4) {
+            var c0 = utf16Lanes(value, i);
+            var c1 = utf16Lanes(value, i + LANES);
+            var c2 = utf16Lanes(value, i + LANES * 2);
+            var c3 = utf16Lanes(value, i + LANES * 3);
+            acc = acc.mul(POWER_4)
+                    .add(c0.mul(POWER_3))
+                    .add(c1.mul(POWER_2))
+                    .add(c2.mul(POWER_1))
+                    .add(c3);
+        }
+        for (int bound = off + (len & -LANES); i < bound; i += LANES) {
+            acc = acc.mul(POWER_1).add(utf16Lanes(value, i));
+        }
+        int h = acc.mul(powers).reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            h = 31 * h + getChar(value, i);
+        }
+        return h;
+    }
+
+    private static IntVector latin1Lanes(byte[] value, int index) {
+        return ((IntVector) ByteVector.fromArray(BYTE_SPECIES, value, index)
+                .convertShape(VectorOperators.B2I, INT_SPECIES, 0))
+                .and(0xff);
+    }
+
+    // StringUTF16 stores the chars in native byte order
+    private static IntVector utf16Lanes(byte[] value, int index) {
+        return ((IntVector) ShortVector.fromByteArray(SHORT_SPECIES, value, index << 1, ByteOrder.nativeOrder())
+                .convertShape(VectorOperators.S2I, INT_SPECIES, 0))
+                .and(0xffff);
+    }
+
+    private static char getChar(byte[] value, int index) {
+        index <<= 1;
+        if (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+            return (char)(((value[index] & 0xff) << 8) | (value[index + 1] & 0xff));
+        } else {
+            return (char)((value[index] & 0xff) | ((value[index + 1] & 0xff) << 8));
+        }
+    }
+
+    static {
+        if (SUPPORTED) {
+            BYTE_SPECIES = VectorSpecies.of(Byte.TYPE, VectorShape.forBitSize(LANES * Byte.SIZE));
+            SHORT_SPECIES = VectorSpecies.of(Short.TYPE, VectorShape.forBitSize(LANES * Short.SIZE));
+        } else {
+            BYTE_SPECIES = null;
+            SHORT_SPECIES = null;
+        }
+        POWERS = new int[LANES];
+        int power = 1;
+        for (int i = LANES - 1; i >= 0; i--) {
+            POWERS[i] = power;
+            power *= 31;
+        }
+        POWER_1 = power;
+        POWER_2 = power * power;
+        POWER_3 = POWER_2 * power;
+        POWER_4 = POWER_3 * power;
+    }
+}
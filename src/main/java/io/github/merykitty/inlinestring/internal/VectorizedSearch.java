@@ -0,0 +1,241 @@
+package io.github.merykitty.inlinestring.internal;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Substring search computed with the Vector API.
+ *
+ * <p>For each block of candidate positions {@code i}, the characters at
+ * {@code i} and {@code i + needleLength - 1} are compared against the first
+ * and the last character of the needle respectively. Only the positions at
+ * which both match are verified by comparing the whole needle, which
+ * filters out nearly all candidates on realistic texts.
+ *
+ * <p>All indices and counts are measured in chars. The callers guarantee
+ * that the needle is at least {@link #MIN_NEEDLE_LENGTH} chars long, that
+ * {@code 0 <= fromIndex <= haystackCount - needleCount} and that the counts
+ * do not exceed the lengths of the arrays.
+ *
+ * <p>Only touch this class after checking {@link VectorSupport#SEARCH}.
+ */
+public final class VectorizedSearch {
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORT_SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int BYTE_LANES = BYTE_SPECIES.length();
+    private static final int SHORT_LANES = SHORT_SPECIES.length();
+
+    // The candidates of a block are extracted from a long
+    static final boolean SUPPORTED = BYTE_LANES <= Long.SIZE && SHORT_LANES >= 4;
+
+    /**
+     * Single char needles are searched faster by the scalar loop.
+     */
+    public static final int MIN_NEEDLE_LENGTH = 2;
+
+    /**
+     * Latin1 haystacks with fewer candidate positions than this are searched
+     * faster by the scalar loop.
+     */
+    public static final int MIN_LATIN1_CANDIDATES = BYTE_LANES;
+
+    /**
+     * UTF16 haystacks with fewer candidate positions than this are searched
+     * faster by the scalar loop.
+     */
+    public static final int MIN_UTF16_CANDIDATES = SHORT_LANES;
+
+    private VectorizedSearch() {}
+
+    // Latin1 haystack, Latin1 needle
+    public static int indexOfLatin1(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        var firstVector = ByteVector.broadcast(BYTE_SPECIES, tgt[0]);
+        var lastVector = ByteVector.broadcast(BYTE_SPECIES, tgt[last]);
+        int max = srcCount - tgtCount;
+        int i = fromIndex;
+        for (; i <= max - BYTE_LANES + 1; i += BYTE_LANES) {
+            var candidates = ByteVector.fromArray(BYTE_SPECIES, src, i).eq(firstVector)
+                    .and(ByteVector.fromArray(BYTE_SPECIES, src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= bits - 1) {
+                int k = i + Long.numberOfTrailingZeros(bits);
+                if (Arrays.equals(src, k + 1, k + last, tgt, 1, last)) {
+                    return k;
+                }
+            }
+        }
+        byte first = tgt[0];
+        byte lastChar = tgt[last];
+        for (; i <= max; i++) {
+            if (src[i] == first && src[i + last] == lastChar
+                    && Arrays.equals(src, i + 1, i + last, tgt, 1, last)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // UTF16 haystack, UTF16 needle
+    public static int indexOfUTF16(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        char first = getChar(tgt, 0);
+        char lastChar = getChar(tgt, last);
+        var firstVector = ShortVector.broadcast(SHORT_SPECIES, (short) first);
+        var lastVector = ShortVector.broadcast(SHORT_SPECIES, (short) lastChar);
+        int max = srcCount - tgtCount;
+        int i = fromIndex;
+        for (; i <= max - SHORT_LANES + 1; i += SHORT_LANES) {
+            var candidates = utf16Block(src, i).eq(firstVector)
+                    .and(utf16Block(src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= bits - 1) {
+                int k = i + Long.numberOfTrailingZeros(bits);
+                if (Arrays.equals(src, (k + 1) << 1, (k + last) << 1, tgt, 2, last << 1)) {
+                    return k;
+                }
+            }
+        }
+        for (; i <= max; i++) {
+            if (getChar(src, i) == first && getChar(src, i + last) == lastChar
+                    && Arrays.equals(src, (i + 1) << 1, (i + last) << 1, tgt, 2, last << 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // UTF16 haystack, Latin1 needle
+    public static int indexOfUTF16Latin1(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        char first = (char)(tgt[0] & 0xff);
+        char lastChar = (char)(tgt[last] & 0xff);
+        var firstVector = ShortVector.broadcast(SHORT_SPECIES, (short) first);
+        var lastVector = ShortVector.broadcast(SHORT_SPECIES, (short) lastChar);
+        int max = srcCount - tgtCount;
+        int i = fromIndex;
+        for (; i <= max - SHORT_LANES + 1; i += SHORT_LANES) {
+            var candidates = utf16Block(src, i).eq(firstVector)
+                    .and(utf16Block(src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= bits - 1) {
+                int k = i + Long.numberOfTrailingZeros(bits);
+                if (regionEqualsLatin1(src, k + 1, tgt, 1, last - 1)) {
+                    return k;
+                }
+            }
+        }
+        for (; i <= max; i++) {
+            if (getChar(src, i) == first && getChar(src, i + last) == lastChar
+                    && regionEqualsLatin1(src, i + 1, tgt, 1, last - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Latin1 haystack, Latin1 needle, the last match at or before fromIndex
+    public static int lastIndexOfLatin1(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        var firstVector = ByteVector.broadcast(BYTE_SPECIES, tgt[0]);
+        var lastVector = ByteVector.broadcast(BYTE_SPECIES, tgt[last]);
+        int i = fromIndex - BYTE_LANES + 1;
+        for (; i >= 0; i -= BYTE_LANES) {
+            var candidates = ByteVector.fromArray(BYTE_SPECIES, src, i).eq(firstVector)
+                    .and(ByteVector.fromArray(BYTE_SPECIES, src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= ~Long.highestOneBit(bits)) {
+                int k = i + 63 - Long.numberOfLeadingZeros(bits);
+                if (Arrays.equals(src, k + 1, k + last, tgt, 1, last)) {
+                    return k;
+                }
+            }
+        }
+        byte first = tgt[0];
+        byte lastChar = tgt[last];
+        for (i += BYTE_LANES - 1; i >= 0; i--) {
+            if (src[i] == first && src[i + last] == lastChar
+                    && Arrays.equals(src, i + 1, i + last, tgt, 1, last)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // UTF16 haystack, UTF16 needle, the last match at or before fromIndex
+    public static int lastIndexOfUTF16(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        char first = getChar(tgt, 0);
+        char lastChar = getChar(tgt, last);
+        var firstVector = ShortVector.broadcast(SHORT_SPECIES, (short) first);
+        var lastVector = ShortVector.broadcast(SHORT_SPECIES, (short) lastChar);
+        int i = fromIndex - SHORT_LANES + 1;
+        for (; i >= 0; i -= SHORT_LANES) {
+            var candidates = utf16Block(src, i).eq(firstVector)
+                    .and(utf16Block(src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= ~Long.highestOneBit(bits)) {
+                int k = i + 63 - Long.numberOfLeadingZeros(bits);
+                if (Arrays.equals(src, (k + 1) << 1, (k + last) << 1, tgt, 2, last << 1)) {
+                    return k;
+                }
+            }
+        }
+        for (i += SHORT_LANES - 1; i >= 0; i--) {
+            if (getChar(src, i) == first && getChar(src, i + last) == lastChar
+                    && Arrays.equals(src, (i + 1) << 1, (i + last) << 1, tgt, 2, last << 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // UTF16 haystack, Latin1 needle, the last match at or before fromIndex
+    public static int lastIndexOfUTF16Latin1(byte[] src, int srcCount, byte[] tgt, int tgtCount, int fromIndex) {
+        int last = tgtCount - 1;
+        char first = (char)(tgt[0] & 0xff);
+        char lastChar = (char)(tgt[last] & 0xff);
+        var firstVector = ShortVector.broadcast(SHORT_SPECIES, (short) first);
+        var lastVector = ShortVector.broadcast(SHORT_SPECIES, (short) lastChar);
+        int i = fromIndex - SHORT_LANES + 1;
+        for (; i >= 0; i -= SHORT_LANES) {
+            var candidates = utf16Block(src, i).eq(firstVector)
+                    .and(utf16Block(src, i + last).eq(lastVector));
+            for (long bits = candidates.toLong(); bits != 0; bits &= ~Long.highestOneBit(bits)) {
+                int k = i + 63 - Long.numberOfLeadingZeros(bits);
+                if (regionEqualsLatin1(src, k + 1, tgt, 1, last - 1)) {
+                    return k;
+                }
+            }
+        }
+        for (i += SHORT_LANES - 1; i >= 0; i--) {
+            if (getChar(src, i) == first && getChar(src, i + last) == lastChar
+                    && regionEqualsLatin1(src, i + 1, tgt, 1, last - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // StringUTF16 stores the chars in native byte order
+    private static ShortVector utf16Block(byte[] value, int index) {
+        return ShortVector.fromByteArray(SHORT_SPECIES, value, index << 1, ByteOrder.nativeOrder());
+    }
+
+    private static boolean regionEqualsLatin1(byte[] src, int srcIndex, byte[] tgt, int tgtIndex, int len) {
+        for (int j = 0; j < len; j++) {
+            if (getChar(src, srcIndex + j) != (tgt[tgtIndex + j] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char getChar(byte[] value, int index) {
+        index <<= 1;
+        if (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+            return (char)(((value[index] & 0xff) << 8) | (value[index + 1] & 0xff));
+        } else {
+            return (char)((value[index] & 0xff) | ((value[index + 1] & 0xff) << 8));
+        }
+    }
+}
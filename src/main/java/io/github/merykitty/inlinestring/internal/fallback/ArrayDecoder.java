@@ -0,0 +1,16 @@
+package io.github.merykitty.inlinestring.internal.fallback;
+
+/**
+ * Stand-in for {@code sun.nio.cs.ArrayDecoder}. No charset implements this
+ * interface, decoding always goes through the public
+ * {@link java.nio.charset.CharsetDecoder} API.
+ */
+public interface ArrayDecoder {
+    int decode(byte[] src, int off, int len, char[] dst);
+
+    boolean isASCIICompatible();
+
+    boolean isLatin1Decodable();
+
+    int decodeToLatin1(byte[] src, int sp, int len, byte[] dst);
+}
@@ -0,0 +1,14 @@
+package io.github.merykitty.inlinestring.internal.fallback;
+
+/**
+ * Stand-in for {@code sun.nio.cs.ArrayEncoder}. No charset implements this
+ * interface, encoding always goes through the public
+ * {@link java.nio.charset.CharsetEncoder} API.
+ */
+public interface ArrayEncoder {
+    boolean isASCIICompatible();
+
+    int encodeFromLatin1(byte[] src, int sp, int len, byte[] dst);
+
+    int encodeFromUTF16(byte[] src, int sp, int len, byte[] dst);
+}
@@ -0,0 +1,28 @@
+package io.github.merykitty.inlinestring.internal.fallback;
+
+/**
+ * Pure Java counterpart of {@code java.lang.StringCoding}.
+ */
+public final class StringCoding {
+    private StringCoding() {}
+
+    public static boolean hasNegatives(byte[] ba, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if (ba[i] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int implEncodeISOArray(byte[] sa, int sp, byte[] da, int dp, int len) {
+        int i = 0;
+        for (; i < len; i++) {
+            char c = StringUTF16.getChar(sa, sp++);
+            if (c > 0xFF)
+                break;
+            da[dp++] = (byte)c;
+        }
+        return i;
+    }
+}
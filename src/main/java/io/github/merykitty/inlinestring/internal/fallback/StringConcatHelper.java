@@ -0,0 +1,17 @@
+package io.github.merykitty.inlinestring.internal.fallback;
+
+/**
+ * Pure Java counterpart of {@code java.lang.StringConcatHelper}.
+ */
+public final class StringConcatHelper {
+    private StringConcatHelper() {}
+
+    public static byte[] newArray(long indexCoder) {
+        byte coder = (byte)(indexCoder >> 32);
+        int index = ((int)indexCoder) << coder;
+        if (index < 0) {
+            throw new OutOfMemoryError("Overflow: String length out of range");
+        }
+        return new byte[index];
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.merykitty.inlinestring.internal.fallback;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pure Java counterpart of the private members of {@link String} and
+ * {@link StringBuilder}. Without access to their internals, the contents
+ * are copied, always compressing to Latin1 when possible so that the
+ * representation is the same as the one of a compact string.
+ */
+public final class Strings {
+    public static final boolean COMPACT_STRINGS = true;
+    public static final byte LATIN1 = 0;
+    public static final byte UTF16 = 1;
+
+    private Strings() {}
+
+    public static String newString(byte[] value, byte coder) {
+        if (coder == LATIN1) {
+            return new String(value, StandardCharsets.ISO_8859_1);
+        } else {
+            return new String(StringUTF16.toChars(value));
+        }
+    }
+
+    public static byte[] value(String str) {
+        return value((CharSequence) str);
+    }
+
+    public static byte coder(String str) {
+        return coder((CharSequence) str);
+    }
+
+    public static byte[] getValue(StringBuilder sb) {
+        return value(sb);
+    }
+
+    public static byte getCoder(StringBuilder sb) {
+        return coder(sb);
+    }
+
+    private static byte[] value(CharSequence cs) {
+        int len = cs.length();
+        byte[] latin1 = new byte[len];
+        for (int i = 0; i < len; i++) {
+            char c = cs.charAt(i);
+            if (c > 0xFF) {
+                byte[] utf16 = StringUTF16.newBytesFor(len);
+                StringLatin1.inflate(latin1, 0, utf16, 0, i);
+                for (; i < len; i++) {
+                    StringUTF16.putChar(utf16, i, cs.charAt(i));
+                }
+                return utf16;
+            }
+            latin1[i] = (byte)c;
+        }
+        return latin1;
+    }
+
+    private static byte coder(CharSequence cs) {
+        for (int i = 0, len = cs.length(); i < len; i++) {
+            if (cs.charAt(i) > 0xFF) {
+                return UTF16;
+            }
+        }
+        return LATIN1;
+    }
+
+    public static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException("index " + index +
+                                                      ", length " + length);
+        }
+    }
+
+    public static void checkOffset(int offset, int length) {
+        if (offset < 0 || offset > length) {
+            throw new StringIndexOutOfBoundsException("offset " + offset +
+                                                      ", length " + length);
+        }
+    }
+
+    public static void checkBoundsOffCount(int offset, int count, int length) {
+        if (offset < 0 || count < 0 || offset > length - count) {
+            throw new StringIndexOutOfBoundsException(
+                "offset " + offset + ", count " + count + ", length " + length);
+        }
+    }
+
+    public static void checkBoundsBeginEnd(int begin, int end, int length) {
+        if (begin < 0 || begin > end || end > length) {
+            throw new StringIndexOutOfBoundsException(
+                "begin " + begin + ", end " + end + ", length " + length);
+        }
+    }
+}
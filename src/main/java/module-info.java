@@ -1,3 +1,6 @@
 module inlinestring {
+    requires static jdk.incubator.vector;
+    requires static jdk.incubator.foreign;
+
     exports io.github.merykitty.inlinestring;
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Run with --add-modules jdk.incubator.foreign
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkArena {
+    private static final int COUNT = 1000;
+
+    Random random = new Random();
+
+    InlineStringArena arena;
+
+    InlineString[] strings;
+    long[] handles;
+    int[] pairs;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        arena = InlineStringArena.ofNative();
+        strings = new InlineString[COUNT];
+        handles = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            // Few distinct prefixes so that the comparisons read past them
+            char[] string = new char[random.nextInt(8, 24)];
+            for (int j = 0; j < string.length; j++) {
+                string[j] = (char)(random.nextInt(j < 6 ? 2 : 26) + 'a');
+            }
+            strings[i] = new InlineString(string);
+            handles[i] = arena.add(strings[i]);
+        }
+        pairs = new int[COUNT * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = random.nextInt(COUNT);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void compareHeap() {
+        for (int i = 0; i < pairs.length; i += 2) {
+            stuff += strings[pairs[i]].compareTo(strings[pairs[i + 1]]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void compareArena() {
+        for (int i = 0; i < pairs.length; i += 2) {
+            stuff += arena.compare(handles[pairs[i]], handles[pairs[i + 1]]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void equalsArena() {
+        for (int i = 0; i < pairs.length; i += 2) {
+            stuff += arena.equals(handles[pairs[i]], strings[pairs[i + 1]]) ? 1 : 0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void getArena() {
+        for (int i = 0; i < pairs.length; i += 2) {
+            stuff += arena.get(handles[pairs[i]]).length();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
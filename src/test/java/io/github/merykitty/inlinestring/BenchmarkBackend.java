@@ -0,0 +1,126 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the operations backed by the {@code java.base} internals with
+ * their pure Java counterparts, each group of benchmarks runs in a JVM
+ * forced to use the corresponding backend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkBackend {
+    private static final String NO_VECTOR = "-Dio.github.merykitty.inlinestring.vector=false";
+    private static final String PURE_JAVA = "-Dio.github.merykitty.inlinestring.pureJava=true";
+
+    Random random = new Random();
+
+    @Param({"16", "256"})
+    int length;
+
+    @Param({"true", "false"})
+    boolean latin1;
+
+    InlineString str;
+    InlineString upper;
+    InlineString needle;
+    String javaStr;
+    int intStuff;
+    Object objStuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = latin1 ? (char)(random.nextInt(26) + 'a') : (char)(random.nextInt(26) + 'α');
+        }
+        str = new InlineString(chars);
+        upper = str.toUpperCase();
+        needle = str.substring(length - 4);
+        javaStr = str.toString();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void hashCodePrivileged() {
+        intStuff = str.hashCode();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void hashCodePure() {
+        intStuff = str.hashCode();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void indexOfPrivileged() {
+        intStuff = str.indexOf(needle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void indexOfPure() {
+        intStuff = str.indexOf(needle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void compareToIgnoreCasePrivileged() {
+        intStuff = str.compareToIgnoreCase(upper);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void compareToIgnoreCasePure() {
+        intStuff = str.compareToIgnoreCase(upper);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void toLowerCasePrivileged() {
+        objStuff = upper.toLowerCase();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void toLowerCasePure() {
+        objStuff = upper.toLowerCase();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void fromStringPrivileged() {
+        objStuff = new InlineString(javaStr);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void fromStringPure() {
+        objStuff = new InlineString(javaStr);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR})
+    public void toStringPrivileged() {
+        objStuff = str.toString();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {NO_VECTOR, PURE_JAVA})
+    public void toStringPure() {
+        objStuff = str.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// The larger tables are far bigger than the L3 cache, so nearly every
+// lookup misses, the batch methods overlap those misses
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkBatch {
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"10000", "4000000"})
+    int size;
+
+    Random random = new Random();
+
+    FastStringMap<Integer> map;
+
+    InlineString[] keys;
+    InlineString[] batch;
+    Integer[] values;
+    Integer[] out;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new FastStringMap<>();
+        keys = new InlineString[size];
+        for (int i = 0; i < size; i++) {
+            char[] key = new char[12];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = (char)(random.nextInt(26) + 'a');
+            }
+            keys[i] = new InlineString(key);
+            map.putInline(keys[i], i);
+        }
+        batch = new InlineString[BATCH_SIZE];
+        values = new Integer[BATCH_SIZE];
+        out = new Integer[BATCH_SIZE];
+    }
+
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int index = random.nextInt(size);
+            batch[i] = keys[index];
+            values[i] = index;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void getEach() {
+        for (var key : batch) {
+            stuff += map.getInline(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void getBatch() {
+        stuff += map.getAll(batch, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putEach() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            map.putInline(batch[i], values[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putBatch() {
+        map.putAll(batch, values);
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
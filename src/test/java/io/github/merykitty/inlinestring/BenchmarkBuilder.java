@@ -0,0 +1,55 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Renders a response line made of strings and numbers
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkBuilder {
+    Random random = new Random();
+
+    InlineString name;
+    InlineString path;
+    int status;
+    long time;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        char[] name = new char[random.nextInt(8, 16)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char)(random.nextInt(26) + 'a');
+        }
+        this.name = new InlineString(name);
+        this.path = new InlineString("/api/v1/").concat(this.name);
+        this.status = random.nextInt(200, 600);
+        this.time = random.nextLong(1L << 40);
+    }
+
+    @Benchmark
+    public InlineString stringBuilder() {
+        var sb = new StringBuilder();
+        sb.append(name.toString()).append(' ').append(path.toString()).append(' ')
+                .append(status).append(' ').append(time);
+        return new InlineString(sb);
+    }
+
+    @Benchmark
+    public InlineString inlineStringBuilder() {
+        var sb = new InlineStringBuilder();
+        sb.append(name).append(' ').append(path).append(' ')
+                .append(status).append(' ').append(time);
+        return sb.build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
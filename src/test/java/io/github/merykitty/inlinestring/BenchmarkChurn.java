@@ -0,0 +1,73 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Half of the operations insert a key, the other half remove the key that
+// was inserted size operations earlier, so the size of the maps stays the
+// same while their slots keep getting reused
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkChurn {
+    @Param({"1000", "100000"})
+    int size;
+
+    Random random = new Random();
+
+    FastStringMap<Integer> fastMap;
+    RobinHoodStringMap<Integer> robinHoodMap;
+
+    InlineString[] keys;
+    int fastNext;
+    int robinHoodNext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new InlineString[size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            char[] key = new char[12];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = (char)(random.nextInt(26) + 'a');
+            }
+            keys[i] = new InlineString(key);
+        }
+
+        fastMap = new FastStringMap<>();
+        robinHoodMap = new RobinHoodStringMap<>();
+        for (int i = 0; i < size; i++) {
+            fastMap.putInline(keys[i], i);
+            robinHoodMap.putInline(keys[i], i);
+        }
+        fastNext = size;
+        robinHoodNext = size;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Integer churnFast() {
+        int i = fastNext;
+        fastNext = i + 1 == keys.length ? 0 : i + 1;
+        fastMap.putInline(keys[i], i);
+        return fastMap.removeInline(keys[i >= size ? i - size : i + size]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Integer churnRobinHood() {
+        int i = robinHoodNext;
+        robinHoodNext = i + 1 == keys.length ? 0 : i + 1;
+        robinHoodMap.putInline(keys[i], i);
+        return robinHoodMap.removeInline(keys[i >= size ? i - size : i + size]);
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Every thread does 1 update for every 4 lookups on a shared map, run with
+// -t to vary the number of threads, e.g. -t 1, -t 8, -t 32
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(Threads.MAX)
+public class BenchmarkConcurrent {
+    private static final int KEY_COUNT = 1 << 16;
+
+    ConcurrentHashMap<String, Integer> normalMap;
+    ConcurrentFastStringMap<Integer> concurrentMap;
+    FastStringMap<Integer> lockedMap;
+
+    String[] normalKeys;
+    InlineString[] keys;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        Random random = new Random();
+        int stuff;
+
+        int nextIndex() {
+            return random.nextInt(KEY_COUNT);
+        }
+
+        boolean nextIsUpdate() {
+            return random.nextInt(5) == 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var random = new Random();
+        normalKeys = new String[KEY_COUNT];
+        keys = new InlineString[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            char[] key = new char[12];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = (char)(random.nextInt(26) + 'a');
+            }
+            normalKeys[i] = new String(key);
+            keys[i] = new InlineString(key);
+        }
+
+        normalMap = new ConcurrentHashMap<>();
+        concurrentMap = new ConcurrentFastStringMap<>();
+        lockedMap = new FastStringMap<>();
+        // Half of the keys are present
+        for (int i = 0; i < KEY_COUNT; i += 2) {
+            normalMap.put(normalKeys[i], i);
+            concurrentMap.putInline(keys[i], i);
+            lockedMap.putInline(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public void mixedNormal(ThreadState state) {
+        int index = state.nextIndex();
+        if (state.nextIsUpdate()) {
+            normalMap.merge(normalKeys[index], 1, Integer::sum);
+        } else {
+            state.stuff += normalMap.getOrDefault(normalKeys[index], 0);
+        }
+    }
+
+    @Benchmark
+    public void mixedConcurrent(ThreadState state) {
+        int index = state.nextIndex();
+        if (state.nextIsUpdate()) {
+            concurrentMap.merge(keys[index], 1, Integer::sum);
+        } else {
+            state.stuff += concurrentMap.getOrDefaultInline(keys[index], 0);
+        }
+    }
+
+    // The current workaround, a single lock around the whole map
+    @Benchmark
+    public void mixedLocked(ThreadState state) {
+        int index = state.nextIndex();
+        if (state.nextIsUpdate()) {
+            synchronized (lockedMap) {
+                var value = lockedMap.getInline(keys[index]);
+                lockedMap.putInline(keys[index], value == null ? 1 : value + 1);
+            }
+        } else {
+            synchronized (lockedMap) {
+                state.stuff += lockedMap.getOrDefaultInline(keys[index], 0);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
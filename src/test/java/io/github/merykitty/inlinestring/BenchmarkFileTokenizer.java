@@ -0,0 +1,68 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Run with --add-modules jdk.incubator.foreign
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkFileTokenizer {
+    private static final int COUNT = 1000000;
+
+    Random random = new Random();
+
+    Path file;
+    InlineStringFileTokenizer tokenizer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var sb = new StringBuilder();
+        for (int i = 0; i < COUNT; i++) {
+            int length = random.nextInt(40, 120);
+            for (int j = 0; j < length; j++) {
+                sb.append((char)(random.nextInt(95) + ' '));
+            }
+            sb.append('\n');
+        }
+        file = Files.createTempFile("tokenizer", ".txt");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tokenizer.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.mapToInt(line -> new InlineString(line).length()).sum();
+        }
+    }
+
+    @Benchmark
+    public long tokenizerLines() {
+        return tokenizer.lines().mapToInt(line -> ((InlineString) line).length()).sum();
+    }
+
+    @Benchmark
+    public long tokenizerLinesParallel() {
+        return tokenizer.lines().parallel().mapToInt(line -> ((InlineString) line).length()).sum();
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
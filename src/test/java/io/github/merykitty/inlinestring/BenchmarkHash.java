@@ -0,0 +1,51 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkHash {
+    Random random = new Random();
+
+    @Param({"16", "64", "256", "1024"})
+    int length;
+
+    @Param({"true", "false"})
+    boolean latin1;
+
+    InlineString str;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = latin1 ? (char)(random.nextInt(26) + 'a') : (char)(random.nextInt(26) + 'α');
+        }
+        str = new InlineString(chars);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void hashVector() {
+        stuff = str.hashCode();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dio.github.merykitty.inlinestring.vector=false"})
+    public void hashScalar() {
+        stuff = str.hashCode();
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
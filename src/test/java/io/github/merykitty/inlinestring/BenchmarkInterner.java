@@ -0,0 +1,90 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// The strings are drawn from 64 header names, as a parser would see them
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkInterner {
+    private static final int COUNT = 1000;
+
+    Random random = new Random();
+
+    InlineStringInterner weakInterner;
+    InlineStringInterner boundedInterner;
+
+    InlineString[] strings;
+    InlineString[] copies;
+    InlineString[] interned;
+    InlineString[] internedCopies;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        weakInterner = InlineStringInterner.weak();
+        boundedInterner = InlineStringInterner.bounded(1024);
+        var names = new char[64][];
+        for (int i = 0; i < names.length; i++) {
+            char[] name = new char[random.nextInt(8, 32)];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = (char)(random.nextInt(26) + 'a');
+            }
+            names[i] = name;
+        }
+        strings = new InlineString[COUNT];
+        copies = new InlineString[COUNT];
+        interned = new InlineString[COUNT];
+        internedCopies = new InlineString[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            var name = names[random.nextInt(names.length)];
+            strings[i] = new InlineString(name);
+            copies[i] = new InlineString(name);
+            interned[i] = weakInterner.intern(strings[i]);
+            internedCopies[i] = weakInterner.intern(copies[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void internWeak() {
+        for (var string : strings) {
+            stuff += weakInterner.intern(string).length();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void internBounded() {
+        for (var string : strings) {
+            stuff += boundedInterner.intern(string).length();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void equalsCopies() {
+        for (int i = 0; i < COUNT; i++) {
+            stuff += strings[i].equals(copies[i]) ? 1 : 0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void equalsInterned() {
+        for (int i = 0; i < COUNT; i++) {
+            stuff += interned[i].equals(internedCopies[i]) ? 1 : 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
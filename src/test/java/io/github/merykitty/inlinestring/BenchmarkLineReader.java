@@ -0,0 +1,62 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Reads a log-like UTF-8 input of 10000 ASCII lines
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkLineReader {
+    private static final int COUNT = 10000;
+
+    Random random = new Random();
+
+    byte[] input;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < COUNT; i++) {
+            int length = random.nextInt(40, 120);
+            for (int j = 0; j < length; j++) {
+                sb.append((char)(random.nextInt(95) + ' '));
+            }
+            sb.append('\n');
+        }
+        input = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void bufferedReader() throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8));
+        for (String line; (line = reader.readLine()) != null; ) {
+            stuff += new InlineString(line).length();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void lineReader() throws IOException {
+        var reader = new InlineStringLineReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8);
+        for (InlineString.ref line; (line = reader.readLine()) != null; ) {
+            stuff += ((InlineString) line).length();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
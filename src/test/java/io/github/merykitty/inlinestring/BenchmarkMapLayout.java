@@ -0,0 +1,94 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkMapLayout {
+    private static final int LOOKUPS = 1024;
+
+    // About 85% of a power of 2, which is close to the maximum load of both
+    // layouts
+    @Param({"870", "111411"})
+    int size;
+
+    Random random = new Random();
+
+    FastStringMap<Integer> fastMap;
+    SwissStringMap<Integer> swissMap;
+
+    InlineString[] existKeys;
+    InlineString[] nonExistKeys;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fastMap = new FastStringMap<>();
+        swissMap = new SwissStringMap<>();
+        var keys = new InlineString[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = randomKey();
+            fastMap.putInline(keys[i], i);
+            swissMap.putInline(keys[i], i);
+        }
+
+        existKeys = new InlineString[LOOKUPS];
+        nonExistKeys = new InlineString[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            existKeys[i] = keys[random.nextInt(size)];
+            nonExistKeys[i] = randomKey();
+        }
+    }
+
+    private InlineString randomKey() {
+        char[] key = new char[12];
+        for (int j = 0; j < key.length; j++) {
+            key[j] = (char)(random.nextInt(26) + 'a');
+        }
+        return new InlineString(key);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getExistFast() {
+        for (var key : existKeys) {
+            stuff += fastMap.getInline(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getExistSwiss() {
+        for (var key : existKeys) {
+            stuff += swissMap.getInline(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getNonExistFast() {
+        for (var key : nonExistKeys) {
+            stuff += fastMap.containsKeyInline(key) ? 1 : 0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getNonExistSwiss() {
+        for (var key : nonExistKeys) {
+            stuff += swissMap.containsKeyInline(key) ? 1 : 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
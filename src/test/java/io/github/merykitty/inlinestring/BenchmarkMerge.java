@@ -0,0 +1,79 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// A word count, the words are drawn from a vocabulary of 1000 so most of
+// the merges update an existing entry
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkMerge {
+    private static final int WORD_COUNT = 10000;
+
+    Random random = new Random();
+
+    HashMap<String, Integer> normalMap;
+    FastStringMap<Integer> fastMap;
+
+    String[] normalWords;
+    InlineString[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var vocabulary = new char[1000][];
+        for (int i = 0; i < vocabulary.length; i++) {
+            char[] word = new char[random.nextInt(3, 12)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char)(random.nextInt(26) + 'a');
+            }
+            vocabulary[i] = word;
+        }
+        normalWords = new String[WORD_COUNT];
+        words = new InlineString[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            var word = vocabulary[random.nextInt(vocabulary.length)];
+            normalWords[i] = new String(word);
+            words[i] = new InlineString(word);
+        }
+        normalMap = new HashMap<>();
+        fastMap = new FastStringMap<>();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public void mergeNormal() {
+        for (var word : normalWords) {
+            normalMap.merge(word, 1, Integer::sum);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public void mergeFast() {
+        for (var word : words) {
+            fastMap.mergeInline(word, 1, Integer::sum);
+        }
+    }
+
+    // The two probes merge used to do
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public void getPutFast() {
+        for (var word : words) {
+            var count = fastMap.getInline(word);
+            fastMap.putInline(word, count == null ? 1 : count + 1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -24,6 +24,7 @@ public class BenchmarkOverhead {
     int[] values;
 
     char[] existKey;
+    HashedInlineString existHashedKey;
     char[] nonExistKey;
     char[] putKey;
     int putValue;
@@ -66,6 +67,7 @@ public class BenchmarkOverhead {
     public void setUpGetKey() {
         int index = random.nextInt(1000);
         existKey = keys[index];
+        existHashedKey = new InlineString(existKey).hashed();
     }
 
     @Setup(Level.Trial)
@@ -92,6 +94,16 @@ public class BenchmarkOverhead {
         stuff = fastMap.getInline(new InlineString(existKey));
     }
 
+    @Benchmark
+    public void getValExistHashed() {
+        stuff = valMap.getPrimitive(existHashedKey);
+    }
+
+    @Benchmark
+    public void getRefExistHashed() {
+        stuff = fastMap.getInline(existHashedKey);
+    }
+
     @Benchmark
     public void putNormal() {
         normalMap.put(new String(putKey), putValue);
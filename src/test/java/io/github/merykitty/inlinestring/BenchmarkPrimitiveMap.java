@@ -0,0 +1,76 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkPrimitiveMap {
+    Random random = new Random();
+
+    FastStringMap<Integer> refMap;
+    FastStringIntMap intMap;
+
+    InlineString[] keys;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        refMap = new FastStringMap<>();
+        intMap = new FastStringIntMap();
+        keys = new InlineString[1000];
+        for (int i = 0; i < 1000; i++) {
+            char[] key = new char[10];
+            for (int j = 0; j < 10; j++) {
+                key[j] = (char)(random.nextInt(26) + 'a');
+            }
+            keys[i] = new InlineString(key);
+            // Outside of the Integer cache
+            refMap.putInline(keys[i], 1000 + i);
+            intMap.put(keys[i], 1000 + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void getRef() {
+        for (var key : keys) {
+            stuff += refMap.getInline(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void getInt() {
+        for (var key : keys) {
+            stuff += intMap.getOrDefault(key, 0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void incrementRef() {
+        for (var key : keys) {
+            refMap.putInline(key, refMap.getInline(key) + 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void incrementInt() {
+        for (var key : keys) {
+            intMap.addTo(key, 1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
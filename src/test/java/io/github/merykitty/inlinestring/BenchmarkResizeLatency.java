@@ -0,0 +1,105 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Every invocation puts a new key into a growing map, so that the pauses of
+// the resizes show up in the tail of the latency distribution, compare the
+// high percentiles rather than the averages
+@BenchmarkMode(Mode.SampleTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkResizeLatency {
+    private static final int KEY_COUNT = 1 << 22;
+
+    Random random = new Random();
+
+    FastStringMap<Integer> fastMap;
+    FastStringMap<Integer> fastIncrementalMap;
+    InlineStringHashMap<Integer> hashMap;
+    InlineStringHashMap<Integer> hashIncrementalMap;
+
+    InlineString[] keys;
+    int fastNext;
+    int fastIncrementalNext;
+    int hashNext;
+    int hashIncrementalNext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new InlineString[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            char[] key = new char[12];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = (char)(random.nextInt(26) + 'a');
+            }
+            keys[i] = new InlineString(key);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetMaps() {
+        fastMap = new FastStringMap<>(16, false);
+        fastIncrementalMap = new FastStringMap<>(16, true);
+        hashMap = new InlineStringHashMap<>(16, 0.75f, false);
+        hashIncrementalMap = new InlineStringHashMap<>(16, 0.75f, true);
+        fastNext = 0;
+        fastIncrementalNext = 0;
+        hashNext = 0;
+        hashIncrementalNext = 0;
+    }
+
+    @Benchmark
+    public Integer putFast() {
+        int i = fastNext;
+        if (i == KEY_COUNT) {
+            fastMap = new FastStringMap<>(16, false);
+            i = 0;
+        }
+        fastNext = i + 1;
+        return fastMap.putInline(keys[i], i);
+    }
+
+    @Benchmark
+    public Integer putFastIncremental() {
+        int i = fastIncrementalNext;
+        if (i == KEY_COUNT) {
+            fastIncrementalMap = new FastStringMap<>(16, true);
+            i = 0;
+        }
+        fastIncrementalNext = i + 1;
+        return fastIncrementalMap.putInline(keys[i], i);
+    }
+
+    @Benchmark
+    public Integer putHash() {
+        int i = hashNext;
+        if (i == KEY_COUNT) {
+            hashMap = new InlineStringHashMap<>(16, 0.75f, false);
+            i = 0;
+        }
+        hashNext = i + 1;
+        return hashMap.putPrimitive(keys[i], i);
+    }
+
+    @Benchmark
+    public Integer putHashIncremental() {
+        int i = hashIncrementalNext;
+        if (i == KEY_COUNT) {
+            hashIncrementalMap = new InlineStringHashMap<>(16, 0.75f, true);
+            i = 0;
+        }
+        hashIncrementalNext = i + 1;
+        return hashIncrementalMap.putPrimitive(keys[i], i);
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkRope {
+    Random random = new Random();
+
+    @Param({"1000", "10000"})
+    int pieceCount;
+
+    InlineString[] pieces;
+    InlineString result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pieces = new InlineString[pieceCount];
+        for (int i = 0; i < pieceCount; i++) {
+            char[] chars = new char[random.nextInt(16, 128)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char)(random.nextInt(26) + 'a');
+            }
+            pieces[i] = new InlineString(chars);
+        }
+    }
+
+    @Benchmark
+    public void repeatedConcat() {
+        var str = InlineString.EMPTY_STRING;
+        for (var piece : pieces) {
+            str = str.concat(piece);
+        }
+        result = str;
+    }
+
+    @Benchmark
+    public void rope() {
+        var rope = InlineRope.empty();
+        for (var piece : pieces) {
+            rope = rope.concat(piece);
+        }
+        result = rope.toInlineString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
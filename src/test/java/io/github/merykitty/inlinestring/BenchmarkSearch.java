@@ -0,0 +1,81 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkSearch {
+    private static final String[] LATIN1_WORDS = {"INFO", "WARN", "request", "served", "in", "ms",
+            "status=200", "user=42", "GET", "/api/v1/items", "latency", "cache", "hit", "miss"};
+    private static final String[] UTF16_WORDS = {"THÔNG_TIN", "CẢNH_BÁO", "yêu_cầu", "phục_vụ", "trong", "ms",
+            "trạng_thái=200", "người_dùng=42", "GET", "/api/v1/mục", "độ_trễ", "bộ_đệm", "trúng", "trượt"};
+
+    Random random = new Random();
+
+    @Param({"64", "1024", "8192"})
+    int haystackLength;
+
+    @Param({"4", "16", "64"})
+    int needleLength;
+
+    @Param({"true", "false"})
+    boolean latin1;
+
+    InlineString haystack;
+    InlineString needle;
+    boolean boolStuff;
+    int intStuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var words = latin1 ? LATIN1_WORDS : UTF16_WORDS;
+        var sb = new StringBuilder();
+        while (sb.length() < haystackLength) {
+            sb.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        sb.setLength(haystackLength);
+        // The needle looks like the text around it, but never matches
+        int len = Math.min(needleLength, haystackLength);
+        int start = random.nextInt(haystackLength - len + 1);
+        var needleChars = sb.substring(start, start + len).toCharArray();
+        needleChars[len - 1] = latin1 ? '#' : 'Ω';
+        haystack = new InlineString(sb.toString());
+        needle = new InlineString(needleChars);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void containsVector() {
+        boolStuff = haystack.contains(needle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dio.github.merykitty.inlinestring.vector=false"})
+    public void containsScalar() {
+        boolStuff = haystack.contains(needle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void lastIndexOfVector() {
+        intStuff = haystack.lastIndexOf(needle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dio.github.merykitty.inlinestring.vector=false"})
+    public void lastIndexOfScalar() {
+        intStuff = haystack.lastIndexOf(needle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
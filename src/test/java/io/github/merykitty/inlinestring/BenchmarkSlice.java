@@ -0,0 +1,68 @@
+package io.github.merykitty.inlinestring;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BenchmarkSlice {
+    private static final int KEY_COUNT = 1024;
+
+    Random random = new Random();
+
+    @Param({"8", "32"})
+    int keyLength;
+
+    // The keys separated by commas, as in a parsed payload
+    InlineString payload;
+    int[] offsets;
+    FastStringMap<Integer> map;
+    int stuff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new FastStringMap<>();
+        offsets = new int[KEY_COUNT];
+        var sb = new StringBuilder();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            char[] chars = new char[keyLength];
+            for (int j = 0; j < keyLength; j++) {
+                chars[j] = (char)(random.nextInt(26) + 'a');
+            }
+            var key = new InlineString(chars);
+            map.putInline(key, i);
+            offsets[i] = sb.length();
+            sb.append(chars).append(',');
+        }
+        payload = new InlineString(sb.toString());
+    }
+
+    @Benchmark
+    public void lookupSubstring() {
+        int sum = 0;
+        for (int offset : offsets) {
+            sum += map.getInline(payload.substring(offset, offset + keyLength));
+        }
+        stuff = sum;
+    }
+
+    @Benchmark
+    public void lookupSlice() {
+        int sum = 0;
+        for (int offset : offsets) {
+            sum += map.getInline(payload.slice(offset, offset + keyLength));
+        }
+        stuff = sum;
+    }
+
+    public static void main(String[] args) throws IOException {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.ConcurrentFastStringMap;
+import io.github.merykitty.inlinestring.InlineString;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class ConcurrentFastStringMapTest {
+    private static final int THREADS = 4;
+    private static final int KEYS = 10_000;
+
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    // Keys that the churning threads never touch
+    private static InlineString stableKey(int i) {
+        return new InlineString("stable" + i);
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    // Run the task on THREADS threads started together, rethrowing the first
+    // failure
+    private static void runConcurrently(Task task) throws Exception {
+        var barrier = new CyclicBarrier(THREADS);
+        var failures = new Throwable[THREADS];
+        var threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    task.run(thread);
+                } catch (Throwable e) {
+                    failures[thread] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        for (var failure : failures) {
+            if (failure != null) {
+                throw new AssertionError(failure);
+            }
+        }
+    }
+
+    @Test
+    public void concurrentPut() throws Exception {
+        // Start small so that the segments resize while the threads insert
+        var map = new ConcurrentFastStringMap<Integer>(0, 4);
+        runConcurrently(thread -> {
+            for (int i = thread; i < KEYS; i += THREADS) {
+                assertNull(map.putInline(key(i), i));
+            }
+        });
+        assertEquals(KEYS, map.size());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(i, map.getInline(key(i)));
+        }
+    }
+
+    @Test
+    public void concurrentComputeIfAbsent() throws Exception {
+        var map = new ConcurrentFastStringMap<Integer>(0, 4);
+        var calls = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS; i++) {
+                int value = i;
+                assertEquals(i, map.computeIfAbsent(key(i), k -> {
+                    calls.incrementAndGet();
+                    return value;
+                }));
+            }
+        });
+        // Every thread asks for every key, the function runs once per key
+        assertEquals(KEYS, calls.get());
+        assertEquals(KEYS, map.size());
+    }
+
+    @Test
+    public void concurrentMerge() throws Exception {
+        var map = new ConcurrentFastStringMap<Integer>(0, 4);
+        int rounds = 20;
+        runConcurrently(thread -> {
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    map.merge(key(i), 1, Integer::sum);
+                }
+            }
+        });
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(THREADS * rounds, map.getInline(key(i)));
+        }
+    }
+
+    @Test
+    public void readersDuringResize() throws Exception {
+        // The keys present from the start must stay visible to the readers
+        // while the other threads grow the segments
+        var map = new ConcurrentFastStringMap<Integer>(0, 2);
+        for (int i = 0; i < 100; i++) {
+            map.putInline(stableKey(i), i);
+        }
+        runConcurrently(thread -> {
+            if (thread % 2 == 0) {
+                for (int i = thread; i < KEYS; i += THREADS) {
+                    map.putInline(key(i), i);
+                    if (i >= 1000) {
+                        map.removeInline(key(i - 1000));
+                    }
+                }
+            } else {
+                for (int round = 0; round < KEYS / 10; round++) {
+                    for (int i = 0; i < 100; i += 10) {
+                        assertEquals(i, map.getInline(stableKey(i)));
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void iterateDuringUpdates() throws Exception {
+        var map = new ConcurrentFastStringMap<Integer>(0, 4);
+        for (int i = 0; i < 1000; i++) {
+            map.putInline(stableKey(i), i);
+        }
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int i = 0; i < KEYS; i++) {
+                    map.putInline(key(i), i);
+                    if (i >= 100) {
+                        map.removeInline(key(i - 100));
+                    }
+                }
+            } else {
+                for (int round = 0; round < 20; round++) {
+                    // The iteration never fails and sees every key present
+                    // during the whole of it
+                    var seen = new HashSet<String>();
+                    for (var k : map.keySet()) {
+                        seen.add(k.toString());
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(seen.contains("stable" + i));
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void views() {
+        var map = new ConcurrentFastStringMap<Integer>();
+        var expected = new HashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), i);
+            expected.put("key" + i, i);
+        }
+        assertEquals(100, map.keySet().size());
+        assertEquals(expected.keySet(), map.keySet().stream()
+                .map(InlineString.ref::toString).collect(Collectors.toSet()));
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(),
+                map.values().stream().mapToInt(Integer::intValue).sum());
+        for (var e : map.entrySet()) {
+            assertEquals(expected.get(e.getKey().toString()), e.getValue());
+        }
+        assertTrue(map.keySet().contains(key(5)));
+        assertTrue(map.values().contains(5));
+        assertTrue(map.entrySet().contains(Map.entry(key(5), 5)));
+        assertFalse(map.entrySet().contains(Map.entry(key(5), 6)));
+
+        // Removal through the views
+        assertTrue(map.keySet().remove(key(5)));
+        assertFalse(map.keySet().remove(key(5)));
+        assertFalse(map.entrySet().remove(Map.entry(key(6), 7)));
+        assertTrue(map.entrySet().remove(Map.entry(key(6), 6)));
+        map.keySet().removeIf(k -> k.toString().endsWith("0"));
+        assertEquals(88, map.size());
+        assertNull(map.getInline(key(10)));
+
+        // setValue writes through
+        for (var e : map.entrySet()) {
+            e.setValue(e.getValue() + 1000);
+        }
+        assertEquals(1007, map.getInline(key(7)));
+
+        var iter = map.values().iterator();
+        assertThrows(IllegalStateException.class, iter::remove);
+        iter.next();
+        iter.remove();
+        assertThrows(IllegalStateException.class, iter::remove);
+        assertEquals(87, map.size());
+
+        map.entrySet().clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+    }
+}
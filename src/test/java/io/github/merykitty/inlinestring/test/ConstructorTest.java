@@ -9,11 +9,18 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.ValueLayout;
+
 public class ConstructorTest {
 
     @Test
@@ -153,6 +160,77 @@ public class ConstructorTest {
                 () -> new InlineString(data.bytes(), data.charset()).toString());
     }
 
+    record ByteBufferCharset(ByteBuffer buffer, Charset charset) {}
+    public static Stream<ByteBufferCharset> byteBufferCharset() {
+        var random = RandomGenerator.getDefault();
+        return DATA.stream().flatMap(s -> {
+            var charset = CHARSETS.get(random.nextInt(CHARSETS.size()));
+            var bytes = s.getBytes(charset);
+            // Leave some bytes before the position and after the limit
+            var heap = ByteBuffer.allocate(bytes.length + 4).position(2).put(bytes).flip().position(2);
+            var direct = ByteBuffer.allocateDirect(bytes.length + 4).position(2).put(bytes).flip().position(2);
+            return Stream.of(new ByteBufferCharset(heap, charset),
+                    new ByteBufferCharset(heap.asReadOnlyBuffer(), charset),
+                    new ByteBufferCharset(direct, charset));
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void byteBufferCharset(ByteBufferCharset data) {
+        var buffer = data.buffer();
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(buffer.position(), bytes);
+        assertEquals(new String(bytes, data.charset()), new InlineString(buffer, data.charset()).toString());
+        assertEquals(2, buffer.position());
+    }
+
+    public static Stream<ByteBufferCharset> directByteBuffer() {
+        var inputs = new ArrayList<byte[]>();
+        for (var s : DATA) {
+            inputs.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        // Malformed UTF-8, and a negative byte at each position of the
+        // 8-byte reads and of the tail
+        inputs.add(new byte[] {'a', (byte) 0xff, 'b', (byte) 0xc3});
+        for (int i = 0; i < 20; i++) {
+            var bytes = "abcdefghijklmnopqrst".getBytes(StandardCharsets.US_ASCII);
+            bytes[i] = (byte) 0xe9;
+            inputs.add(bytes);
+        }
+        return CHARSETS.stream().flatMap(charset -> inputs.stream().map(bytes -> {
+            var direct = ByteBuffer.allocateDirect(bytes.length + 4).position(2).put(bytes).flip().position(2);
+            return new ByteBufferCharset(direct, charset);
+        }));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void directByteBuffer(ByteBufferCharset data) {
+        byteBufferCharset(data);
+    }
+
+    record MemorySegmentCharset(MemorySegment segment, Charset charset) {}
+    public static Stream<MemorySegmentCharset> memorySegmentCharset() {
+        var random = RandomGenerator.getDefault();
+        return DATA.stream().flatMap(s -> {
+            var charset = CHARSETS.get(random.nextInt(CHARSETS.size()));
+            var bytes = s.getBytes(charset);
+            var heap = MemorySegment.ofArray(bytes);
+            var direct = MemorySegment.allocateNative(bytes.length, ResourceScope.globalScope());
+            direct.copyFrom(heap);
+            return Stream.of(new MemorySegmentCharset(heap, charset),
+                    new MemorySegmentCharset(direct, charset));
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void memorySegmentCharset(MemorySegmentCharset data) {
+        var bytes = data.segment().toArray(ValueLayout.JAVA_BYTE);
+        assertEquals(new String(bytes, data.charset()), new InlineString(data.segment(), data.charset()).toString());
+    }
+
     public static Stream<byte[]> byteArray() {
         return DATA.stream().map(String::getBytes);
     }
@@ -0,0 +1,353 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.FastStringMap;
+import io.github.merykitty.inlinestring.HashedInlineString;
+import io.github.merykitty.inlinestring.InlineString;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.random.RandomGenerator;
+
+public class FastStringMapTest {
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    // Whether an incremental resize of the map is in progress
+    private static boolean migrating(FastStringMap<?> map) throws ReflectiveOperationException {
+        var field = FastStringMap.class.getDeclaredField("oldTable");
+        field.setAccessible(true);
+        return field.get(map) != null;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void resizeDuringIteration(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 8; i++) {
+            map.putInline(key(i), i);
+        }
+        var iter = map.keySet().iterator();
+        iter.next();
+        // Grows the table, the iterator must not go on over the new one
+        for (int i = 8; i < 64; i++) {
+            map.putInline(key(i), i);
+        }
+        assertThrows(ConcurrentModificationException.class, iter::next);
+    }
+
+    @Test
+    public void trimToSizeDuringIteration() {
+        var map = new FastStringMap<Integer>(1024);
+        for (int i = 0; i < 8; i++) {
+            map.putInline(key(i), i);
+        }
+        var iter = map.keySet().iterator();
+        iter.next();
+        assertTrue(map.trimToSize() > 0);
+        assertThrows(ConcurrentModificationException.class, iter::next);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void replaceDuringIteration(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(64, incrementalResize);
+        for (int i = 0; i < 32; i++) {
+            map.putInline(key(i), i);
+        }
+        // Leave enough deleted slots for the next insertion to rehash
+        for (int i = 0; i < 20; i++) {
+            map.removeInline(key(i));
+        }
+        assertTrue(map.deletedCount() > map.capacity() / 4);
+        var visited = new HashSet<String>();
+        for (var k : map.keySet()) {
+            assertTrue(visited.add(k.toString()));
+            map.put(k, map.get(k) + 100);
+        }
+        assertEquals(12, visited.size());
+        for (int i = 20; i < 32; i++) {
+            assertEquals(i + 100, map.getInline(key(i)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void churnCompaction(boolean incrementalResize) {
+        // A window of 100 live keys sliding over many distinct ones, the
+        // deleted slots must be reclaimed instead of filling the table
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 100_000; i++) {
+            map.putInline(key(i), i);
+            if (i >= 100) {
+                assertEquals(i - 100, map.removeInline(key(i - 100)));
+            }
+            assertTrue(map.deletedCount() <= map.capacity() / 4 + 1);
+        }
+        assertEquals(100, map.size());
+        assertTrue(map.capacity() <= 512);
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i >= 99_900 ? Integer.valueOf(i) : null, map.getInline(key(i)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void trimToSizeReturn(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 1000; i++) {
+            map.putInline(key(i), i);
+        }
+        for (int i = 0; i < 990; i++) {
+            map.removeInline(key(i));
+        }
+        int capacity = map.capacity();
+        int released = map.trimToSize();
+        assertTrue(released > 0);
+        assertEquals(capacity - map.capacity(), released);
+        assertEquals(0, map.deletedCount());
+        // Already as small as possible
+        assertEquals(0, map.trimToSize());
+        // Only the deleted slots are reclaimed, the capacity stays the same
+        map.removeInline(key(990));
+        assertEquals(1, map.deletedCount());
+        capacity = map.capacity();
+        assertEquals(0, map.trimToSize());
+        assertEquals(capacity, map.capacity());
+        assertEquals(0, map.deletedCount());
+        assertEquals(9, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i > 990 ? Integer.valueOf(i) : null, map.getInline(key(i)));
+        }
+    }
+
+    @Test
+    public void operationsDuringMigration() throws ReflectiveOperationException {
+        var map = new FastStringMap<Integer>(16, true);
+        // Stop right after a resize starts, the old table is large enough
+        // for the migration to last through many operations
+        int n = 0;
+        while (n < 1000 || !migrating(map)) {
+            map.putInline(key(n), n);
+            n++;
+        }
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order);
+        for (int j = 0; j < n; j++) {
+            int i = order.get(j);
+            if (j == 20) {
+                assertTrue(migrating(map));
+            }
+            assertNull(map.getInline(key(n + i)));
+            assertFalse(map.containsKeyInline(key(n + i)));
+            if (i % 2 == 0) {
+                assertEquals(i, map.removeInline(key(i)));
+                assertNull(map.getInline(key(i)));
+            } else {
+                assertEquals(i, map.getInline(key(i)));
+                assertTrue(map.containsKeyInline(key(i)));
+            }
+        }
+        assertFalse(migrating(map));
+        assertEquals(n / 2, map.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.getInline(key(i)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomOperations(boolean incrementalResize) {
+        // The keys are drawn from a growing range so that the table keeps
+        // resizing while entries are removed
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        var expected = new HashMap<String, Integer>();
+        var random = RandomGenerator.getDefault();
+        for (int i = 0; i < 200_000; i++) {
+            int k = random.nextInt(i / 8 + 16);
+            var key = key(k);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key.toString(), i), map.putInline(key, i));
+                case 2 -> assertEquals(expected.remove(key.toString()), map.removeInline(key));
+                default -> assertEquals(expected.get(key.toString()), map.getInline(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        var actual = new HashMap<String, Integer>();
+        map.forEach((k, v) -> actual.put(k.toString(), v));
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void computeReturningNull(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), i);
+        }
+        // A null result removes the key, or leaves an absent key absent
+        assertNull(map.compute(key(0), (k, v) -> {
+            assertEquals(0, v);
+            return null;
+        }));
+        assertFalse(map.containsKey(key(0)));
+        assertNull(map.compute(key(100), (k, v) -> {
+            assertNull(v);
+            return null;
+        }));
+        assertFalse(map.containsKey(key(100)));
+        assertNull(map.computeIfPresent(key(1), (k, v) -> null));
+        assertFalse(map.containsKey(key(1)));
+        assertNull(map.computeIfPresent(key(101), (k, v) -> fail()));
+        assertNull(map.computeIfAbsent(key(101), k -> null));
+        assertFalse(map.containsKey(key(101)));
+        assertNull(map.merge(key(2), 5, (a, b) -> {
+            assertEquals(2, a);
+            assertEquals(5, b);
+            return null;
+        }));
+        assertFalse(map.containsKey(key(2)));
+        assertNull(map.computeInline(new HashedInlineString(key(3)), (k, v) -> null));
+        assertNull(map.mergeInline(new HashedInlineString(key(4)), 5, (a, b) -> null));
+        assertEquals(95, map.size());
+        for (int i = 0; i < 5; i++) {
+            assertNull(map.getInline(key(i)));
+        }
+
+        // The removed keys can be added again
+        assertEquals(5, map.merge(key(2), 5, Integer::sum));
+        assertEquals(7, map.merge(key(2), 2, Integer::sum));
+        assertEquals(3, map.compute(key(3), (k, v) -> v == null ? 3 : v + 1));
+        assertEquals(97, map.size());
+
+        // Removing every key through compute leaves deleted slots to reclaim
+        // like any other removal
+        for (int i = 0; i < 100; i++) {
+            map.compute(key(i), (k, v) -> null);
+        }
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+        for (int i = 100; i < 1000; i++) {
+            map.putInline(key(i), i);
+            assertTrue(map.deletedCount() <= map.capacity() / 4 + 1);
+        }
+        assertEquals(900, map.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void getAllWithMissingKeys(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 1000; i += 2) {
+            map.putInline(key(i), i);
+        }
+        map.removeInline(key(10));
+        // Several groups, the last one partial, with absent and removed keys
+        var keys = new InlineString[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(i);
+        }
+        var out = new Integer[keys.length];
+        Arrays.fill(out, -1);
+        assertEquals(49, map.getAll(keys, out));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 2 == 0 && i != 10 ? Integer.valueOf(i) : null, out[i]);
+        }
+
+        // No key found
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(1000 + i);
+        }
+        Arrays.fill(out, -1);
+        assertEquals(0, map.getAll(keys, out));
+        assertArrayEquals(new Integer[keys.length], out);
+
+        assertEquals(0, map.getAll(new InlineString[0], new Integer[0]));
+        assertThrows(IndexOutOfBoundsException.class, () -> map.getAll(keys, new Integer[keys.length - 1]));
+    }
+
+    @Test
+    public void getAllDuringMigration() throws ReflectiveOperationException {
+        var map = new FastStringMap<Integer>(16, true);
+        int n = 0;
+        while (n < 1000 || !migrating(map)) {
+            map.putInline(key(n), n);
+            n++;
+        }
+        var keys = new InlineString[2 * n];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(i);
+        }
+        var out = new Integer[keys.length];
+        assertEquals(n, map.getAll(keys, out));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i < n ? Integer.valueOf(i) : null, out[i]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void putAllBatch(boolean incrementalResize) {
+        var map = new FastStringMap<Integer>(16, incrementalResize);
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), -1);
+        }
+        for (int i = 0; i < 50; i++) {
+            map.removeInline(key(i));
+        }
+        // Existing, removed and new keys, each one twice in the same group
+        var keys = new InlineString[400];
+        var values = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(i / 2);
+            values[i] = i;
+        }
+        map.putAll(keys, values);
+        assertEquals(200, map.size());
+        var out = new Integer[keys.length];
+        assertEquals(keys.length, map.getAll(keys, out));
+        for (int i = 0; i < keys.length; i++) {
+            // The last value of a key wins
+            assertEquals(i | 1, out[i]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> map.putAll(keys, new Integer[keys.length - 1]));
+    }
+
+    @Test
+    public void hashedLookup() {
+        var map = new FastStringMap<Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), i);
+        }
+        var h = new HashedInlineString(key(5));
+        Object hashed = h;
+        assertEquals(5, map.getInline(h));
+        assertTrue(map.containsKeyInline(h));
+        assertEquals(5, map.getOrDefaultInline(h, -1));
+        // A hashed string is not equal to the keys, the untyped methods must
+        // miss
+        assertNull(map.get(hashed));
+        assertFalse(map.containsKey(hashed));
+        assertEquals(-1, map.getOrDefault(hashed, -1));
+        assertFalse(map.keySet().contains(hashed));
+        assertNull(map.remove(hashed));
+        assertFalse(map.remove(hashed, 5));
+        assertFalse(map.keySet().remove(hashed));
+        assertEquals(100, map.size());
+        assertEquals(5, map.removeInline(h));
+        assertNull(map.getInline(key(5)));
+        assertEquals(99, map.size());
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.FastStringDoubleMap;
+import io.github.merykitty.inlinestring.FastStringIntMap;
+import io.github.merykitty.inlinestring.FastStringLongMap;
+import io.github.merykitty.inlinestring.InlineString;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+public class FastStringPrimitiveMapTest {
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    private static int nullToZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    @Test
+    public void intMap() {
+        var map = new FastStringIntMap();
+        var expected = new HashMap<String, Integer>();
+        var random = RandomGenerator.getDefault();
+        for (int i = 0; i < 100_000; i++) {
+            int k = random.nextInt(1000);
+            int v = random.nextInt();
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(nullToZero(expected.put("key" + k, v)), map.put(key(k), v));
+                case 1 -> {
+                    int old = nullToZero(expected.get("key" + k));
+                    expected.put("key" + k, old + v);
+                    assertEquals(old, map.addTo(key(k), v));
+                }
+                default -> assertEquals(nullToZero(expected.remove("key" + k)), map.remove(key(k)));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    public void addTo() {
+        var intMap = new FastStringIntMap();
+        var longMap = new FastStringLongMap();
+        var doubleMap = new FastStringDoubleMap();
+        for (int i = 0; i < 10; i++) {
+            intMap.addTo(key(0), 3);
+            longMap.addTo(key(0), Long.MAX_VALUE / 10);
+            doubleMap.addTo(key(0), 0.5);
+        }
+        assertEquals(30, intMap.getOrDefault(key(0), -1));
+        assertEquals(Long.MAX_VALUE / 10 * 10, longMap.getOrDefault(key(0), -1));
+        assertEquals(5.0, doubleMap.getOrDefault(key(0), -1));
+        assertEquals(-1, intMap.getOrDefault(key(1), -1));
+        assertEquals(-1.5, doubleMap.getOrDefault(key(1), -1.5));
+        assertEquals(0.0, doubleMap.remove(key(1)));
+        assertEquals(5.0, doubleMap.remove(key(0)));
+        assertFalse(doubleMap.containsKey(key(0)));
+    }
+
+    @Test
+    public void growth() {
+        var map = new FastStringLongMap(2);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(key(i), i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.getOrDefault(key(i), -1));
+        }
+        assertTrue(map.capacity() >= 20_000);
+    }
+
+    @Test
+    public void churn() {
+        // Distinct keys are inserted and removed while the size stays small,
+        // without the deleted slots being reclaimed the table fills up and
+        // the lookups of absent keys never end
+        var map = new FastStringIntMap(16);
+        for (int i = 0; i < 100_000; i++) {
+            map.put(key(i), i);
+            if (i >= 4) {
+                assertEquals(i - 4, map.remove(key(i - 4)));
+            }
+            assertFalse(map.containsKey(key(-1)));
+            assertTrue(map.deletedCount() <= map.capacity() / 4 + 1);
+        }
+        assertEquals(4, map.size());
+        assertEquals(16, map.capacity());
+        var counts = new int[1];
+        map.forEach((k, v) -> counts[0]++);
+        assertEquals(4, counts[0]);
+    }
+}
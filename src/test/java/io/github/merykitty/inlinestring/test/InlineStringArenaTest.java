@@ -0,0 +1,127 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.HashedInlineString;
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringArena;
+import static io.github.merykitty.inlinestring.test.Utils.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class InlineStringArenaTest {
+    @TempDir
+    Path dir;
+
+    // The test data, Latin1 and UTF16 strings sharing prefixes, and strings
+    // larger than the smallest chunks
+    private static List<String> strings() {
+        var result = new ArrayList<>(DATA);
+        result.addAll(List.of("a", "ab", "abc", "é", "ồ", "aồ", "abồ", "abĀ",
+                "ÿ", "Ā", "a".repeat(300), "ồ".repeat(300)));
+        return result;
+    }
+
+    record ArenaData(long chunkSize, boolean mapped) {}
+    public static Stream<ArenaData> arenaData() {
+        return Stream.of(new ArenaData(1 << 20, false), new ArenaData(64, false),
+                new ArenaData(1 << 20, true), new ArenaData(256, true));
+    }
+
+    private InlineStringArena open(ArenaData data) throws IOException {
+        return data.mapped()
+                ? InlineStringArena.ofMappedFile(dir.resolve("arena"), data.chunkSize())
+                : InlineStringArena.ofNative(data.chunkSize());
+    }
+
+    @ParameterizedTest
+    @MethodSource("arenaData")
+    public void roundTrip(ArenaData data) throws IOException {
+        var strings = strings();
+        try (var arena = open(data)) {
+            var handles = new long[strings.size()];
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = arena.add(new InlineString(strings.get(i)));
+            }
+            assertEquals(handles.length, arena.count());
+            for (int i = 0; i < handles.length; i++) {
+                var str = strings.get(i);
+                var inlStr = new InlineString(str);
+                long handle = handles[i];
+                var copy = arena.get(handle);
+                assertEquals(inlStr, copy);
+                assertEquals(str, copy.toString());
+                assertEquals(str.length(), arena.length(handle));
+                for (int j = 0; j < str.length(); j++) {
+                    assertEquals(str.charAt(j), arena.charAt(handle, j));
+                }
+                assertEquals(str.hashCode(), arena.hashCode(handle));
+                assertTrue(arena.equals(handle, inlStr));
+                assertTrue(arena.equals(handle, new HashedInlineString(inlStr)));
+                // A copy added later gets another handle with the same content
+                long other = arena.add(inlStr);
+                assertNotEquals(handle, other);
+                assertTrue(arena.equals(handle, other));
+                assertEquals(0, arena.compare(handle, other));
+            }
+            assertEquals(2L * handles.length, arena.count());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("arenaData")
+    public void compare(ArenaData data) throws IOException {
+        var strings = strings();
+        try (var arena = open(data)) {
+            var handles = new long[strings.size()];
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = arena.add(new InlineString(strings.get(i)));
+            }
+            for (int i = 0; i < handles.length; i++) {
+                for (int j = 0; j < handles.length; j++) {
+                    var a = strings.get(i);
+                    var b = strings.get(j);
+                    assertEquals(a.equals(b), arena.equals(handles[i], handles[j]));
+                    assertEquals(a.equals(b), arena.equals(handles[i], new InlineString(b)));
+                    assertEquals(Integer.signum(a.compareTo(b)),
+                            Integer.signum(arena.compare(handles[i], handles[j])));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void byteSize() {
+        try (var arena = InlineStringArena.ofNative(64)) {
+            assertEquals(0, arena.byteSize());
+            arena.add(new InlineString("abc"));
+            // The header, then the bytes padded to a multiple of 4
+            assertEquals(12, arena.byteSize());
+            arena.add(new InlineString("ồ"));
+            assertEquals(24, arena.byteSize());
+            arena.add(new InlineString(""));
+            assertEquals(32, arena.byteSize());
+        }
+    }
+
+    @Test
+    public void illegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> InlineStringArena.ofNative(0));
+        assertThrows(IllegalArgumentException.class, () -> InlineStringArena.ofNative((1L << 32) + 1));
+        try (var arena = InlineStringArena.ofNative()) {
+            long latin1 = arena.add(new InlineString("abc"));
+            long utf16 = arena.add(new InlineString("ồ"));
+            assertThrows(StringIndexOutOfBoundsException.class, () -> arena.charAt(latin1, -1));
+            assertThrows(StringIndexOutOfBoundsException.class, () -> arena.charAt(latin1, 3));
+            assertThrows(StringIndexOutOfBoundsException.class, () -> arena.charAt(utf16, 1));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringBuilder;
+import static io.github.merykitty.inlinestring.test.Utils.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.Stream;
+
+public class InlineStringBuilderTest {
+    record BuilderData(String str, InlineString inlStr) {}
+    public static Stream<BuilderData> builderData() {
+        return DATA.stream().map(s -> new BuilderData(s, new InlineString(s)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void appendPaths(BuilderData data) {
+        var str = data.str();
+        // Starts Latin1, the UTF16 strings inflate the storage in the middle
+        // of each kind of append
+        var expected = new StringBuilder("abc");
+        var sb = new InlineStringBuilder(new InlineString("abc"));
+        expected.append(str).append(str).append(str).append(str).append(str);
+        sb.append(data.inlStr());
+        sb.append((CharSequence) str);
+        sb.append(str.toCharArray());
+        for (int i = 0; i < str.length(); i++) {
+            sb.append(str.charAt(i));
+        }
+        sb.append(new StringBuilder(str), 0, str.length());
+        expected.append(true).append((Object) null).append(1.5f).append(-2.25);
+        sb.append(true).append((Object) null).append(1.5f).append(-2.25);
+        assertEquals(expected.length(), sb.length());
+        assertEquals(expected.toString(), sb.toString());
+        assertEquals(expected.toString(), sb.build().toString());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), sb.charAt(i));
+        }
+        assertEquals(expected.substring(3, 3 + str.length()), sb.subSequence(3, 3 + str.length()).toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void inflateCharByChar(BuilderData data) {
+        var str = data.str();
+        // Each non Latin1 character appended after Latin1 ones inflates a
+        // fresh builder at a different position
+        for (int i = 0; i < str.length(); i++) {
+            var sb = new InlineStringBuilder(1);
+            sb.append(str, 0, i);
+            sb.append('ờ');
+            sb.append(str, i, str.length());
+            var expected = str.substring(0, i) + 'ờ' + str.substring(i);
+            assertEquals(expected, sb.build().toString());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void appendLong(BuilderData data) {
+        long[] values = {0, 1, -1, 9, 10, -10, 99, 100, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE + 1, 1_000_000_000_000_000_000L};
+        var expected = new StringBuilder(data.str());
+        var sb = new InlineStringBuilder(data.inlStr());
+        for (long l : values) {
+            expected.append(l).append(',');
+            sb.append(l).append(',');
+        }
+        expected.append(42).append(-42);
+        sb.append(42).append(-42);
+        assertEquals(expected.toString(), sb.build().toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void copyOnWrite(BuilderData data) {
+        var str = data.str();
+        if (str.isEmpty()) {
+            return;
+        }
+        // An exactly full builder hands its storage to the built string, the
+        // next modification of the builder must not be seen by the string
+        var sb = new InlineStringBuilder(str.length());
+        sb.append(data.inlStr());
+        var built = sb.build();
+        sb.setCharAt(0, 'X');
+        assertEquals(str, built.toString());
+        assertEquals('X' + str.substring(1), sb.toString());
+
+        sb = new InlineStringBuilder(str.length());
+        sb.append(data.inlStr());
+        built = sb.build();
+        sb.setCharAt(0, 'ờ');
+        assertEquals(str, built.toString());
+        assertEquals('ờ' + str.substring(1), sb.toString());
+
+        sb = new InlineStringBuilder(str.length());
+        sb.append(data.inlStr());
+        built = sb.build();
+        sb.append('!');
+        assertEquals(str, built.toString());
+        assertEquals(str + '!', sb.toString());
+
+        sb = new InlineStringBuilder(str.length());
+        sb.append(data.inlStr());
+        built = sb.build();
+        sb.setLength(str.length() / 2);
+        sb.append("!".repeat(str.length() - str.length() / 2));
+        assertEquals(str, built.toString());
+        assertEquals(str.substring(0, str.length() / 2) + "!".repeat(str.length() - str.length() / 2), sb.toString());
+
+        // Building twice hands out the same contents
+        var built2 = sb.build();
+        var built3 = sb.build();
+        assertEquals(built2, built3);
+        sb.setLength(0);
+        assertEquals(built2, built3);
+        assertEquals("", sb.build().toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void setLength(BuilderData data) {
+        var str = data.str();
+        var sb = new InlineStringBuilder(data.inlStr());
+        sb.setLength(str.length() + 3);
+        assertEquals(str + "\0\0\0", sb.toString());
+        sb.setLength(str.length() / 2);
+        assertEquals(str.substring(0, str.length() / 2), sb.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.setLength(-1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void selfAppend(BuilderData data) {
+        var str = data.str();
+        var expected = new StringBuilder(str);
+        var sb = new InlineStringBuilder(data.inlStr());
+        for (int i = 0; i < 3; i++) {
+            expected.append(expected);
+            sb.append(sb);
+        }
+        expected.append(expected, expected.length() / 3, expected.length() / 2);
+        sb.append(sb, sb.length() / 3, sb.length() / 2);
+        assertEquals(expected.toString(), sb.build().toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderData")
+    public void appendCodePoint(BuilderData data) {
+        var str = data.str();
+        int codePoint = 0x1F600;
+        var expected = new StringBuilder(str).appendCodePoint(codePoint).appendCodePoint('a').appendCodePoint(0xE9);
+        var sb = new InlineStringBuilder(data.inlStr()).appendCodePoint(codePoint).appendCodePoint('a').appendCodePoint(0xE9);
+        assertEquals(expected.toString(), sb.toString());
+        assertEquals(Character.highSurrogate(codePoint), sb.charAt(str.length()));
+        assertEquals(Character.lowSurrogate(codePoint), sb.charAt(str.length() + 1));
+        var built = sb.build();
+        assertEquals(expected.toString(), built.toString());
+        assertEquals(codePoint, built.codePointAt(str.length()));
+    }
+
+    @Test
+    public void illegalArguments() {
+        var sb = new InlineStringBuilder();
+        sb.append("abc");
+        assertThrows(IllegalArgumentException.class, () -> sb.appendCodePoint(-1));
+        assertThrows(IllegalArgumentException.class, () -> sb.appendCodePoint(Character.MAX_CODE_POINT + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.charAt(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.setCharAt(-1, 'a'));
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.append("abc", 2, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.append(new char[2], 1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> sb.subSequence(0, 4));
+        assertEquals("abc", sb.toString());
+    }
+}
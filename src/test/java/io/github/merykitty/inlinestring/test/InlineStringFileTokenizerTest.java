@@ -0,0 +1,151 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringFileTokenizer;
+import static io.github.merykitty.inlinestring.test.Utils.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class InlineStringFileTokenizerTest {
+    @TempDir
+    Path dir;
+
+    // The tokens of the text, a text ending with the delimiter does not end
+    // with an empty token
+    private static List<String> split(String text, char delimiter, boolean stripCR) {
+        var result = new ArrayList<String>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf(delimiter, start);
+            if (end < 0) {
+                end = text.length();
+            }
+            var token = text.substring(start, end);
+            if (stripCR && token.endsWith("\r")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            result.add(token);
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private static List<String> toList(Stream<InlineString.ref> tokens) {
+        return tokens.map(InlineString.ref::toString).collect(Collectors.toList());
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        var file = dir.resolve(name);
+        Files.write(file, bytes);
+        return file;
+    }
+
+    record TokenizerData(String text, Charset charset) {}
+    public static Stream<TokenizerData> tokenizerData() {
+        var texts = List.of("", ",", ",,", "a", "a,", "a,b,,c", "a,b,,c,", ",a",
+                "a\r\nb\nc\r\n", "a\r\r\nb\r", "\r\n\r\n", "Ngồi,nghịch,thuii\r\n",
+                String.join(",", DATA), String.join("\r\n", DATA) + "\n");
+        return Stream.of(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII)
+                .mapMulti((charset, c) -> texts.forEach(text -> c.accept(new TokenizerData(text, charset))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("tokenizerData")
+    public void tokens(TokenizerData data) throws IOException {
+        var bytes = data.text().getBytes(data.charset());
+        // Characters not encodable in the charset are replaced when encoding
+        var text = new String(bytes, data.charset());
+        try (var tokenizer = InlineStringFileTokenizer.open(write("tokens", bytes), data.charset())) {
+            assertEquals(bytes.length, tokenizer.byteSize());
+            assertEquals(split(text, ',', false), toList(tokenizer.tokens(',')));
+            assertEquals(split(text, '\n', true), toList(tokenizer.lines()));
+            // The carriage returns are only stripped from the lines
+            assertEquals(split(text, '\n', false), toList(tokenizer.tokens('\n')));
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        try (var tokenizer = InlineStringFileTokenizer.open(write("empty", new byte[0]), StandardCharsets.UTF_8)) {
+            assertEquals(0, tokenizer.byteSize());
+            assertEquals(0, tokenizer.lines().count());
+            assertEquals(0, tokenizer.tokens(',').parallel().count());
+        }
+    }
+
+    @Test
+    public void negativeBytes() throws IOException {
+        // Chunks of ASCII bytes first, then chunks with negative bytes
+        var sb = new StringBuilder();
+        for (int i = 0; i < 40_000; i++) {
+            sb.append(i < 20_000 ? "token" + i : "tokén" + i).append(i % 10 == 9 ? '\n' : ',');
+        }
+        var text = sb.toString();
+        for (var charset : List.of(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1)) {
+            var bytes = text.getBytes(charset);
+            var decoded = new String(bytes, charset);
+            try (var tokenizer = InlineStringFileTokenizer.open(write("negative", bytes), charset)) {
+                assertEquals(split(decoded, '\n', true), toList(tokenizer.lines()));
+                assertEquals(split(decoded, ',', false), toList(tokenizer.tokens(',')));
+            }
+        }
+        // Negative bytes which are not valid in the charset are replaced
+        var bytes = new byte[] {'a', (byte) 0xff, ',', (byte) 0xc3, ',', 'b'};
+        var file = write("malformed", bytes);
+        try (var tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.UTF_8)) {
+            assertEquals(List.of("a\ufffd", "\ufffd", "b"), toList(tokenizer.tokens(',')));
+        }
+        try (var tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.US_ASCII)) {
+            assertEquals(List.of("a\ufffd", "\ufffd", "b"), toList(tokenizer.tokens(',')));
+        }
+        try (var tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.ISO_8859_1)) {
+            assertEquals(List.of("a\u00ff", "\u00c3", "b"), toList(tokenizer.tokens(',')));
+        }
+    }
+
+    @Test
+    public void parallel() throws IOException {
+        // Large enough for the ranges to be split several times
+        var sb = new StringBuilder();
+        for (int i = 0; sb.length() < 5 << 20; i++) {
+            sb.append(DATA.get(i % DATA.size()).replace('\n', ' ')).append(' ').append(i)
+                    .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        var text = sb.toString();
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (var tokenizer = InlineStringFileTokenizer.open(write("large", bytes), StandardCharsets.UTF_8)) {
+            var expected = split(text, '\n', true);
+            assertEquals(expected, toList(tokenizer.lines()));
+            assertEquals(expected, toList(tokenizer.lines().parallel()));
+            assertEquals(split(text, ' ', false), toList(tokenizer.tokens(' ').parallel()));
+            assertNotNull(tokenizer.lines().spliterator().trySplit());
+        }
+    }
+
+    @Test
+    public void illegalArguments() throws IOException {
+        var file = write("file", "a,b".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> InlineStringFileTokenizer.open(file, StandardCharsets.UTF_16));
+        try (var tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.UTF_8)) {
+            assertThrows(IllegalArgumentException.class, () -> tokenizer.tokens('ồ'));
+        }
+        var tokenizer = InlineStringFileTokenizer.open(file, StandardCharsets.UTF_8);
+        var tokens = tokenizer.tokens(',');
+        tokenizer.close();
+        assertThrows(IllegalStateException.class, tokens::count);
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.HashedInlineString;
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+public class InlineStringHashMapTest {
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    // Keys all having the same hash code, "Aa" and "BB" do
+    private static InlineString collidingKey(int i) {
+        var sb = new StringBuilder();
+        for (int bit = 0; bit < 7; bit++) {
+            sb.append((i >>> bit & 1) == 0 ? "Aa" : "BB");
+        }
+        return new InlineString(sb.toString());
+    }
+
+    // Whether an incremental resize of the map is in progress
+    private static boolean migrating(InlineStringHashMap<?> map) throws ReflectiveOperationException {
+        var field = InlineStringHashMap.class.getDeclaredField("oldTable");
+        field.setAccessible(true);
+        return field.get(map) != null;
+    }
+
+    @Test
+    public void operationsDuringMigration() throws ReflectiveOperationException {
+        var map = new InlineStringHashMap<Integer>(16, 0.75f, true);
+        // Stop right after a resize starts, the old table is large enough
+        // for the migration to last through many operations
+        int n = 0;
+        while (n < 1000 || !migrating(map)) {
+            map.putPrimitive(key(n), n);
+            n++;
+        }
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order);
+        for (int j = 0; j < n; j++) {
+            int i = order.get(j);
+            if (j == 20) {
+                assertTrue(migrating(map));
+            }
+            assertNull(map.getPrimitive(key(n + i)));
+            assertFalse(map.containsKey(key(n + i)));
+            if (i % 2 == 0) {
+                assertEquals(i, map.remove(key(i)));
+                assertNull(map.getPrimitive(key(i)));
+            } else {
+                assertEquals(i, map.getPrimitive(key(i)));
+                assertTrue(map.containsKey(key(i)));
+            }
+        }
+        assertFalse(migrating(map));
+        assertEquals(n / 2, map.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.getPrimitive(key(i)));
+        }
+    }
+
+    @Test
+    public void treeBinsDuringMigration() throws ReflectiveOperationException {
+        // The colliding keys share a bin, which is a tree by the time the
+        // migration moves it
+        var map = new InlineStringHashMap<Integer>(16, 0.75f, true);
+        for (int i = 0; i < 100; i++) {
+            map.putPrimitive(key(i), i);
+        }
+        for (int i = 0; i < 128; i++) {
+            map.putPrimitive(collidingKey(i), -i);
+        }
+        int n = 100;
+        while (n < 1000 || !migrating(map)) {
+            map.putPrimitive(key(n), n);
+            n++;
+        }
+        for (int i = 0; i < 128; i++) {
+            if (i % 2 == 0) {
+                assertEquals(-i, map.remove(collidingKey(i)));
+            } else {
+                assertEquals(-i, map.getPrimitive(collidingKey(i)));
+            }
+        }
+        assertTrue(migrating(map));
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, map.getPrimitive(key(i)));
+        }
+        assertFalse(migrating(map));
+        assertEquals(n + 64, map.size());
+        for (int i = 0; i < 128; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(-i), map.getPrimitive(collidingKey(i)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomOperations(boolean incrementalResize) {
+        // The keys are drawn from a growing range so that the table keeps
+        // resizing while entries are removed
+        var map = new InlineStringHashMap<Integer>(16, 0.75f, incrementalResize);
+        var expected = new HashMap<String, Integer>();
+        var random = RandomGenerator.getDefault();
+        for (int i = 0; i < 200_000; i++) {
+            int k = random.nextInt(i / 8 + 16);
+            var key = k % 16 == 0 ? collidingKey(k / 16 % 128) : key(k);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key.toString(), i), map.putPrimitive(key, i));
+                case 2 -> assertEquals(expected.remove(key.toString()), map.remove(key));
+                default -> assertEquals(expected.get(key.toString()), map.getPrimitive(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        var actual = new HashMap<String, Integer>();
+        map.forEach((k, v) -> actual.put(k.toString(), v));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void hashedLookup() {
+        var map = new InlineStringHashMap<Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.putPrimitive(key(i), i);
+        }
+        var h = new HashedInlineString(key(5));
+        Object hashed = h;
+        assertEquals(5, map.getPrimitive(h));
+        assertTrue(map.containsKey(h));
+        assertEquals(5, map.getOrDefaultPrimitive(h, -1));
+        // A hashed string is not equal to the keys, the untyped methods must
+        // miss
+        assertNull(map.get(hashed));
+        assertFalse(map.containsKey(hashed));
+        assertEquals(-1, map.getOrDefault(hashed, -1));
+        assertFalse(map.keySet().contains(hashed));
+        assertNull(map.remove(hashed));
+        assertFalse(map.remove(hashed, 5));
+        assertFalse(map.keySet().remove(hashed));
+        assertEquals(100, map.size());
+        assertEquals(5, map.remove(h));
+        assertNull(map.getPrimitive(key(5)));
+        assertEquals(99, map.size());
+    }
+
+    @Test
+    public void spliteratorsBindLate() throws ReflectiveOperationException {
+        var views = List.<Function<InlineStringHashMap<Integer>, Spliterator<?>>>of(
+                m -> m.keySet().spliterator(), m -> m.values().spliterator(),
+                m -> m.entrySet().spliterator());
+        for (var view : views) {
+            var map = new InlineStringHashMap<Integer>(16, 0.75f, true);
+            int n = 0;
+            while (n < 1000) {
+                map.putPrimitive(key(n), n);
+                n++;
+            }
+            // The spliterator is created before the put starting a resize and
+            // first used after it, it must still see the entries left in the
+            // old table
+            Spliterator<?> spliterator;
+            do {
+                spliterator = view.apply(map);
+                map.putPrimitive(key(n), n);
+                n++;
+            } while (!migrating(map));
+            var seen = new HashSet<Object>();
+            assertTrue(spliterator.tryAdvance(seen::add));
+            spliterator.forEachRemaining(seen::add);
+            assertEquals(n, seen.size());
+            assertFalse(migrating(map));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.HashedInlineString;
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringInterner;
+import static io.github.merykitty.inlinestring.test.Utils.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+public class InlineStringInternerTest {
+    // A string with its own array, new InlineString(String) may share the
+    // array of its argument
+    private static InlineString copy(String s) {
+        return new InlineString(s.toCharArray());
+    }
+
+    private static Object value(InlineString s) throws ReflectiveOperationException {
+        var field = InlineString.class.getDeclaredField("value");
+        field.setAccessible(true);
+        return field.get(s);
+    }
+
+    public static Stream<InlineStringInterner> interners() {
+        return Stream.of(InlineStringInterner.weak(), InlineStringInterner.weak(1),
+                InlineStringInterner.bounded(1024));
+    }
+
+    @ParameterizedTest
+    @MethodSource("interners")
+    public void canonicalize(InlineStringInterner interner) throws ReflectiveOperationException {
+        for (var str : DATA) {
+            if (str.isEmpty()) {
+                // The empty strings may all share one array
+                continue;
+            }
+            var a = copy(str);
+            var b = copy(str);
+            assertNotSame(value(a), value(b));
+            long hits = interner.hitCount();
+            long misses = interner.missCount();
+            var ia = interner.intern(a);
+            var ib = interner.intern(b);
+            var ic = interner.intern(new HashedInlineString(copy(str)));
+            assertEquals(a, ia);
+            assertEquals(b, ib);
+            assertEquals(str, ic.toString());
+            // The first string gives its array to the content
+            assertSame(value(a), value(ia));
+            assertSame(value(ia), value(ib));
+            assertSame(value(ia), value(ic));
+            assertEquals(hits + 2, interner.hitCount());
+            assertEquals(misses + 1, interner.missCount());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("interners")
+    public void reintern(InlineStringInterner interner) throws ReflectiveOperationException {
+        for (var str : DATA) {
+            long hits = interner.hitCount();
+            long misses = interner.missCount();
+            var interned = interner.intern(copy(str));
+            assertEquals(misses + 1, interner.missCount());
+            // A string already backed by the canonical array finds it, it is
+            // a hit even though its array does not change
+            var again = interner.intern(interned);
+            assertSame(value(interned), value(again));
+            var hashed = interner.intern(new HashedInlineString(interned));
+            assertSame(value(interned), value(hashed));
+            assertEquals(hits + 2, interner.hitCount());
+            assertEquals(misses + 1, interner.missCount());
+        }
+    }
+
+    @Test
+    public void singleSegment() throws ReflectiveOperationException {
+        // One segment, selected without shifting the hash, growing well past
+        // its initial capacity
+        var interner = InlineStringInterner.weak(1);
+        var strings = new ArrayList<InlineString>();
+        for (int i = 0; i < 10_000; i++) {
+            strings.add(interner.intern(copy("string" + i)));
+        }
+        assertEquals(10_000, interner.size());
+        assertEquals(10_000, interner.missCount());
+        for (int i = 0; i < 10_000; i++) {
+            assertSame(value(strings.get(i)), value(interner.intern(copy("string" + i))));
+        }
+        assertEquals(10_000, interner.hitCount());
+        assertEquals(10_000, interner.size());
+    }
+
+    @Test
+    public void expunge() throws InterruptedException {
+        var interner = InlineStringInterner.weak(1);
+        for (int i = 0; i < 1000; i++) {
+            interner.intern(copy("garbage" + i));
+        }
+        assertEquals(1000, interner.size());
+        // Nothing references the contents anymore, once they are collected
+        // the next intern in the segment drops their entries
+        for (int i = 0; i < 100 && interner.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            interner.intern(copy("live"));
+        }
+        assertTrue(interner.size() <= 1);
+    }
+
+    @Test
+    public void boundedReplacement() throws ReflectiveOperationException {
+        // A single slot, each new content replaces the previous one
+        var interner = InlineStringInterner.bounded(1);
+        var a = interner.intern(copy("a"));
+        assertSame(value(a), value(interner.intern(copy("a"))));
+        interner.intern(copy("b"));
+        assertEquals(1, interner.size());
+        var a2 = copy("a");
+        var ia2 = interner.intern(a2);
+        assertNotSame(value(a), value(ia2));
+        assertSame(value(a2), value(ia2));
+        assertEquals(1, interner.hitCount());
+        assertEquals(3, interner.missCount());
+
+        var larger = InlineStringInterner.bounded(100);
+        for (int i = 0; i < 10_000; i++) {
+            larger.intern(copy("string" + i));
+        }
+        // The capacity is rounded up to a power of 2 and never exceeded
+        assertTrue(larger.size() <= 128);
+    }
+
+    @Test
+    public void illegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> InlineStringInterner.weak(0));
+        assertThrows(IllegalArgumentException.class, () -> InlineStringInterner.bounded(0));
+        assertThrows(IllegalArgumentException.class, () -> InlineStringInterner.bounded((1 << 30) + 1));
+    }
+}
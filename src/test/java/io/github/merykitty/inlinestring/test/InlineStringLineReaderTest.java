@@ -0,0 +1,164 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringLineReader;
+import static io.github.merykitty.inlinestring.test.Utils.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class InlineStringLineReaderTest {
+    // A channel returning at most chunkSize bytes per read, so that the
+    // terminators and the characters are split across the reads
+    private static final class ChunkedChannel implements ReadableByteChannel {
+        private final byte[] bytes;
+        private final int chunkSize;
+        private int pos;
+        private boolean open = true;
+
+        ChunkedChannel(byte[] bytes, int chunkSize) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (pos == bytes.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(chunkSize, dst.remaining()), bytes.length - pos);
+            dst.put(bytes, pos, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    // The lines of the test data joined with each kind of terminator, with
+    // a line longer than the buffers, ending with the specified string
+    private static String text(String end) {
+        var terminators = List.of("\n", "\r", "\r\n", "\n\n", "\r\r\n");
+        var sb = new StringBuilder();
+        for (int i = 0; i < DATA.size(); i++) {
+            sb.append(DATA.get(i)).append(terminators.get(i % terminators.size()));
+        }
+        sb.append("Ngồi nghịch thuii, long line ".repeat(50)).append("\r\n");
+        sb.append("last line").append(end);
+        return sb.toString();
+    }
+
+    private static List<String> expectedLines(byte[] bytes, Charset charset) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), charset));
+        var result = new ArrayList<String>();
+        for (String line; (line = reader.readLine()) != null; ) {
+            result.add(line);
+        }
+        return result;
+    }
+
+    private static List<String> readLines(InlineStringLineReader reader) throws IOException {
+        var result = new ArrayList<String>();
+        for (InlineString.ref line; (line = reader.readLine()) != null; ) {
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    record ReaderData(Charset charset, int bufferSize, int chunkSize, String end) {}
+    public static Stream<ReaderData> readerData() {
+        return CHARSETS.stream().mapMulti((charset, c) -> {
+            for (int bufferSize : new int[] {1, 3, 8, 8192}) {
+                for (int chunkSize : new int[] {1, 2, 3, 7, 8192}) {
+                    for (var end : List.of("", "\n", "\r", "\r\n")) {
+                        c.accept(new ReaderData(charset, bufferSize, chunkSize, end));
+                    }
+                }
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("readerData")
+    public void readLine(ReaderData data) throws IOException {
+        var bytes = text(data.end()).getBytes(data.charset());
+        var channel = new ChunkedChannel(bytes, data.chunkSize());
+        try (var reader = new InlineStringLineReader(channel, data.charset(), data.bufferSize())) {
+            assertEquals(expectedLines(bytes, data.charset()), readLines(reader));
+            assertNull(reader.readLine());
+        }
+        assertFalse(channel.isOpen());
+    }
+
+    @ParameterizedTest
+    @MethodSource("readerData")
+    public void lines(ReaderData data) throws IOException {
+        var bytes = text(data.end()).getBytes(data.charset());
+        var reader = new InlineStringLineReader(new ChunkedChannel(bytes, data.chunkSize()),
+                data.charset(), data.bufferSize());
+        assertEquals(expectedLines(bytes, data.charset()),
+                reader.lines().map(InlineString.ref::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void crlfSplitAcrossReads() throws IOException {
+        // The first read ends right after a '\r', the '\n' that follows
+        // comes with the next read and must not produce an empty line
+        for (var charset : CHARSETS) {
+            var bytes = "ab\r\ncd\r\n\r\nef\r".getBytes(charset);
+            int chunkSize = "ab\r".getBytes(charset).length;
+            var reader = new InlineStringLineReader(new ChunkedChannel(bytes, chunkSize), charset, 64);
+            assertEquals(List.of("ab", "cd", "", "ef"), readLines(reader));
+        }
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossReads() throws IOException {
+        var text = "a😀b\n😀😀\n😀";
+        for (var charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16,
+                StandardCharsets.UTF_16LE)) {
+            var bytes = text.getBytes(charset);
+            for (int chunkSize = 1; chunkSize < 8; chunkSize++) {
+                var reader = new InlineStringLineReader(new ChunkedChannel(bytes, chunkSize), charset, 1);
+                assertEquals(List.of("a😀b", "😀😀", "😀"), readLines(reader));
+            }
+        }
+    }
+
+    @Test
+    public void empty() throws IOException {
+        for (var charset : CHARSETS) {
+            var reader = new InlineStringLineReader(new ChunkedChannel(new byte[0], 1), charset);
+            assertNull(reader.readLine());
+            assertNull(reader.readLine());
+            reader = new InlineStringLineReader(new ChunkedChannel("\n".getBytes(charset), 1), charset);
+            assertEquals("", reader.readLine().toString());
+            assertNull(reader.readLine());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new InlineStringLineReader(
+                new ChunkedChannel(new byte[0], 1), StandardCharsets.UTF_8, 0));
+    }
+}
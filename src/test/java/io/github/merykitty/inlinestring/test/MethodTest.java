@@ -1,19 +1,38 @@
 package io.github.merykitty.inlinestring.test;
 
+import io.github.merykitty.inlinestring.FastStringMap;
+import io.github.merykitty.inlinestring.InlineRope;
 import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.InlineStringConcatFactory;
+import io.github.merykitty.inlinestring.InlineStringJoiner;
+import io.github.merykitty.inlinestring.InlineStringSlice;
 import static io.github.merykitty.inlinestring.test.Utils.*;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.StringJoiner;
 import java.util.random.RandomGenerator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MethodTest {
     record EmptyData(String str, InlineString inlStr) {}
@@ -171,6 +190,59 @@ public class MethodTest {
         assertArrayEquals(data.str().getBytes(), data.inlStr().getBytes());
     }
 
+    @ParameterizedTest
+    @MethodSource("getBytesCharset")
+    public void encodedLength(GetBytesCharsetData data) {
+        assertEquals(data.str().getBytes(data.charset()).length,
+                data.inlStr().encodedLength(data.charset()));
+    }
+
+    record EncodeToData(String str, InlineString inlStr, Charset charset, int off, int room) {}
+    public static Stream<EncodeToData> encodeTo() {
+        var random = RandomGenerator.getDefault();
+        return DATA.stream().map(s -> {
+            var charset = CHARSETS.get(random.nextInt(CHARSETS.size()));
+            int off = random.nextInt(10);
+            int room = Math.max(s.getBytes(charset).length + random.nextInt(-1, 2), 0);
+            return new EncodeToData(s, new InlineString(s), charset, off, room);
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void encodeTo(EncodeToData data) {
+        byte[] expected = data.str().getBytes(data.charset());
+        byte[] dst = new byte[data.off() + data.room()];
+        if (expected.length > data.room()) {
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> data.inlStr().encodeTo(data.charset(), dst, data.off()));
+        } else {
+            assertEquals(expected.length, data.inlStr().encodeTo(data.charset(), dst, data.off()));
+            assertArrayEquals(expected, Arrays.copyOfRange(dst, data.off(), data.off() + expected.length));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("encodeTo")
+    public void encodeToByteBuffer(EncodeToData data) {
+        byte[] expected = data.str().getBytes(data.charset());
+        for (var dst : List.of(ByteBuffer.allocate(data.off() + data.room()),
+                ByteBuffer.allocateDirect(data.off() + data.room()))) {
+            dst.position(data.off());
+            if (expected.length > data.room()) {
+                assertThrows(BufferOverflowException.class,
+                        () -> data.inlStr().encodeTo(data.charset(), dst));
+                assertEquals(data.off(), dst.position());
+            } else {
+                assertEquals(expected.length, data.inlStr().encodeTo(data.charset(), dst));
+                assertEquals(data.off() + expected.length, dst.position());
+                byte[] actual = new byte[expected.length];
+                dst.get(data.off(), actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
     record CompareData(String str0, String str1, InlineString inlStr0, InlineString inlStr1) {}
     public static Stream<CompareData> compareData() {
         return DATA.stream().mapMulti((s0, c) -> DATA.forEach(s1 -> {
@@ -474,6 +546,44 @@ public class MethodTest {
                 data.inlStr().subSequence(data.beginIndex(), data.endIndex()).toString());
     }
 
+    @ParameterizedTest
+    @MethodSource("indexIndexData")
+    public void slice(IndexIndexData data) {
+        var substring = data.str().substring(data.beginIndex(), data.endIndex());
+        var slice = data.inlStr().slice(data.beginIndex(), data.endIndex());
+        assertEquals(substring, slice.toString());
+        assertEquals(substring, slice.materialize().toString());
+        assertEquals(substring.hashCode(), slice.hashCode());
+        assertEquals(new InlineStringSlice(new InlineString(substring)), slice);
+        assertTrue(slice.contentEquals(new InlineString(substring)));
+        assertEquals(substring.trim(), slice.trim().toString());
+        assertEquals(substring.strip(), slice.strip().toString());
+        if (!substring.isEmpty()) {
+            char c = substring.charAt(substring.length() / 2);
+            assertEquals(substring.indexOf(c), slice.indexOf(c));
+            assertEquals(-1, slice.indexOf(c, Integer.MAX_VALUE));
+            var prefix = substring.substring(0, substring.length() / 2);
+            assertTrue(slice.startsWith(new InlineString(prefix)));
+            assertEquals(substring.indexOf(prefix, 1), slice.indexOf(new InlineString(prefix), 1));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexIndexData")
+    public void sliceLookup(IndexIndexData data) {
+        var substring = data.str().substring(data.beginIndex(), data.endIndex());
+        var map = new FastStringMap<String>();
+        map.putInline(new InlineString(substring), substring);
+        map.putInline(new InlineString(substring + "$"), "other");
+        var slice = data.inlStr().slice(data.beginIndex(), data.endIndex());
+        assertEquals(substring, map.getInline(slice));
+        assertTrue(map.containsKeyInline(slice));
+        // A slice is not equal to the keys, the untyped lookups must miss
+        assertNull(map.get(slice));
+        assertFalse(map.containsKey(slice));
+        assertEquals("default", map.getOrDefault(slice, "default"));
+    }
+
     record ConcatData(String str0, String str1, InlineString inlStr0, InlineString inlStr1) {}
     public static Stream<ConcatData> concat() {
         return DATA.stream().mapMulti((s0, c) -> DATA.forEach(s1 ->
@@ -486,6 +596,61 @@ public class MethodTest {
         assertEquals(data.str0().concat(data.str1()), data.inlStr0().concat(data.inlStr1()).toString());
     }
 
+    record ConcatArrayData(List<String> strs) {}
+    public static Stream<ConcatArrayData> concatArray() {
+        var random = RandomGenerator.getDefault();
+        return Stream.generate(() -> new ConcatArrayData(random.ints(random.nextInt(6), 0, DATA.size())
+                .mapToObj(DATA::get).toList())).limit(DATA.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void concatArray(ConcatArrayData data) {
+        var inlStrs = data.strs().stream().map(InlineString::new).toArray(InlineString[]::new);
+        assertEquals(String.join("", data.strs()), InlineString.concat(inlStrs).toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("concat")
+    public void concatFactory(ConcatData data) throws Throwable {
+        var type = InlineString.class.asValueType();
+        var callSite = InlineStringConcatFactory.makeConcatWithConstants(MethodHandles.lookup(), "concat",
+                MethodType.methodType(type, type, int.class, type, Object.class),
+                "[\u0001:\u0001]\u0002\u0001\u0002\u0001", "(", ')');
+        var expected = "[" + data.str0() + ":" + 42 + "](" + data.str1() + ")" + null;
+        var actual = (InlineString) callSite.dynamicInvoker()
+                .invokeWithArguments(data.inlStr0(), 42, data.inlStr1(), null);
+        assertEquals(expected, actual.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 200, 201, 250})
+    public void concatFactoryArgCount(int argCount) throws Throwable {
+        // The call sites with the most arguments collect them into an array
+        // instead of folding them
+        var type = InlineString.class.asValueType();
+        var random = RandomGenerator.getDefault();
+        var types = new ArrayList<Class<?>>();
+        var args = new ArrayList<Object>();
+        var expected = new StringBuilder("<");
+        for (int i = 0; i < argCount; i++) {
+            var str = DATA.get(random.nextInt(DATA.size()));
+            if (i % 2 == 0) {
+                types.add(type);
+                args.add(new InlineString(str));
+            } else {
+                types.add(String.class);
+                args.add(str);
+            }
+            expected.append(str).append(',');
+        }
+        expected.append('>');
+        var callSite = InlineStringConcatFactory.makeConcatWithConstants(MethodHandles.lookup(), "concat",
+                MethodType.methodType(type, types), "<" + "\u0001,".repeat(argCount) + "\u0002", '>');
+        var actual = (InlineString) callSite.dynamicInvoker().invokeWithArguments(args);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
     record ReplaceCharData(String str, InlineString inlStr, char oldChar, char newChar) {}
     public static Stream<ReplaceCharData> replaceChar() {
         return DATA.stream().map(s -> {
@@ -582,6 +747,49 @@ public class MethodTest {
                         .toArray());
     }
 
+    record SplitCharData(String str, InlineString inlStr, char delimiter, int limit) {}
+    public static Stream<SplitCharData> splitCharData() {
+        return DATA.stream().mapMulti((s, c) -> {
+            var random = RandomGenerator.getDefault();
+            char oneChar = (char)random.nextInt('a', 'z' + 1);
+            var delimiters = List.of(' ', '.', oneChar);
+            delimiters.forEach(delimiter ->
+                    c.accept(new SplitCharData(s, new InlineString(s), delimiter, random.nextInt(5))));
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("splitCharData")
+    public void splitArray(SplitCharData data) {
+        var dst = new InlineString[data.limit()];
+        int count = data.inlStr().split(data.delimiter(), dst);
+        var expected = data.limit() == 0
+                ? new String[0]
+                : data.str().split(Pattern.quote(String.valueOf(data.delimiter())), data.limit());
+        assertArrayEquals(expected,
+                Arrays.stream(dst, 0, count)
+                        .map(s -> s.toString())
+                        .toArray());
+    }
+
+    @ParameterizedTest
+    @MethodSource("splitCharData")
+    public void splitIterator(SplitCharData data) {
+        var result = new ArrayList<String>();
+        data.inlStr().splitIterator(data.delimiter()).forEachRemaining(s -> result.add(s.toString()));
+        assertArrayEquals(data.str().split(Pattern.quote(String.valueOf(data.delimiter())), -1),
+                result.toArray());
+    }
+
+    @ParameterizedTest
+    @MethodSource("splitCharData")
+    public void splitSpliterator(SplitCharData data) {
+        assertArrayEquals(data.str().split(Pattern.quote(String.valueOf(data.delimiter())), -1),
+                StreamSupport.stream(data.inlStr().splitSpliterator(data.delimiter()), true)
+                        .map(s -> s.toString())
+                        .toArray());
+    }
+
     @ParameterizedTest
     @MethodSource("emptyData")
     public void toLowerCase(EmptyData data) {
@@ -693,4 +901,106 @@ public class MethodTest {
         assertEquals(String.join(data.str(), data.elements()),
                 InlineString.join(data.inlStr(), data.elements()).toString());
     }
+
+    @ParameterizedTest
+    @MethodSource("join")
+    public void joiner(JoinData data) {
+        var expected = new StringJoiner(data.str(), "[", "]");
+        var actual = new InlineStringJoiner(data.inlStr(), "[", "]");
+        assertEquals(expected.toString(), actual.toInlineString().toString());
+        var other = new InlineStringJoiner("|");
+        for (var element : data.elements()) {
+            expected.add(element);
+            actual.add(new InlineString(element));
+            other.add(element);
+        }
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.toString(), actual.toInlineString().toString());
+        expected.merge(new StringJoiner("|").add(String.join("|", data.elements())));
+        actual.merge(other);
+        assertEquals(expected.toString(), actual.toInlineString().toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("join")
+    public void joining(JoinData data) {
+        var expected = data.elements().stream()
+                .collect(Collectors.joining(data.str(), "<", ">"));
+        var actual = data.elements().parallelStream()
+                .map(s -> (InlineString.ref) new InlineString(s))
+                .collect(InlineStringJoiner.joining(data.inlStr(), "<", ">"));
+        assertEquals(expected, actual.toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("concat")
+    public void rope(ConcatData data) {
+        var expected = data.str0() + data.str1() + data.str0();
+        var rope = InlineRope.of(data.inlStr0()).concat(data.inlStr1()).concat(InlineRope.of(data.inlStr0()));
+        assertEquals(expected.length(), rope.length());
+        assertEquals(expected, rope.toInlineString().toString());
+        var random = RandomGenerator.getDefault();
+        int i0 = random.nextInt(expected.length() + 1);
+        int i1 = random.nextInt(expected.length() + 1);
+        int beginIndex = Math.min(i0, i1);
+        int endIndex = Math.max(i0, i1);
+        var sub = rope.substring(beginIndex, endIndex);
+        assertEquals(expected.substring(beginIndex, endIndex), sub.toString());
+        for (int i = beginIndex; i < endIndex; i++) {
+            assertEquals(expected.charAt(i), sub.charAt(i - beginIndex));
+        }
+    }
+
+    @Test
+    public void ropeAppend() {
+        var expected = new StringBuilder();
+        var rope = InlineRope.empty();
+        for (int i = 0; i < 100_000; i++) {
+            var line = DATA.get(i % DATA.size());
+            expected.append(line);
+            rope = rope.concat(new InlineString(line));
+        }
+        assertEquals(expected.length(), rope.length());
+        assertEquals(expected.toString(), rope.toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("concat")
+    public void ropeWriteTo(ConcatData data) throws IOException {
+        var rope = InlineRope.of(data.inlStr0()).concat(data.inlStr1());
+        var expected = data.str0() + data.str1();
+        for (var charset : CHARSETS) {
+            var out = new ByteArrayOutputStream();
+            long written = rope.writeTo(Channels.newChannel(out), charset);
+            assertArrayEquals(expected.getBytes(charset), out.toByteArray());
+            assertEquals(out.size(), written);
+        }
+    }
+
+    @Test
+    public void ropeWriteToChunks() throws IOException {
+        // Longer than two chunks of 8192 chars, with a surrogate pair across
+        // the first chunk boundary and one across the boundary of the chunk
+        // following it, which starts a char earlier
+        var rope = InlineRope.of(new InlineString("a".repeat(8191) + "\uD83D"))
+                .concat(new InlineString("\uDE00" + "ồ".repeat(8189)))
+                .concat(new InlineString("\uD83D\uDE00" + "é".repeat(5000) + "\uD83D\uDE00"));
+        var expected = rope.toString();
+        assertTrue(expected.length() > 2 * 8192);
+        assertTrue(Character.isHighSurrogate(expected.charAt(8191)));
+        assertTrue(Character.isHighSurrogate(expected.charAt(16382)));
+        for (var charset : CHARSETS) {
+            var out = new ByteArrayOutputStream();
+            long written = rope.writeTo(Channels.newChannel(out), charset);
+            var bytes = out.toByteArray();
+            assertArrayEquals(expected.getBytes(charset), bytes);
+            assertEquals(bytes.length, written);
+            if (charset == StandardCharsets.UTF_16) {
+                // A single byte order mark, before the first chunk
+                assertArrayEquals(new byte[] {(byte) 0xfe, (byte) 0xff}, Arrays.copyOf(bytes, 2));
+                assertArrayEquals(expected.getBytes(StandardCharsets.UTF_16BE),
+                        Arrays.copyOfRange(bytes, 2, bytes.length));
+            }
+        }
+    }
 }
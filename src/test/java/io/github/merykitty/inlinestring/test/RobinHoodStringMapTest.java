@@ -0,0 +1,137 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.RobinHoodStringMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+public class RobinHoodStringMapTest {
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    // The home slot of the key in a table of the specified capacity
+    private static int home(String key, int capacity) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    // Keys whose home is the last slot of a table of 16 slots, their
+    // cluster wraps around to the start of the table
+    private static List<String> wrappingKeys(int count) {
+        var result = new ArrayList<String>();
+        for (int i = 0; result.size() < count; i++) {
+            if (home("key" + i, 16) == 15) {
+                result.add("key" + i);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void putGetRemove() {
+        var map = new RobinHoodStringMap<Integer>();
+        var expected = new HashMap<String, Integer>();
+        var random = RandomGenerator.getDefault();
+        for (int i = 0; i < 100_000; i++) {
+            int k = random.nextInt(1000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put("key" + k, i), map.putInline(key(k), i));
+                case 1 -> assertEquals(expected.get("key" + k), map.getInline(key(k)));
+                default -> assertEquals(expected.remove("key" + k), map.removeInline(key(k)));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(new InlineString(k))));
+    }
+
+    @Test
+    public void growth() {
+        var map = new RobinHoodStringMap<Integer>(2);
+        for (int i = 0; i < 10_000; i++) {
+            map.putInline(key(i), i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.getInline(key(i)));
+        }
+        assertNull(map.getInline(key(-1)));
+    }
+
+    @Test
+    public void backwardShiftAcrossWrapAround() {
+        var keys = wrappingKeys(4);
+        var map = new RobinHoodStringMap<String>(16);
+        for (var k : keys) {
+            map.putInline(new InlineString(k), k);
+        }
+        // The first key sits in the last slot, the others in the first slots,
+        // removing it shifts them back over the end of the table
+        assertEquals(keys.get(0), map.removeInline(new InlineString(keys.get(0))));
+        for (var k : keys.subList(1, keys.size())) {
+            assertEquals(k, map.getInline(new InlineString(k)));
+        }
+        assertEquals(keys.get(2), map.removeInline(new InlineString(keys.get(2))));
+        assertEquals(keys.get(1), map.getInline(new InlineString(keys.get(1))));
+        assertEquals(keys.get(3), map.getInline(new InlineString(keys.get(3))));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void iteratorRemoveAcrossWrapAround() {
+        var keys = wrappingKeys(4);
+        var map = new RobinHoodStringMap<String>(16);
+        for (var k : keys) {
+            map.putInline(new InlineString(k), k);
+        }
+        map.putInline(key(-1), "other");
+        // Every removal shifts the rest of the cluster, the iterator must
+        // still return each entry exactly once
+        var visited = new HashSet<String>();
+        for (var iter = map.keySet().iterator(); iter.hasNext(); ) {
+            assertTrue(visited.add(iter.next().toString()));
+            iter.remove();
+        }
+        assertEquals(keys.size() + 1, visited.size());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void views() {
+        var map = new RobinHoodStringMap<Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), i);
+        }
+        assertTrue(map.containsValue(42));
+        assertFalse(map.containsValue(100));
+        assertEquals(100, map.keySet().size());
+        assertEquals(4950, map.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(map.entrySet().contains(Map.entry(key(5), 5)));
+        assertFalse(map.entrySet().remove(Map.entry(key(5), 6)));
+        assertTrue(map.entrySet().remove(Map.entry(key(5), 5)));
+        assertTrue(map.keySet().remove(key(6)));
+        map.values().removeIf(v -> v % 2 == 0);
+        assertEquals(49, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 != 0 && i != 5, map.containsKeyInline(key(i)));
+        }
+        for (var e : map.entrySet()) {
+            e.setValue(e.getValue() + 1000);
+        }
+        assertEquals(1007, map.getInline(key(7)));
+
+        var iter = map.keySet().iterator();
+        iter.next();
+        map.putInline(key(-1), -1);
+        assertThrows(ConcurrentModificationException.class, iter::next);
+    }
+}
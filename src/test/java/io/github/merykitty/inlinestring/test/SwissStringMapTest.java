@@ -0,0 +1,116 @@
+package io.github.merykitty.inlinestring.test;
+
+import io.github.merykitty.inlinestring.InlineString;
+import io.github.merykitty.inlinestring.SwissStringMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+public class SwissStringMapTest {
+    private static InlineString key(int i) {
+        return new InlineString("key" + i);
+    }
+
+    @Test
+    public void putGetRemove() {
+        var map = new SwissStringMap<Integer>();
+        var expected = new HashMap<String, Integer>();
+        var random = RandomGenerator.getDefault();
+        for (int i = 0; i < 100_000; i++) {
+            int k = random.nextInt(1000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put("key" + k, i), map.putInline(key(k), i));
+                case 1 -> assertEquals(expected.get("key" + k), map.getInline(key(k)));
+                default -> assertEquals(expected.remove("key" + k), map.removeInline(key(k)));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(new InlineString(k))));
+    }
+
+    @Test
+    public void growth() {
+        var map = new SwissStringMap<Integer>(2);
+        for (int i = 0; i < 10_000; i++) {
+            map.putInline(key(i), i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.getInline(key(i)));
+        }
+        assertNull(map.getInline(key(-1)));
+    }
+
+    @Test
+    public void churn() {
+        // Distinct keys are inserted and removed while the size stays small,
+        // the deleted slots must be reclaimed for the lookups of absent keys
+        // to end
+        var map = new SwissStringMap<Integer>(16);
+        for (int i = 0; i < 100_000; i++) {
+            map.putInline(key(i), i);
+            if (i >= 4) {
+                assertEquals(i - 4, map.removeInline(key(i - 4)));
+            }
+            assertNull(map.getInline(key(-1)));
+        }
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        var map = new SwissStringMap<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            map.putInline(key(i), i);
+        }
+        var visited = new HashSet<String>();
+        for (var iter = map.keySet().iterator(); iter.hasNext(); ) {
+            var k = iter.next();
+            assertTrue(visited.add(k.toString()));
+            if (map.get(k) % 3 != 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(1000, visited.size());
+        assertEquals(334, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 == 0, map.containsKeyInline(key(i)));
+        }
+    }
+
+    @Test
+    public void views() {
+        var map = new SwissStringMap<Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.putInline(key(i), i);
+        }
+        assertTrue(map.containsValue(42));
+        assertFalse(map.containsValue(100));
+        assertEquals(100, map.keySet().size());
+        assertEquals(4950, map.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(map.entrySet().contains(Map.entry(key(5), 5)));
+        assertFalse(map.entrySet().remove(Map.entry(key(5), 6)));
+        assertTrue(map.entrySet().remove(Map.entry(key(5), 5)));
+        assertTrue(map.keySet().remove(key(6)));
+        map.values().removeIf(v -> v % 2 == 0);
+        assertEquals(49, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 != 0 && i != 5, map.containsKeyInline(key(i)));
+        }
+        for (var e : map.entrySet()) {
+            e.setValue(e.getValue() + 1000);
+        }
+        assertEquals(1007, map.getInline(key(7)));
+
+        var iter = map.keySet().iterator();
+        iter.next();
+        map.putInline(key(-1), -1);
+        assertThrows(ConcurrentModificationException.class, iter::next);
+    }
+}
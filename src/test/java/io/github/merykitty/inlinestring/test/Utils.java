@@ -16,7 +16,9 @@ public class Utils {
             "  qwerty",
             "\t 1 + 1 = 2 \n",
             "Einstein's equations \t",
-            "\\n\\t1 + 1 = 2\\0");
+            "\\n\\t1 + 1 = 2\\0",
+            "Ngồi nghịch thuii, ".repeat(12),
+            "2021-09-14 12:00:01 INFO [main] request served in 12 ms, status=200\n".repeat(4));
     public static final List<Charset> CHARSETS = List.of(StandardCharsets.UTF_8,
                     StandardCharsets.UTF_16,
                     StandardCharsets.ISO_8859_1,